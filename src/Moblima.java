@@ -8,18 +8,21 @@ import model.cineplex.Cineplex;
 import model.commons.Language;
 import model.commons.User;
 import model.movie.*;
-import util.Utilities;
+import persistence.CorruptSegmentException;
+import persistence.SeatInventory;
+import persistence.StorageBackend;
 import view.MainMenuView;
 import view.ui.Form;
 import view.ui.Navigation;
 import view.ui.View;
 
-import java.io.InvalidClassException;
-import java.io.ObjectInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The bootstrap class to load all the classes for this application.
@@ -40,31 +43,70 @@ public class Moblima {
         nav = new Navigation();
 
         // Initialise Singleton Controllers
-        BookingController.init();
+        BookingController.init(StorageBackend.MAPPED_FILE);
         CineplexController.init();
         CinemaController.init();
         MovieController.init();
         MovieReviewController.init();
-        PaymentController.init();
+        PaymentController.init(StorageBackend.JOURNALED_FILE);
         ShowtimeController.init();
         UserController.init();
 
+        // Open the seat inventory before any showtime seating is created
+        try {
+            SeatInventory.init(EntityController.SEATS_FILENAME);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // Upgrade data saved by an older release, one segment at a time
+        try {
+            long upgradeStartTime = System.nanoTime();
+            int migratedCount = EntityController.upgrade(EntityController.DAT_FILENAME);
+            if (migratedCount > 0)
+                View.displaySuccess("Upgraded " + migratedCount + " data segments in "
+                        + (System.nanoTime() - upgradeStartTime) / 1000000 + " ms.");
+        } catch (Exception e) {
+            View.displayWarning("Unable to upgrade data!");
+            Form.pressAnyKeyToContinue();
+        }
+
         // Load data
+        boolean loaded = false;
         try {
-            ObjectInputStream objectInputStream = Utilities.getObjectInputStream(EntityController.DAT_FILENAME);
-            if (objectInputStream != null)
-                EntityController.load(objectInputStream);
-        } catch (InvalidClassException e) {
+            EntityController.load(EntityController.DAT_FILENAME);
+            loaded = true;
+        } catch (FileNotFoundException e) {
+            View.displayWarning("Data not found!");
+            Form.pressAnyKeyToContinue();
+        } catch (CorruptSegmentException e) {
+            View.displayWarning("Corrupt data in " + e.getSegmentName() + "!");
+            Form.pressAnyKeyToContinue();
+        } catch (StreamCorruptedException e) {
             View.displayWarning("Incompatible save version!");
             Form.pressAnyKeyToContinue();
         } catch (Exception e) {
-            View.displayWarning("Data not found!");
+            View.displayWarning("Unable to load data!");
+            Form.pressAnyKeyToContinue();
+        }
+
+        // Replay mutations journaled since the data was saved
+        try {
+            EntityController.recover(EntityController.JOURNAL_FILENAME);
+        } catch (Exception e) {
+            View.displayWarning("Unable to recover journaled changes!");
             Form.pressAnyKeyToContinue();
         }
 
-        // Creates ROOT user if none exist
+        // Save the data in the background from now on
+        Snapshotter.init(EntityController.DAT_FILENAME);
+
+        // Hold the seats of bookings in progress for a limited time from now on
+        SeatHolder.init();
+
+        // Creates ROOT user if none exist; saved data always has one, so its users are not loaded up front
         UserController userController = UserController.getInstance();
-        if (userController.getList().size() == 0) {
+        if (!loaded && userController.getList().size() == 0) {
             userController.registerStaff("Root", "", "00000000",
                     "", "root", "root");
         }
@@ -84,9 +126,9 @@ public class Moblima {
 //            Cineplex cineplex3 = cineplexController.createCineplex("Jurong East Hub", "50 Jurong Gateway Road, Singapore");
 //            Cineplex cineplex4 = cineplexController.createCineplex("AMK Hub", "Amg Mo Kio Ave 3, Singapore");
 //            Cineplex cineplex5 = cineplexController.createCineplex("Downtown Hub", "Marine Parade Road, Singapore");
-//            CinemaLayout smallLayout = new CinemaLayout(Arrays.asList(4), null, 7, 'E');
-//            CinemaLayout mediumLayout = new CinemaLayout(Arrays.asList(7), null, 13, 'H');
-//            CinemaLayout bigLayout = new CinemaLayout(Arrays.asList(9), null, 17, 'K');
+//            CinemaLayout smallLayout = CinemaLayout.of(Arrays.asList(4), null, 7, 'E');
+//            CinemaLayout mediumLayout = CinemaLayout.of(Arrays.asList(7), null, 13, 'H');
+//            CinemaLayout bigLayout = CinemaLayout.of(Arrays.asList(9), null, 17, 'K');
 //            for (Cineplex cineplex : cineplexController.getList()) {
 //                int cinemaCode = 1;
 //                for (; cinemaCode < 3; cinemaCode++)
@@ -150,7 +192,7 @@ public class Moblima {
 //                    cineplex1.getCinemas().get(0).getId(), Language.ENGLISH, calendar.getTime(),
 //                    true, subtitles);
 //
-//            Hashtable<TicketType, Integer> ticketTypesCount = new Hashtable<>();
+//            ConcurrentHashMap<TicketType, Integer> ticketTypesCount = new ConcurrentHashMap<>();
 //            ticketTypesCount.put(TicketType.STANDARD, 1);
 //
 //            User user1 = userController.registerUser("Anqi", "Tu", "1", "a@a.com");
@@ -196,4 +238,12 @@ public class Moblima {
     public void run() {
         nav.goTo(new MainMenuView(nav), VERSION);
     }
+
+    /**
+     * Runs the application and reports the time taken from the given start time to the first menu.
+     * @param startTime The value of System.nanoTime() when the application was started.
+     */
+    public void run(long startTime) {
+        nav.goTo(new MainMenuView(nav), VERSION, String.valueOf(startTime));
+    }
 }
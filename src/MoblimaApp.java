@@ -5,8 +5,17 @@
 
 public class MoblimaApp {
 
+    /**
+     * The command line option to report the startup time.
+     */
+    public static final String TIMING_OPTION = "--timing";
+
     public static void main(String[] args) {
+        long startTime = System.nanoTime();
         Moblima moblima = new Moblima();
-        moblima.run();
+        if (args.length > 0 && args[0].equals(TIMING_OPTION))
+            moblima.run(startTime);
+        else
+            moblima.run();
     }
 }
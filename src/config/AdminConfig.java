@@ -1,5 +1,7 @@
 package config;
 
+import persistence.Compression;
+
 /**
  * Represents the configuration of admin settings.
  *
@@ -19,6 +21,16 @@ public class AdminConfig implements Configurable {
      */
     private static String adminSecret;
 
+    /**
+     * The number of minutes between the snapshots of all entities taken in the background.
+     */
+    private static int snapshotIntervalMinutes;
+
+    /**
+     * The compression the snapshots are written with.
+     */
+    private static Compression snapshotCompression;
+
     /**
      * Initializes the admin configuration by resetting.
      */
@@ -53,6 +65,42 @@ public class AdminConfig implements Configurable {
         AdminConfig.adminSecret = adminSecret;
     }
 
+    /**
+     * Gets the number of minutes between the background snapshots.
+     *
+     * @return the number of minutes between the background snapshots.
+     */
+    public static int getSnapshotIntervalMinutes() {
+        return snapshotIntervalMinutes;
+    }
+
+    /**
+     * Changes the number of minutes between the background snapshots. The new interval applies from the next snapshot.
+     *
+     * @param snapshotIntervalMinutes The new number of minutes between the background snapshots.
+     */
+    public void setSnapshotIntervalMinutes(int snapshotIntervalMinutes) {
+        AdminConfig.snapshotIntervalMinutes = snapshotIntervalMinutes;
+    }
+
+    /**
+     * Gets the compression the snapshots are written with.
+     *
+     * @return the compression the snapshots are written with.
+     */
+    public static Compression getSnapshotCompression() {
+        return snapshotCompression;
+    }
+
+    /**
+     * Changes the compression the snapshots are written with. Snapshots written with any compression can be loaded.
+     *
+     * @param snapshotCompression The new compression the snapshots are written with.
+     */
+    public void setSnapshotCompression(Compression snapshotCompression) {
+        AdminConfig.snapshotCompression = snapshotCompression;
+    }
+
     /**
      * Gets the type of this configuration.
      *
@@ -64,10 +112,12 @@ public class AdminConfig implements Configurable {
     }
 
     /**
-     * Resets the admin secret to "admin".
+     * Resets the admin secret to "admin", the snapshot interval to 10 minutes and the snapshot compression to fast.
      */
     @Override
     public void reset() {
         adminSecret = "admin";
+        snapshotIntervalMinutes = 10;
+        snapshotCompression = Compression.FAST;
     }
 }
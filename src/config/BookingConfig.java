@@ -1,5 +1,7 @@
 package config;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents the configuration of booking setting.
  *
@@ -8,6 +10,13 @@ package config;
  */
 public class BookingConfig implements Configurable {
 
+    /**
+     * The version of the settings that decide when the booking of a showtime is open, which is increased whenever
+     * one of them is changed so that the booking windows computed from them are computed again.
+     * It is created before the singleton instance, which resets the settings.
+     */
+    private static final AtomicInteger bookingWindowVersion = new AtomicInteger();
+
     /**
      * A reference to this singleton instance.
      */
@@ -38,6 +47,16 @@ public class BookingConfig implements Configurable {
      */
     private static int bufferMinutesAfterShowtime;
 
+    /**
+     * The number of minutes the seats selected for a booking are held before the booking is cancelled.
+     */
+    private static int seatHoldMinutes;
+
+    /**
+     * The percentage of the seats of a showtime held or taken from which the showtime is selling fast.
+     */
+    private static int sellingFastPercent;
+
     /**
      * Initializes the booking configuration by resetting.
      */
@@ -99,6 +118,16 @@ public class BookingConfig implements Configurable {
         return minutesBeforeClosedBooking;
     }
 
+    /**
+     * Gets the version of the settings that decide when the booking of a showtime is open, which are the number of
+     * days before the showtime to open its booking and the number of minutes before the showtime to close it.
+     *
+     * @return the version of the booking window settings, which changes whenever one of them is changed.
+     */
+    public static int getBookingWindowVersion() {
+        return bookingWindowVersion.get();
+    }
+
     /**
      * Gets the buffer minutes after the showtime.
      * @return the buffer minutes after the showtime.
@@ -107,6 +136,42 @@ public class BookingConfig implements Configurable {
         return bufferMinutesAfterShowtime;
     }
 
+    /**
+     * Gets the number of minutes the seats selected for a booking are held.
+     *
+     * @return the number of minutes the seats selected for a booking are held.
+     */
+    public static int getSeatHoldMinutes() {
+        return seatHoldMinutes;
+    }
+
+    /**
+     * Changes the number of minutes the seats selected for a booking are held.
+     *
+     * @param seatHoldMinutes The new number of minutes the seats selected for a booking are held.
+     */
+    public void setSeatHoldMinutes(int seatHoldMinutes) {
+        BookingConfig.seatHoldMinutes = seatHoldMinutes;
+    }
+
+    /**
+     * Gets the percentage of the seats of a showtime held or taken from which the showtime is selling fast.
+     *
+     * @return the percentage of the seats from which a showtime is selling fast.
+     */
+    public static int getSellingFastPercent() {
+        return sellingFastPercent;
+    }
+
+    /**
+     * Changes the percentage of the seats of a showtime held or taken from which the showtime is selling fast.
+     *
+     * @param sellingFastPercent The new percentage of the seats from which a showtime is selling fast.
+     */
+    public void setSellingFastPercent(int sellingFastPercent) {
+        BookingConfig.sellingFastPercent = sellingFastPercent;
+    }
+
     /**
      * Changes the number of minutes before the showtime to close the booking.
      *
@@ -114,6 +179,7 @@ public class BookingConfig implements Configurable {
      */
     public void setMinutesBeforeClosedBooking(int minutesBeforeClosedBooking) {
         BookingConfig.minutesBeforeClosedBooking = minutesBeforeClosedBooking;
+        bookingWindowVersion.incrementAndGet();
     }
 
     /**
@@ -123,6 +189,7 @@ public class BookingConfig implements Configurable {
      */
     public void setMinDaysBeforeOpenBooking(int DaysBeforeOpenBooking) {
         BookingConfig.DaysBeforeOpenBooking = DaysBeforeOpenBooking;
+        bookingWindowVersion.incrementAndGet();
     }
 
     /**
@@ -163,5 +230,8 @@ public class BookingConfig implements Configurable {
         bookingSurcharge = 1.0;
         minutesBeforeClosedBooking = 0;
         bufferMinutesAfterShowtime = 30;
+        seatHoldMinutes = 10;
+        sellingFastPercent = 70;
+        bookingWindowVersion.incrementAndGet();
     }
 }
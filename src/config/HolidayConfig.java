@@ -4,7 +4,7 @@ import exception.IllegalActionException;
 import util.Utilities;
 
 import java.util.Date;
-import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents the configuration of holidays setting.
@@ -20,9 +20,9 @@ public class HolidayConfig implements Configurable {
     private static HolidayConfig instance = new HolidayConfig();
 
     /**
-     * A hash table of holidays with the date as the key and the holiday name as the value.
+     * A concurrent hash map of holidays with the date as the key and the holiday name as the value.
      */
-    private static Hashtable<Date, String> holidays;
+    private static volatile ConcurrentHashMap<Date, String> holidays;
 
     /**
      * Initializes the holiday configuration by resetting.
@@ -41,11 +41,11 @@ public class HolidayConfig implements Configurable {
     }
 
     /**
-     * Gets the hash table of holidays with the date as the key and the holiday name as the value.
+     * Gets the concurrent hash map of holidays with the date as the key and the holiday name as the value.
      *
-     * @return the hash table of holidays with the date as the key and the holiday name as the value.
+     * @return the concurrent hash map of holidays with the date as the key and the holiday name as the value.
      */
-    public static Hashtable<Date, String> getHolidays() {
+    public static ConcurrentHashMap<Date, String> getHolidays() {
         return holidays;
     }
 
@@ -102,17 +102,19 @@ public class HolidayConfig implements Configurable {
      */
     @Override
     public void reset() {
-        holidays = new Hashtable<Date, String>();
-        holidays.put(Utilities.parseDate("01/01", "dd/MM"), "New Year's Day");
-        holidays.put(Utilities.parseDate("28/01", "dd/MM"), "Chinese New Year");
-        holidays.put(Utilities.parseDate("14/04", "dd/MM"), "Good Friday");
-        holidays.put(Utilities.parseDate("01/05", "dd/MM"), "Labour Day");
-        holidays.put(Utilities.parseDate("10/05", "dd/MM"), "Vesak Day");
-        holidays.put(Utilities.parseDate("25/06", "dd/MM"), "Hari Raya Puasa");
-        holidays.put(Utilities.parseDate("09/08", "dd/MM"), "National Day");
-        holidays.put(Utilities.parseDate("01/09", "dd/MM"), "Hari Raya Haji");
-        holidays.put(Utilities.parseDate("18/10", "dd/MM"), "Deepavali");
-        holidays.put(Utilities.parseDate("25/12", "dd/MM"), "Christmas Day");
+        ConcurrentHashMap<Date, String> defaultHolidays = new ConcurrentHashMap<>();
+        defaultHolidays.put(Utilities.parseDate("01/01", "dd/MM"), "New Year's Day");
+        defaultHolidays.put(Utilities.parseDate("28/01", "dd/MM"), "Chinese New Year");
+        defaultHolidays.put(Utilities.parseDate("14/04", "dd/MM"), "Good Friday");
+        defaultHolidays.put(Utilities.parseDate("01/05", "dd/MM"), "Labour Day");
+        defaultHolidays.put(Utilities.parseDate("10/05", "dd/MM"), "Vesak Day");
+        defaultHolidays.put(Utilities.parseDate("25/06", "dd/MM"), "Hari Raya Puasa");
+        defaultHolidays.put(Utilities.parseDate("09/08", "dd/MM"), "National Day");
+        defaultHolidays.put(Utilities.parseDate("01/09", "dd/MM"), "Hari Raya Haji");
+        defaultHolidays.put(Utilities.parseDate("18/10", "dd/MM"), "Deepavali");
+        defaultHolidays.put(Utilities.parseDate("25/12", "dd/MM"), "Christmas Day");
 
+        // Replace the holidays only once complete, so a reader never sees them half filled
+        holidays = defaultHolidays;
     }
 }
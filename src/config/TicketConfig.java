@@ -7,8 +7,8 @@ import model.transaction.Priceable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents the configuration of ticket setting. It consists os the available ticket types for each cineplex type and
@@ -25,14 +25,15 @@ public class TicketConfig implements Configurable {
     private static TicketConfig instance = new TicketConfig();
 
     /**
-     * A hash table of setting with the cineplex type as the key and the array list of available ticket types as the value.
+     * A concurrent hash map of setting with the cineplex type as the key and the list of available ticket types
+     * as the value.
      */
-    private static Hashtable<CinemaType, ArrayList<TicketType>> cinemaTicketTypes;
+    private static volatile ConcurrentHashMap<CinemaType, ArrayList<TicketType>> cinemaTicketTypes;
 
     /**
-     * A hash table of setting with the priceable as the key and its pricing rate as the value.
+     * A concurrent hash map of setting with the priceable as the key and its pricing rate as the value.
      */
-    private static Hashtable<Priceable, Double> priceableRates;
+    private static volatile ConcurrentHashMap<Priceable, Double> priceableRates;
 
     /**
      * Initializes the ticket configuration by resetting.
@@ -112,39 +113,43 @@ public class TicketConfig implements Configurable {
     @Override
     public void reset() {
 
-        cinemaTicketTypes = new Hashtable<>();
-        priceableRates = new Hashtable<>();
+        ConcurrentHashMap<CinemaType, ArrayList<TicketType>> defaultTicketTypes = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Priceable, Double> defaultRates = new ConcurrentHashMap<>();
 
         // DEFAULT AVAILABLE TICKET TYPES
-        cinemaTicketTypes.put(CinemaType.REGULAR,
+        defaultTicketTypes.put(CinemaType.REGULAR,
                 new ArrayList<>(Arrays.asList(
                         TicketType.PEAK,
                         TicketType.SENIOR_CITIZEN,
                         TicketType.STANDARD,
                         TicketType.STUDENT)));
-        cinemaTicketTypes.put(CinemaType.PLATINUM,
+        defaultTicketTypes.put(CinemaType.PLATINUM,
                 new ArrayList<>(Arrays.asList(
                         TicketType.STANDARD,
                         TicketType.PEAK)));
-        cinemaTicketTypes.put(CinemaType.EXECUTIVE,
+        defaultTicketTypes.put(CinemaType.EXECUTIVE,
                 new ArrayList<>(Arrays.asList(
                         TicketType.STANDARD,
                         TicketType.PEAK)));
 
         // DEFAULT MOVIE TYPE SURCHARGE RATES
-        priceableRates.put(MovieType.TWO_DIMENSION, 0.0);
-        priceableRates.put(MovieType.THREE_DIMENSION, 1.0);
-        priceableRates.put(MovieType.BLOCKBUSTER, 1.0);
+        defaultRates.put(MovieType.TWO_DIMENSION, 0.0);
+        defaultRates.put(MovieType.THREE_DIMENSION, 1.0);
+        defaultRates.put(MovieType.BLOCKBUSTER, 1.0);
 
         // DEFAULT TICKET TYPE RATES
-        priceableRates.put(TicketType.PEAK, 13.0);
-        priceableRates.put(TicketType.SENIOR_CITIZEN, 5.0);
-        priceableRates.put(TicketType.STANDARD, 9.0);
-        priceableRates.put(TicketType.STUDENT, 7.0);
+        defaultRates.put(TicketType.PEAK, 13.0);
+        defaultRates.put(TicketType.SENIOR_CITIZEN, 5.0);
+        defaultRates.put(TicketType.STANDARD, 9.0);
+        defaultRates.put(TicketType.STUDENT, 7.0);
 
         // DEFAULT CINEMA TYPE SURCHARGE RATES
-        priceableRates.put(CinemaType.REGULAR, 0.0);
-        priceableRates.put(CinemaType.PLATINUM, 5.0);
-        priceableRates.put(CinemaType.EXECUTIVE, 7.0);
+        defaultRates.put(CinemaType.REGULAR, 0.0);
+        defaultRates.put(CinemaType.PLATINUM, 5.0);
+        defaultRates.put(CinemaType.EXECUTIVE, 7.0);
+
+        // Replace the settings only once complete, so a reader never sees them half filled
+        cinemaTicketTypes = defaultTicketTypes;
+        priceableRates = defaultRates;
     }
 }
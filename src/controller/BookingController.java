@@ -8,35 +8,85 @@ import model.cineplex.Seat;
 import model.commons.User;
 import model.transaction.Payment;
 import model.transaction.PaymentStatus;
-
-import java.util.Hashtable;
-import java.util.List;
-import java.util.UUID;
+import persistence.BookingCodec;
+import persistence.StorageBackend;
+import util.IdempotencyTable;
+import util.StripedLock;
+import util.Utilities;
+
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  Represents the moblima.controller of booking.
+ Changes to the bookings of a showtime are serialized by a lock striped by showtime, so bookings for different
+ showtimes are made fully in parallel. Locks are always taken in the same order: the showtime stripe, then the
+ booking, then the user. The seats are claimed without locking while these are held.
+ A group booking locks all its showtimes at once, taking their stripes in order.
+ A confirmation made with a request key is made only once for the key, so a client can retry it without the
+ booking being added twice.
  @version 1.0
  @since 2017-10-20
  */
 public class BookingController extends EntityController<Booking> {
 
+    /**
+     * The minimum number of stripes of the showtime locks.
+     */
+    private static final int SHOWTIME_LOCK_STRIPES = 64;
+
+    /**
+     * The maximum number of request keys whose confirmations are remembered.
+     */
+    private static final int REQUEST_KEY_CAPACITY = 100000;
+
+    /**
+     * The number of minutes the confirmation of a request key is remembered for.
+     */
+    private static final long REQUEST_KEY_EXPIRY_MINUTES = 60;
+
     /**
      * A reference to this singleton instance.
      */
     private static BookingController instance;
 
+    /**
+     * The locks of the showtimes, striped by showtime ID.
+     */
+    private StripedLock showtimeLocks;
+
+    /**
+     * The bookings confirmed by request key.
+     */
+    private IdempotencyTable<Booking> confirmRequests;
+
     /**
      * Creates the Booking Controller.
+     * @param backend The storage backend of the entities.
      */
-    private BookingController() {
-        super();
+    private BookingController(StorageBackend backend) {
+        super(new BookingCodec(), backend);
+        this.showtimeLocks = new StripedLock(SHOWTIME_LOCK_STRIPES);
+        this.confirmRequests = new IdempotencyTable<>(REQUEST_KEY_CAPACITY,
+                TimeUnit.MINUTES.toMillis(REQUEST_KEY_EXPIRY_MINUTES));
     }
 
     /**
      * Initialize the Booking Controller.
      */
     public static void init() {
-        instance = new BookingController();
+        init(StorageBackend.MEMORY);
+    }
+
+    /**
+     * Initialize the booking moblima.controller with its entities kept in the given storage backend.
+     * @param backend The storage backend of the bookings.
+     */
+    public static void init(StorageBackend backend) {
+        instance = new BookingController(backend);
     }
 
     /**
@@ -70,7 +120,8 @@ public class BookingController extends EntityController<Booking> {
         Booking booking = new Booking(showtime);
 
         // Add booking to entities
-        entities.put(booking.getId(), booking);
+        getStore().put(booking);
+        journal(booking);
 
         return booking;
     }
@@ -84,7 +135,7 @@ public class BookingController extends EntityController<Booking> {
      * tickets to book, or if the ticket type is not available for this ticket type,
      * or if the booking is not in progress.
      */
-    public void selectTicketType(UUID bookingId, Hashtable<TicketType, Integer> ticketTypesCount)
+    public void selectTicketType(UUID bookingId, ConcurrentHashMap<TicketType, Integer> ticketTypesCount)
             throws IllegalActionException {
 
         ShowtimeController showtimeController = ShowtimeController.getInstance();
@@ -108,18 +159,22 @@ public class BookingController extends EntityController<Booking> {
             throw new IllegalActionException("Already reached maximum number of seats for booking");
 
         booking.setTicketTypesCount(ticketTypesCount);
+        journal(booking);
     }
 
     /**
      * Assign seats to tickets arbitrarily by the order of the selected ticket type when user selects seats.
      * This is to make sure the ticket contains the ticket type and seat information for validation when
-     * movie goers enters the cineplex.
+     * movie goers enters the cineplex. The seats are held for the booking until it is confirmed, cancelled
+     * or the hold expires, and the seats held for it before that are not selected again are released.
+     * If the seats cannot all be held, the seats held before stay held.
      * @param bookingId The ID of the booking whose tickets are assigned.
      * @param seats The seats to be assigned to the booking's tickets.
      * @throws IllegalActionException if the seats are not available for this showtime,
      * or if the number of seats is not the same as the number of selected ticket types,
      * or if the booking is not in progress,
-     * or if the seat is not found in this showtime.
+     * or if the seat is not found in this showtime,
+     * or if a seat is selected more than once.
      */
     public void selectSeats(UUID bookingId, List<Seat> seats) throws IllegalActionException {
 
@@ -134,26 +189,79 @@ public class BookingController extends EntityController<Booking> {
         if (seats.size() != totalTicketsCount)
             throw new IllegalActionException("The number of seats does not match the number of ticket types.");
 
-        // Check if all seats are available
-        for (Seat seat : seats)
-            if (!booking.getShowtime().getSeating().isAvailable(seat))
-                throw new IllegalActionException("Seat is unavailable");
-
-        booking.setSeats(seats);
+        // Check if a seat is selected more than once
+        if (new HashSet<>(seats).size() != seats.size())
+            throw new IllegalActionException("A seat is selected more than once.");
+
+        // Hold the new seats not held before at once, and only then release the seats held before that are
+        // no longer selected, so a failed selection leaves the seats held before untouched.
+        // The booking is locked, so its hold cannot expire halfway through.
+        // The showtime is locked, so its seating cannot be replaced by a change of cinema either.
+        SeatHolder seatHolder = SeatHolder.getInstance();
+        ReentrantLock showtimeLock = lockShowtime(booking.getShowtime());
+        try {
+            synchronized (booking) {
+                if (booking.getStatus() != BookingStatus.IN_PROGRESS)
+                    throw new IllegalActionException("The booking cannot be modified");
+                ShowtimeSeating seating = booking.getShowtime().getSeating();
+                List<Seat> heldSeats = seatHolder.isHolding(booking) ? booking.getSeats() : Collections.emptyList();
+                ArrayList<Seat> addedSeats = new ArrayList<>(seats);
+                addedSeats.removeAll(heldSeats);
+                if (!seating.claimSeats(addedSeats, SeatingStatus.AVAILABLE, SeatingStatus.HELD))
+                    throw new IllegalActionException("Seat is unavailable");
+                ArrayList<Seat> droppedSeats = new ArrayList<>(heldSeats);
+                droppedSeats.removeAll(seats);
+                seatHolder.release(booking);
+                seating.claimSeats(droppedSeats, SeatingStatus.HELD, SeatingStatus.AVAILABLE);
+                booking.setSeats(seats);
+                seatHolder.hold(booking);
+            }
+        } finally {
+            showtimeLock.unlock();
+        }
+        journal(booking);
     }
 
     /**
      * Cancels the booking with the given booking ID in the process of making a booking.
-     * A booking cannot be cancelled once confirmed.
+     * A booking cannot be cancelled once confirmed. The seats held for the booking are released.
      * @param bookingId The ID of the booking to be cancelled.
      * @exception IllegalActionException if the booking has been confirmed.
      */
     public void cancelBooking(UUID bookingId) throws IllegalActionException {
         Booking booking = findById(bookingId);
-        BookingStatus previousStatus = booking.getStatus();
-        if (previousStatus == BookingStatus.CONFIRMED)
-            throw new IllegalActionException("The booking can not be cancelled");
+        ReentrantLock showtimeLock = lockShowtime(booking.getShowtime());
+        try {
+            synchronized (booking) {
+                BookingStatus previousStatus = booking.getStatus();
+                if (previousStatus == BookingStatus.CONFIRMED)
+                    throw new IllegalActionException("The booking can not be cancelled");
+                if (SeatHolder.getInstance().release(booking))
+                    booking.getShowtime().getSeating().claimSeats(booking.getSeats(), SeatingStatus.HELD,
+                            SeatingStatus.AVAILABLE);
+                booking.setStatus(BookingStatus.CANCELLED);
+            }
+        } finally {
+            showtimeLock.unlock();
+        }
+        journal(booking);
+    }
+
+    /**
+     * Cancels a booking in progress whose seat hold has expired, releasing its seats.
+     * A booking that has not been paid for is removed altogether.
+     * The showtime and the booking are locked by the seat holder.
+     * @param booking The booking whose seat hold has expired.
+     */
+    void expireBooking(Booking booking) {
+        booking.getShowtime().getSeating().claimSeats(booking.getSeats(), SeatingStatus.HELD,
+                SeatingStatus.AVAILABLE);
         booking.setStatus(BookingStatus.CANCELLED);
+        if (booking.getPayment() == null) {
+            getStore().remove(booking.getId());
+            journalRemoval(booking);
+        } else
+            journal(booking);
     }
 
     /**
@@ -164,39 +272,306 @@ public class BookingController extends EntityController<Booking> {
      * @throws IllegalActionException if the movie is not open for booking,
      * or if the payment is not accepted,
      * or if the booking is not in progress previously,
+     * or if the seat hold of the booking has expired,
+     * or if any seat has been taken by another booking,
      * or if the seat is not found in this booing's showtime seating.
      */
     public void confirmBooking(UUID bookingId, UUID userId)
             throws IllegalActionException {
 
         UserController userController = UserController.getInstance();
+        ShowtimeController showtimeController = ShowtimeController.getInstance();
 
         Booking booking = findById(bookingId);
         Showtime showtime = booking.getShowtime();
+        User user = userController.findById(userId);
 
-        // Check whether showtime is open for booking
-        if (showtime.getStatus() != ShowtimeStatus.OPEN_BOOKING)
-            throw new IllegalActionException("Can only book when the movie is open for booking");
+        ShowtimeSeating seating;
+        ReentrantLock showtimeLock = lockShowtime(showtime);
+        try {
+            synchronized (booking) {
+                seating = showtime.getSeating();
+
+                // Check whether showtime is open for booking
+                if (showtime.getStatus() != ShowtimeStatus.OPEN_BOOKING)
+                    throw new IllegalActionException("Can only book when the movie is open for booking");
+
+                // Check if booking not in progress
+                BookingStatus previousStatus = booking.getStatus();
+                if (previousStatus != BookingStatus.IN_PROGRESS)
+                    throw new IllegalActionException("The booking can not be confirmed");
+
+                // Check whether payment is made
+                Payment payment = booking.getPayment();
+                if (payment == null || payment.getStatus() != PaymentStatus.ACCEPTED)
+                    throw new IllegalActionException("The payment is not accepted yet");
+
+                // End the hold before it can expire, then take all the held seats of the booking at once
+                if (!SeatHolder.getInstance().release(booking))
+                    throw new IllegalActionException("The seat hold has expired");
+                if (!seating.claimSeats(booking.getSeats(), SeatingStatus.HELD, SeatingStatus.TAKEN))
+                    throw new IllegalActionException("Seat is unavailable");
+                booking.setStatus(BookingStatus.CONFIRMED);
+                showtime.addBooking(booking);
+                synchronized (user) {
+                    user.addBooking(booking);
+                }
+            }
+        } finally {
+            showtimeLock.unlock();
+        }
+
+        // Confirmed bookings must survive a crash, so force the journal before returning,
+        // and undo the confirmation if it cannot be made durable
+        try {
+            seating.force();
+            journal(booking);
+            showtimeController.journal(showtime);
+            userController.journal(user);
+            syncJournal();
+        } catch (UncheckedIOException e) {
+            rollBackConfirmation(booking, user);
+            throw e;
+        }
+    }
 
-        // Check if booking not in progress
-        BookingStatus previousStatus = booking.getStatus();
-        if (previousStatus != BookingStatus.IN_PROGRESS)
-            throw new IllegalActionException("The booking can not be confirmed");
+    /**
+     * Undoes the confirmation of a booking that could not be made durable. The seats taken for the booking are
+     * held for it again and its payment is rejected and taken off it, so it can be paid for and confirmed again.
+     * The undoing is journaled if the journal can still be written to.
+     * @param booking The booking whose confirmation is undone.
+     * @param user The user the booking was confirmed for.
+     */
+    private void rollBackConfirmation(Booking booking, User user) {
+        Showtime showtime = booking.getShowtime();
+        Payment payment;
+        ReentrantLock showtimeLock = lockShowtime(showtime);
+        try {
+            synchronized (booking) {
+                showtime.getSeating().claimSeats(booking.getSeats(), SeatingStatus.TAKEN, SeatingStatus.HELD);
+                booking.setStatus(BookingStatus.IN_PROGRESS);
+                showtime.removeBooking(booking);
+                synchronized (user) {
+                    user.removeBooking(booking);
+                }
+                payment = booking.getPayment();
+                payment.setStatus(PaymentStatus.REJECTED);
+                booking.setPayment(null);
+                SeatHolder.getInstance().hold(booking);
+            }
+        } finally {
+            showtimeLock.unlock();
+        }
+        journalRollBack(Collections.singletonList(booking), payment, user);
+    }
 
-        // Check whether payment is made
-        Payment payment = booking.getPayment();
-        if (payment.getStatus() != PaymentStatus.ACCEPTED)
-            throw new IllegalActionException("The payment is not accepted yet");
+    /**
+     * Journals the bookings and payment of a confirmation that has been undone, as far as the journal can still
+     * be written to. The confirmation has already failed, so a failure here is only reported.
+     * @param bookings The bookings whose confirmation is undone.
+     * @param payment The payment that is rejected.
+     * @param user The user the bookings were confirmed for.
+     */
+    private void journalRollBack(List<Booking> bookings, Payment payment, User user) {
+        try {
+            for (Booking booking : bookings) {
+                journal(booking);
+                ShowtimeController.getInstance().journal(booking.getShowtime());
+            }
+            PaymentController.getInstance().journal(payment);
+            UserController.getInstance().journal(user);
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+        }
+    }
 
-        booking.setStatus(BookingStatus.CONFIRMED);
-        showtime.addBooking(booking);
+    /**
+     * Books several showtimes for a user at once, with a booking for each leg and a single payment for them all.
+     * Every leg is checked before anything is locked. The showtimes are then locked together in the order of
+     * their stripes, so group bookings never deadlock, and the seats of every leg are taken. If the seats of any
+     * leg are unavailable, the seats already taken are released and nothing is booked. The seat inventory and
+     * the journal are forced once for the whole group.
+     * @param userId The ID of the user who makes the group booking.
+     * @param legs The showtime, ticket types and seats of each booking.
+     * @return the confirmed group booking.
+     * @throws IllegalActionException if the user or a showtime is not found, or if there is no leg,
+     * or if a showtime is in more than one leg or is not open for booking,
+     * or if a ticket type is not available or a leg exceeds the maximum number of seats,
+     * or if the number of seats of a leg does not match its ticket types,
+     * or if any seat is unavailable or not found in its showtime seating.
+     */
+    public GroupBooking createGroupBooking(UUID userId, List<GroupBooking.Leg> legs)
+            throws IllegalActionException {
+
+        UserController userController = UserController.getInstance();
+        ShowtimeController showtimeController = ShowtimeController.getInstance();
 
         User user = userController.findById(userId);
-        user.addBooking(findById(bookingId));
+        if (user == null)
+            throw new IllegalActionException("User not found");
+        if (legs.isEmpty())
+            throw new IllegalActionException("A group booking needs at least one showtime");
+
+        // Check every leg and build its booking before anything is locked
+        ArrayList<Booking> bookings = new ArrayList<>(legs.size());
+        LinkedHashSet<UUID> showtimeIds = new LinkedHashSet<>();
+        for (GroupBooking.Leg leg : legs) {
+            Showtime showtime = showtimeController.findById(leg.getShowtimeId());
+            if (showtime == null)
+                throw new IllegalActionException("Showtime not found");
+            if (!showtimeIds.add(showtime.getId()))
+                throw new IllegalActionException("A showtime can only be booked once in a group booking");
+            if (showtime.getStatus() != ShowtimeStatus.OPEN_BOOKING)
+                throw new IllegalActionException("Can only book when the movie is open for booking");
+
+            List<TicketType> availableTicketTypes = showtimeController.getAvailableTicketTypes(showtime.getId());
+            int totalCount = 0;
+            for (Map.Entry<TicketType, Integer> ticketTypeCount : leg.getTicketTypesCount().entrySet()) {
+                if (!availableTicketTypes.contains(ticketTypeCount.getKey()))
+                    throw new IllegalActionException("Ticket type is not available");
+                totalCount += ticketTypeCount.getValue();
+            }
+            if (totalCount > BookingConfig.getMaxSeatsPerBooking())
+                throw new IllegalActionException("Already reached maximum number of seats for booking");
+            if (totalCount == 0 || leg.getSeats().size() != totalCount)
+                throw new IllegalActionException("The number of seats does not match the number of ticket types.");
+
+            Booking booking = new Booking(showtime);
+            booking.setTicketTypesCount(leg.getTicketTypesCount());
+            booking.setSeats(leg.getSeats());
+            bookings.add(booking);
+        }
+        GroupBooking groupBooking = new GroupBooking(bookings);
+
+        List<ReentrantLock> showtimeLocks = this.showtimeLocks.lockAll(showtimeIds);
+        try {
+            // Take the seats of every leg, releasing those already taken if any leg cannot be booked
+            int claimedCount = 0;
+            try {
+                for (Booking booking : bookings) {
+                    // Only a cancellation can have closed the booking of the showtime since it was checked
+                    Showtime showtime = booking.getShowtime();
+                    if (showtime.isCancelled())
+                        throw new IllegalActionException("Can only book when the movie is open for booking");
+                    if (!showtime.getSeating().claimSeats(booking.getSeats(), SeatingStatus.AVAILABLE,
+                            SeatingStatus.TAKEN))
+                        throw new IllegalActionException("Seat is unavailable for " + showtime.getMovie().getTitle()
+                                + " at " + Utilities.toFormat(showtime.getStartTime(), "dd/MM/yyyy HH:mm"));
+                    claimedCount++;
+                }
+            } catch (RuntimeException e) {
+                for (Booking booking : bookings.subList(0, claimedCount))
+                    booking.getShowtime().getSeating().claimSeats(booking.getSeats(), SeatingStatus.TAKEN,
+                            SeatingStatus.AVAILABLE);
+                throw e;
+            }
+
+            // Nothing can fail once all the seats are taken, so the group is paid for and confirmed as a whole
+            PaymentController.getInstance().makePayment(groupBooking);
+            for (Booking booking : bookings) {
+                booking.setStatus(BookingStatus.CONFIRMED);
+                booking.getShowtime().addBooking(booking);
+                getStore().put(booking);
+            }
+            synchronized (user) {
+                for (Booking booking : bookings)
+                    user.addBooking(booking);
+            }
+        } finally {
+            StripedLock.unlockAll(showtimeLocks);
+        }
+
+        // Confirmed bookings must survive a crash, so force the journal once for the whole group,
+        // and undo the group booking if it cannot be made durable
+        try {
+            bookings.get(0).getShowtime().getSeating().force();
+            for (Booking booking : bookings) {
+                journal(booking);
+                showtimeController.journal(booking.getShowtime());
+            }
+            userController.journal(user);
+            syncJournal();
+        } catch (UncheckedIOException e) {
+            rollBackGroupBooking(groupBooking, user);
+            throw e;
+        }
+        return groupBooking;
+    }
+
+    /**
+     * Undoes a group booking that could not be made durable. The seats taken for every leg are made available
+     * again, the bookings are cancelled and taken off their showtimes and the user, and the payment is rejected.
+     * @param groupBooking The group booking that is undone.
+     * @param user The user the group booking was made for.
+     */
+    private void rollBackGroupBooking(GroupBooking groupBooking, User user) {
+        List<Booking> bookings = groupBooking.getBookings();
+        LinkedHashSet<UUID> showtimeIds = new LinkedHashSet<>();
+        for (Booking booking : bookings)
+            showtimeIds.add(booking.getShowtime().getId());
+        List<ReentrantLock> showtimeLocks = this.showtimeLocks.lockAll(showtimeIds);
+        try {
+            for (Booking booking : bookings) {
+                Showtime showtime = booking.getShowtime();
+                showtime.getSeating().claimSeats(booking.getSeats(), SeatingStatus.TAKEN, SeatingStatus.AVAILABLE);
+                booking.setStatus(BookingStatus.CANCELLED);
+                showtime.removeBooking(booking);
+            }
+            synchronized (user) {
+                for (Booking booking : bookings)
+                    user.removeBooking(booking);
+            }
+            groupBooking.getPayment().setStatus(PaymentStatus.REJECTED);
+        } finally {
+            StripedLock.unlockAll(showtimeLocks);
+        }
+        journalRollBack(bookings, groupBooking.getPayment(), user);
+    }
 
-        // Mark all seats for the booking as taken
-        ShowtimeSeating seating = showtime.getSeating();
-        for (Seat seat : booking.getSeats())
-            seating.setSeatingStatus(seat, SeatingStatus.TAKEN);
+    /**
+     * Confirms a booking once for a request key. A retry with the same key gets the booking confirmed the first
+     * time without it being confirmed again, and waits for it if the first attempt is still running.
+     * A confirmation that fails is not remembered, so it can be retried with the same key.
+     * @param bookingId The ID of the booking to be confirmed.
+     * @param userId The ID of the user who will be assigned the booking.
+     * @param requestKey The key that identifies the request across its retries.
+     * @return the booking confirmed with the request key.
+     * @throws IllegalActionException if the booking cannot be confirmed,
+     * or if the request key has been used to confirm another booking.
+     */
+    public Booking confirmBooking(UUID bookingId, UUID userId, String requestKey) throws IllegalActionException {
+        Booking booking = confirmRequests.execute(requestKey, () -> {
+            confirmBooking(bookingId, userId);
+            return findById(bookingId);
+        });
+        if (!booking.getId().equals(bookingId))
+            throw new IllegalActionException("The request key has already been used for another booking");
+        return booking;
+    }
+
+    /**
+     * Gets the number of confirmations retried with a request key that were not made again.
+     * @return the number of confirmation retries answered with the first confirmation.
+     */
+    public long getReplayedConfirmationCount() {
+        return confirmRequests.getReplayCount();
+    }
+
+    /**
+     * Locks the bookings of a showtime. This is the first lock taken by any change to a booking.
+     * @param showtime The showtime whose bookings are locked.
+     * @return the lock that was acquired, to be unlocked by the caller.
+     */
+    ReentrantLock lockShowtime(Showtime showtime) {
+        return showtimeLocks.lock(showtime.getId());
+    }
+
+    /**
+     * Gets the stripes of the showtime locks that bookings have waited for, the most waited for first.
+     * @param limit The maximum number of stripes to be returned.
+     * @return the contended stripes, each with the ID of the last showtime waited for.
+     */
+    public List<StripedLock.Stripe> getContendedShowtimeStripes(int limit) {
+        return showtimeLocks.getContendedStripes(limit);
     }
 }
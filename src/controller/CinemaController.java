@@ -3,20 +3,27 @@ package controller;
 import config.BookingConfig;
 import exception.UninitialisedSingletonException;
 import model.booking.Showtime;
-import model.booking.ShowtimeStatus;
 import model.cineplex.Cinema;
 import model.cineplex.CinemaLayout;
 import model.cineplex.CinemaType;
 import model.cineplex.Cineplex;
-import util.Utilities;
+import persistence.CinemaCodec;
+import persistence.StorageBackend;
+import util.IntervalIndex;
 
-import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  Represents the moblima.controller of cinemas.
+ The showtimes of each cinema that are not cancelled are kept in an interval index of the time their movie is
+ shown, built from the showtimes of its cineplex when first needed and updated as showtimes are created,
+ changed and cancelled. The buffer after each showtime is added when the index is looked up, so a change to the
+ booking configuration applies at once. The showtimes that ended before the buffer preceding the present are
+ dropped from the index, so it only holds the current schedule however long the history grows, and times
+ reaching back before that are checked against every showtime of the cinema instead.
  @version 1.0
  @since 2017-10-20
  */
@@ -27,18 +34,33 @@ public class CinemaController extends EntityController<Cinema> {
      */
     private static CinemaController instance;
 
+    /**
+     * A concurrent hash map with the ID of each cinema as the key and the interval index of its showtimes as the value.
+     */
+    private ConcurrentHashMap<UUID, IntervalIndex<Showtime>> schedules;
+
     /**
      * Creates the cineplex moblima.controller.
+     * @param backend The storage backend of the entities.
      */
-    private CinemaController() {
-        super();
+    private CinemaController(StorageBackend backend) {
+        super(new CinemaCodec(), backend);
+        this.schedules = new ConcurrentHashMap<>();
     }
 
     /**
      * Initialize the cineplex moblima.controller.
      */
     public static void init() {
-        instance = new CinemaController();
+        init(StorageBackend.MEMORY);
+    }
+
+    /**
+     * Initialize the cinema moblima.controller with its entities kept in the given storage backend.
+     * @param backend The storage backend of the cinemas.
+     */
+    public static void init(StorageBackend backend) {
+        instance = new CinemaController(backend);
     }
 
     /**
@@ -67,24 +89,134 @@ public class CinemaController extends EntityController<Cinema> {
         Cinema cinema = new Cinema(code, type, layout);
 
         cineplex.addCinema(cinema);
-        entities.put(cinema.getId(), cinema);
+        getStore().put(cinema);
+        journal(cinema);
+        cineplexController.journal(cineplex);
         return cinema;
     }
 
     public boolean isAvaiableOn(UUID cineplexId, UUID cinemaId, Date startTime, Date endTime) {
+        return isAvaiableOn(cineplexId, cinemaId, startTime, endTime, null);
+    }
 
-        ShowtimeController showtimeController = ShowtimeController.getInstance();
-        List<Showtime> cinemaShowtime = showtimeController.findByCineplexAndCinema(cineplexId, cinemaId);
+    /**
+     * Checks whether a cinema has no showtime between the given times, other than the showtime being changed.
+     * @param cineplexId The ID of the cineplex of the cinema.
+     * @param cinemaId The ID of the cinema.
+     * @param startTime The start of the times to be checked.
+     * @param endTime The end of the times to be checked.
+     * @param excludedShowtimeId The ID of the showtime being changed, or null if none is.
+     * @return true if no other showtime that is not cancelled overlaps the given times.
+     */
+    public boolean isAvaiableOn(UUID cineplexId, UUID cinemaId, Date startTime, Date endTime,
+                                UUID excludedShowtimeId) {
 
-        for (Showtime showtime : cinemaShowtime) {
-            if (showtime.getStatus() != ShowtimeStatus.CANCELLED) {
-                Date showtimeEndTime = Utilities.getDateAfter(showtime.getStartTime(), Calendar.MINUTE,
-                        showtime.getMovie().getRuntimeMinutes() + BookingConfig.getBufferMinutesAfterShowtime());
-                if (Utilities.overlaps(showtime.getStartTime(), showtimeEndTime, startTime, endTime))
-                    return false;
-            }
+        Cineplex cineplex = CineplexController.getInstance().findById(cineplexId);
+        Showtime excludedShowtime = excludedShowtimeId == null ? null :
+                ShowtimeController.getInstance().findById(excludedShowtimeId);
+
+        // A showtime overlaps if its movie ends within the buffer before the start of the given times
+        long bufferMillis = TimeUnit.MINUTES.toMillis(BookingConfig.getBufferMinutesAfterShowtime());
+        long startMillis = startTime.getTime() - bufferMillis;
+        IntervalIndex<Showtime> schedule = getSchedule(cineplex, cinemaId);
+        if (startMillis < schedule.getHorizon())
+            return !overlapsAny(cineplex, cinemaId, startMillis, endTime.getTime(), excludedShowtime);
+        return !schedule.overlaps(startMillis, endTime.getTime(), excludedShowtime);
+    }
+
+    /**
+     * Checks whether any showtime of a cinema that is not cancelled overlaps the given times, going through all
+     * the showtimes of its cineplex. This is used for times before the showtimes kept in the index of the cinema.
+     * @param cineplex The cineplex of the cinema.
+     * @param cinemaId The ID of the cinema.
+     * @param startMillis The start of the times to be checked.
+     * @param endMillis The end of the times to be checked.
+     * @param excludedShowtime The showtime being changed, or null if none is.
+     * @return true if another showtime overlaps the given times.
+     */
+    private static boolean overlapsAny(Cineplex cineplex, UUID cinemaId, long startMillis, long endMillis,
+                                       Showtime excludedShowtime) {
+        for (Showtime showtime : cineplex.getShowtimes()) {
+            if (showtime == excludedShowtime || showtime.isCancelled() ||
+                    !showtime.getCinema().getId().equals(cinemaId))
+                continue;
+            if (showtime.getStartTime().getTime() <= endMillis && getEndMillis(showtime) >= startMillis)
+                return true;
         }
+        return false;
+    }
+
+    /**
+     * Puts a showtime in the interval index of its cinema at its current start time and movie runtime,
+     * replacing where it was before, unless it ended before the horizon of the index.
+     * @param showtime The showtime that is created or changed.
+     */
+    public void schedule(Showtime showtime) {
+        IntervalIndex<Showtime> schedule = getSchedule(showtime.getCineplex(), showtime.getCinema().getId());
+        schedule.removeEndingBefore(getHorizon());
+        if (getEndMillis(showtime) >= schedule.getHorizon())
+            put(schedule, showtime);
+        else
+            schedule.remove(showtime);
+    }
+
+    /**
+     * Removes a showtime from the interval index of a cinema.
+     * @param showtime The showtime that is cancelled or moved to another cinema.
+     * @param cinema The cinema the showtime was in.
+     */
+    public void unschedule(Showtime showtime, Cinema cinema) {
+        IntervalIndex<Showtime> schedule = schedules.get(cinema.getId());
+        if (schedule != null)
+            schedule.remove(showtime);
+    }
 
-        return true;
+    /**
+     * Gets the interval index of the showtimes of a cinema, building it from the showtimes of its cineplex
+     * that are not cancelled and have not ended before the horizon if it has not been built.
+     * @param cineplex The cineplex of the cinema.
+     * @param cinemaId The ID of the cinema.
+     * @return the interval index of the times the movies of the showtimes of the cinema are shown.
+     */
+    private IntervalIndex<Showtime> getSchedule(Cineplex cineplex, UUID cinemaId) {
+        IntervalIndex<Showtime> schedule = schedules.get(cinemaId);
+        if (schedule != null)
+            return schedule;
+        return schedules.computeIfAbsent(cinemaId, id -> {
+            IntervalIndex<Showtime> cinemaSchedule = new IntervalIndex<>();
+            cinemaSchedule.removeEndingBefore(getHorizon());
+            for (Showtime showtime : cineplex.getShowtimes())
+                if (showtime.getCinema().getId().equals(id) && !showtime.isCancelled() &&
+                        getEndMillis(showtime) >= cinemaSchedule.getHorizon())
+                    put(cinemaSchedule, showtime);
+            return cinemaSchedule;
+        });
+    }
+
+    /**
+     * Gets the time before which the showtimes that end are dropped from the interval indexes, which is the
+     * buffer after a showtime before the present, so that no showtime starting from now on can overlap them.
+     * @return the horizon of the interval indexes in milliseconds.
+     */
+    private static long getHorizon() {
+        return System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(BookingConfig.getBufferMinutesAfterShowtime());
+    }
+
+    /**
+     * Gets the time a showtime ends, when its movie ends.
+     * @param showtime The showtime.
+     * @return the end of the showtime in milliseconds.
+     */
+    private static long getEndMillis(Showtime showtime) {
+        return showtime.getStartTime().getTime() + TimeUnit.MINUTES.toMillis(showtime.getMovie().getRuntimeMinutes());
+    }
+
+    /**
+     * Puts a showtime in an interval index from its start time to the end of its movie.
+     * @param schedule The interval index of the showtimes of a cinema.
+     * @param showtime The showtime.
+     */
+    private static void put(IntervalIndex<Showtime> schedule, Showtime showtime) {
+        schedule.put(showtime, showtime.getStartTime().getTime(), getEndMillis(showtime));
     }
 }
@@ -2,6 +2,8 @@ package controller;
 
 import exception.UninitialisedSingletonException;
 import model.cineplex.Cineplex;
+import persistence.CineplexCodec;
+import persistence.StorageBackend;
 /**
  Represents the moblima.controller of cineplexes.
  @version 1.0
@@ -16,16 +18,25 @@ public class CineplexController extends EntityController<Cineplex> {
 
     /**
      * Creates the cineplex moblima.controller.
+     * @param backend The storage backend of the entities.
      */
-    private CineplexController() {
-        super();
+    private CineplexController(StorageBackend backend) {
+        super(new CineplexCodec(), backend);
     }
 
     /**
      * Initialize the cineplex moblima.controller.
      */
     public static void init() {
-        instance = new CineplexController();
+        init(StorageBackend.MEMORY);
+    }
+
+    /**
+     * Initialize the cineplex moblima.controller with its entities kept in the given storage backend.
+     * @param backend The storage backend of the cineplexs.
+     */
+    public static void init(StorageBackend backend) {
+        instance = new CineplexController(backend);
     }
 
     /**
@@ -46,7 +57,8 @@ public class CineplexController extends EntityController<Cineplex> {
      */
     public Cineplex createCineplex(String name, String address) {
         Cineplex cineplex = new Cineplex(name, address);
-        entities.put(cineplex.getId(), cineplex);
+        getStore().put(cineplex);
+        journal(cineplex);
         return cineplex;
     }
 }
@@ -1,13 +1,31 @@
 package controller;
 
 import model.commons.Entity;
+import persistence.Compression;
+import persistence.CorruptSegmentException;
+import persistence.EntityCodec;
+import persistence.EntityInput;
+import persistence.EntityJournal;
+import persistence.EntityOutput;
+import persistence.EntityStore;
+import persistence.MemoryEntityStore;
+import persistence.SchemaMigrator;
+import persistence.SnapshotFile;
+import persistence.StorageBackend;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  Represents the base class of the entity controllers.
@@ -22,20 +40,79 @@ public abstract class EntityController<T extends Entity> {
     public static final String DAT_FILENAME = "moblima.dat";
 
     /**
-     * The array list of entity controllers.
+     * The name of the journal file recording the mutations since the data file was saved.
      */
-    private static ArrayList<EntityController> controllers = new ArrayList<>();
+    public static final String JOURNAL_FILENAME = "moblima.journal";
 
     /**
-     * A hash table with the UUID of the entity as the key and the entity as the value.
+     * The name of the seat inventory file holding the statuses of the seats of every showtime.
      */
-    protected Hashtable<UUID, T> entities;
+    public static final String SEATS_FILENAME = "moblima.seats";
 
     /**
-     * Creates the entity moblima.controller, initializing a hash table for the entity and its UUID.
+     * The maximum number of entities in a segment, so that the entities of one controller are decoded in parallel.
      */
-    protected EntityController() {
-        this.entities = new Hashtable<>();
+    private static final int SEGMENT_SIZE = 4096;
+
+    /**
+     * The copy-on-write list of entity controllers.
+     */
+    private static CopyOnWriteArrayList<EntityController> controllers = new CopyOnWriteArrayList<>();
+
+    /**
+     * The journal that every mutation is appended to, or null if no journal is opened.
+     */
+    private static EntityJournal journal;
+
+    /**
+     * The controllers being loaded together by the load in progress, which are only published once it completes.
+     */
+    private static final ArrayList<EntityController<?>> loadingControllers = new ArrayList<>();
+
+    /**
+     * The lock held while the data is saved, so that only one snapshot is taken at a time.
+     */
+    private static final Object snapshotLock = new Object();
+
+    /**
+     * The number of times a segment is written before giving up when its entities keep changing.
+     */
+    private static final int SEGMENT_ATTEMPTS = 3;
+
+    /**
+     * The name prefix of the files of the durable stores.
+     */
+    private static final String STORE_FILENAME_PREFIX = "moblima.";
+
+    /**
+     * The store that holds the entities of this controller.
+     */
+    private EntityStore<T> store;
+
+    /**
+     * The codec that writes and reads the entities of this controller.
+     */
+    private EntityCodec<T> codec;
+
+    /**
+     * The entities of this controller that are still to be loaded, or null if they are loaded.
+     */
+    private volatile PendingLoad pendingLoad;
+
+    /**
+     * Creates the entity moblima.controller, opening the store of the given backend for its entities.
+     * @param codec The codec that writes and reads the entities of this controller.
+     * @param backend The backend of the store that holds the entities of this controller.
+     * @throws UncheckedIOException if the store cannot be opened.
+     */
+    protected EntityController(EntityCodec<T> codec, StorageBackend backend) {
+        this.codec = codec;
+        try {
+            this.store = backend.open(STORE_FILENAME_PREFIX + getClass().getSimpleName(), codec,
+                    EntityController::findManaged);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the store of " + getClass().getSimpleName(), e);
+        }
         controllers.add(this);
     }
 
@@ -45,7 +122,7 @@ public abstract class EntityController<T extends Entity> {
      * @return the entity of this UUID.
      */
     public T findById(UUID id) {
-        return entities.get(id);
+        return getStore().get(id);
     }
 
     /**
@@ -53,40 +130,481 @@ public abstract class EntityController<T extends Entity> {
      * @return the list of the entities.
      */
     public ArrayList<T> getList() {
-        return new ArrayList<>(entities.values());
+        ArrayList<T> list = new ArrayList<>();
+        for (T entity : getStore().scan())
+            list.add(entity);
+        return list;
     }
 
     /**
-     * Save the data.
-     * @param objectOutputStream The object to be saved.
-     * @throws IOException if the file is not found.
+     * Gets the store of the entities, loading them from the snapshot on first access.
+     * @return the store that holds the entities of this controller.
      */
-    public static void save(ObjectOutputStream objectOutputStream) throws IOException {
-        for (EntityController controller : controllers)
-            objectOutputStream.writeObject(controller.entities);
-        objectOutputStream.close();
+    protected EntityStore<T> getStore() {
+        if (pendingLoad != null)
+            loadPending();
+        return store;
     }
 
     /**
-     * Loads the data.
-     * @param objectInputStream The data to be loaded.
-     * @throws IOException if the file is not found.
-     * @throws ClassNotFoundException if the class is not found.
+     * Save the data. The entities of each controller are written to segments of at most
+     * a fixed number of entities each, as flat records referring to each other by ID.
+     * Controllers with a durable store persist their entities by themselves and are left out.
+     * <p>
+     * The data may be saved while other threads change the entities. The journal is rotated before any entity
+     * is written, so every change that the snapshot may have missed or caught halfway is journaled after the
+     * rotation and replayed on top of the snapshot. The rotated journal is only discarded once the new data
+     * file has replaced the old one.
+     * @param filename The name of the file the data is to be saved to.
+     * @param compression The compression the segments are streamed through.
+     * @return the size of the saved file in bytes.
+     * @throws IOException if the file cannot be written.
+     */
+    public static long save(String filename, Compression compression) throws IOException {
+        synchronized (snapshotLock) {
+            if (journal != null)
+                journal.rotate();
+            LinkedHashMap<String, byte[]> segments = new LinkedHashMap<>();
+            HashMap<String, Integer> schemaVersions = new HashMap<>();
+            for (EntityController<?> controller : controllers)
+                controller.saveSegments(segments, schemaVersions, compression);
+            long size = SnapshotFile.write(filename, compression, segments, schemaVersions);
+            if (journal != null)
+                journal.discardRotated();
+            return size;
+        }
+    }
+
+    /**
+     * Upgrades the data file in place so that every segment is in the schema version of its controller's codec.
+     * The segments are migrated one at a time, so upgrading takes memory for a single segment only.
+     * Data that is not upgraded is still migrated in memory every time it is loaded.
+     * @param filename The name of the data file.
+     * @return the number of segments migrated, which is zero if the file is missing or already up to date.
+     * @throws StreamCorruptedException if the file is not in a known data format or cannot be migrated.
+     * @throws IOException if the file cannot be upgraded.
      */
-    public static void load(ObjectInputStream objectInputStream) throws IOException, ClassNotFoundException {
-        for (EntityController controller : controllers)
-            controller.loadEntities(objectInputStream);
-        objectInputStream.close();
+    public static int upgrade(String filename) throws IOException {
+        HashMap<String, EntityCodec<?>> codecs = new HashMap<>();
+        for (EntityController<?> controller : controllers)
+            codecs.put(controller.getClass().getSimpleName(), controller.codec);
+        return SchemaMigrator.upgrade(filename, codecs);
     }
 
     /**
-     * Loads the entity form the data.
-     * @param objectInputStream The entities to be loaded.
+     * Loads the data. Every segment is read and verified here, but the entities of a controller are only decoded
+     * when it is first accessed, along with the controllers its entities refer to.
+     * @param filename The name of the file the data is to be loaded from.
      * @throws IOException if the file is not found.
-     * @throws ClassNotFoundException if the class is not found.
+     * @throws CorruptSegmentException if a segment of the file does not match its checksum.
+     * @throws StreamCorruptedException if the file is not in a known data format.
+     */
+    public static void load(String filename) throws IOException {
+        SnapshotFile snapshot = new SnapshotFile(filename);
+        for (EntityController<?> controller : controllers) {
+            controller.clearMemoryStore();
+            ArrayList<String> segmentNames = new ArrayList<>();
+            for (String name : snapshot.getSegmentNames())
+                if (name.substring(0, name.lastIndexOf('.')).equals(controller.getClass().getSimpleName()))
+                    segmentNames.add(name);
+            controller.pendingLoad = new PendingLoad(snapshot, segmentNames);
+        }
+    }
+
+    /**
+     * Replaces the store of this controller with an empty one, unless it is durable.
+     */
+    private void clearMemoryStore() {
+        if (!store.isDurable())
+            store = new MemoryEntityStore<>();
+    }
+
+    /**
+     * Saves the entities of this controller.
+     * @param segments The linked hash map the segments of this controller are to be added to.
+     * @param schemaVersions The hash map the schema version of each segment is to be added to.
+     * @param compression The compression the segments are streamed through.
+     * @throws IOException if the entities cannot be written.
+     */
+    private void saveSegments(LinkedHashMap<String, byte[]> segments, HashMap<String, Integer> schemaVersions,
+                              Compression compression) throws IOException {
+        if (store.isDurable())
+            return;
+        ArrayList<T> list = getList();
+        for (int start = 0; start < list.size(); start += SEGMENT_SIZE) {
+            List<T> segment = list.subList(start, Math.min(start + SEGMENT_SIZE, list.size()));
+            String name = getClass().getSimpleName() + "." + start / SEGMENT_SIZE;
+            segments.put(name, saveSegment(segment, compression));
+            schemaVersions.put(name, codec.getSchemaVersion());
+        }
+    }
+
+    /**
+     * Saves a segment of the entities of this controller. An entity that is changed while it is
+     * being written fails fast, in which case the whole segment is written again.
+     * @param segment The entities of the segment.
+     * @param compression The compression the segment is streamed through.
+     * @return the bytes of the segment.
+     * @throws IOException if the entities cannot be written.
+     */
+    private byte[] saveSegment(List<T> segment, Compression compression) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+                EntityOutput out = new EntityOutput(compression.compress(byteArrayOutputStream));
+                out.writeVarInt(segment.size());
+                for (T entity : segment)
+                    codec.write(entity, out);
+                out.close();
+                return byteArrayOutputStream.toByteArray();
+            } catch (ConcurrentModificationException e) {
+                if (attempt == SEGMENT_ATTEMPTS)
+                    throw e;
+            }
+        }
+    }
+
+    /**
+     * Decodes a segment into the entities of this controller, migrating it first if it was written
+     * in an older schema version.
+     * @param snapshot The snapshot file the segment is read from.
+     * @param name The name of the segment.
+     * @return the entity input holding the references of the segment that are still to be resolved.
+     * @throws UncheckedIOException if the segment cannot be read, migrated or decoded.
+     */
+    private EntityInput decodeSegment(SnapshotFile snapshot, String name) {
+        Compression compression = snapshot.getCompression();
+        byte[] segment;
+        try {
+            segment = snapshot.getSegment(name);
+            int schemaVersion = snapshot.getSchemaVersion(name);
+            if (schemaVersion != codec.getSchemaVersion())
+                segment = SchemaMigrator.migrateSegment(codec, schemaVersion, segment, compression);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to migrate segment " + name, e);
+        }
+        try (EntityInput in = new EntityInput(compression.decompress(new ByteArrayInputStream(segment)))) {
+            int size = in.readVarInt();
+            for (int i = 0; i < size; i++) {
+                T entity = codec.read(in);
+                store.put(entity);
+                // A durable store has encoded the entity before its references were resolved
+                if (store.isDurable())
+                    in.addFixUp(() -> store.put(entity));
+            }
+            return in;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to decode segment " + name, e);
+        }
+    }
+
+    /**
+     * Loads the entities of this controller from its segments of the snapshot and applies the journal records
+     * held back for them. The segments are decoded in parallel and the records are read on top of them before
+     * any reference is resolved, so every entity of this controller is in its store by then. Resolving the
+     * references then loads the controllers they refer to in turn, and a controller referred back to while
+     * it is loaded hands out its entities as they are. None of the controllers loaded together are published
+     * until all of them are loaded, so another thread waits for them rather than seeing them half resolved.
+     * @throws UncheckedIOException if a segment or a record cannot be decoded.
      */
-    @SuppressWarnings("unchecked")
-    private void loadEntities(ObjectInputStream objectInputStream) throws IOException, ClassNotFoundException {
-        entities = (Hashtable<UUID, T>) objectInputStream.readObject();
+    private void loadPending() {
+        synchronized (EntityController.class) {
+            PendingLoad pending = pendingLoad;
+            if (pending == null || pending.started)
+                return;
+            pending.started = true;
+            boolean outermost = loadingControllers.isEmpty();
+            loadingControllers.add(this);
+            try {
+                ForkJoinPool pool = ForkJoinPool.commonPool();
+                ArrayList<ForkJoinTask<EntityInput>> decodings = new ArrayList<>(pending.segmentNames.size());
+                for (String name : pending.segmentNames)
+                    decodings.add(pool.submit(() -> decodeSegment(pending.snapshot, name)));
+
+                ArrayList<EntityInput> inputs = new ArrayList<>(decodings.size() + pending.records.size());
+                for (ForkJoinTask<EntityInput> decoding : decodings)
+                    inputs.add(decoding.join());
+                for (Map.Entry<UUID, JournalRecord> entry : pending.records.entrySet()) {
+                    JournalRecord record = entry.getValue();
+                    EntityInput in = readRecord(record.operation, entry.getKey(), record.payload,
+                            record.schemaVersion);
+                    if (in != null)
+                        inputs.add(in);
+                }
+
+                // The fix-ups of the records are applied after those of the segments they are read on top of
+                for (EntityInput in : inputs)
+                    in.resolve(EntityController::findManaged);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to replay the journal of " + getClass().getSimpleName(), e);
+            } finally {
+                if (outermost) {
+                    for (EntityController<?> controller : loadingControllers)
+                        controller.pendingLoad = null;
+                    loadingControllers.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays the journal with the given file name on top of the loaded data, after the rotated journal
+     * left by a snapshot that did not complete, if any, and opens it to record all further mutations.
+     * @param filename The name of the journal file.
+     * @throws IOException if the journal cannot be read or opened.
+     */
+    public static void recover(String filename) throws IOException {
+        replayJournal(EntityJournal.getRotatedFilename(filename));
+        replayJournal(filename);
+        int[] schemaVersions = new int[controllers.size()];
+        for (int i = 0; i < schemaVersions.length; i++)
+            schemaVersions[i] = controllers.get(i).codec.getSchemaVersion();
+        journal = new EntityJournal(filename, schemaVersions);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            syncStores();
+        }));
+    }
+
+    /**
+     * Replays the journal with the given file name. Records journaled before the schema versions of
+     * a journal were recorded are in the base schema version.
+     * @param filename The name of the journal file.
+     * @throws IOException if the journal cannot be read.
+     */
+    private static void replayJournal(String filename) throws IOException {
+        int[] schemaVersions = new int[controllers.size()];
+        Arrays.fill(schemaVersions, EntityCodec.BASE_SCHEMA_VERSION);
+        EntityJournal.replay(filename, (operation, controllerIndex, id, payload) -> {
+            if (operation == EntityJournal.Operation.SCHEMA)
+                schemaVersions[controllerIndex] = ByteBuffer.wrap(payload).getInt();
+            else
+                controllers.get(controllerIndex).replay(operation, id, payload, schemaVersions[controllerIndex]);
+        });
+    }
+
+    /**
+     * Appends the current state of an entity managed by this controller to the journal.
+     * A durable store writes the entity again instead.
+     * @param entity The entity that has been created or changed.
+     * @throws UncheckedIOException if the entity cannot be journaled, so the change is not durable.
+     */
+    protected void journal(T entity) {
+        if (store.isDurable()) {
+            store.put(entity);
+            return;
+        }
+        if (journal == null)
+            return;
+        try {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            EntityOutput out = new EntityOutput(byteArrayOutputStream);
+            codec.write(entity, out);
+            out.close();
+            journal.append(EntityJournal.Operation.PUT, controllers.indexOf(this), entity.getId(),
+                    byteArrayOutputStream.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to journal " + entity.getId(), e);
+        }
+    }
+
+    /**
+     * Appends the removal of an entity managed by this controller to the journal.
+     * A durable store has already persisted the removal.
+     * @param entity The entity that has been removed.
+     * @throws UncheckedIOException if the removal cannot be journaled, so it is not durable.
+     */
+    protected void journalRemoval(T entity) {
+        if (journal == null || store.isDurable())
+            return;
+        try {
+            journal.append(EntityJournal.Operation.REMOVE, controllers.indexOf(this), entity.getId(), new byte[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to journal the removal of " + entity.getId(), e);
+        }
+    }
+
+    /**
+     * Forces all journaled mutations and the entities of the durable stores to disk before returning.
+     * @throws UncheckedIOException if anything cannot be forced to disk, so the mutations may not be durable.
+     */
+    protected static void syncJournal() {
+        syncStores();
+        if (journal == null)
+            return;
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to force the journal to disk", e);
+        }
+    }
+
+    /**
+     * Forces the entities of the durable stores to disk.
+     * @throws UncheckedIOException if the entities of a store cannot be forced to disk.
+     */
+    private static void syncStores() {
+        for (EntityController<?> controller : controllers) {
+            if (!controller.store.isDurable())
+                continue;
+            try {
+                controller.store.sync();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to force the store of " +
+                        controller.getClass().getSimpleName() + " to disk", e);
+            }
+        }
+    }
+
+    /**
+     * Applies a journal record to the entities of this controller. The records of a controller whose entities are
+     * still to be loaded are held back until they are, keeping only the last record of each entity, so replaying
+     * the journal does not load any entity.
+     * @param operation The operation of the record.
+     * @param id The ID of the entity.
+     * @param payload The serialized entity.
+     * @param schemaVersion The schema version the entity was serialized in.
+     * @throws IOException if the entity cannot be migrated or read.
+     */
+    private void replay(EntityJournal.Operation operation, UUID id, byte[] payload, int schemaVersion)
+            throws IOException {
+        synchronized (EntityController.class) {
+            PendingLoad pending = pendingLoad;
+            if (pending != null) {
+                pending.records.remove(id);
+                pending.records.put(id, new JournalRecord(operation, payload, schemaVersion));
+                return;
+            }
+        }
+        EntityInput in = readRecord(operation, id, payload, schemaVersion);
+        if (in != null)
+            in.resolve(EntityController::findManaged);
+    }
+
+    /**
+     * Reads a journal record into the store of this controller. The record of an existing entity is read into
+     * it by the codec, so that every other entity referring to it sees the journaled state while the state it
+     * derives in memory is kept. Records of a controller whose entities were journaled before it was given
+     * a durable store are moved into that store.
+     * @param operation The operation of the record.
+     * @param id The ID of the entity.
+     * @param payload The serialized entity.
+     * @param schemaVersion The schema version the entity was serialized in.
+     * @return the entity input holding the references of the record that are still to be resolved,
+     * or null if the record removes the entity.
+     * @throws IOException if the entity cannot be migrated or read.
+     */
+    private EntityInput readRecord(EntityJournal.Operation operation, UUID id, byte[] payload, int schemaVersion)
+            throws IOException {
+        if (operation == EntityJournal.Operation.REMOVE) {
+            store.remove(id);
+            return null;
+        }
+        if (schemaVersion != codec.getSchemaVersion())
+            payload = SchemaMigrator.migrateRecord(codec, schemaVersion, payload);
+        EntityInput in = new EntityInput(new ByteArrayInputStream(payload));
+        T existing = store.get(id);
+        T entity;
+        if (existing == null) {
+            entity = codec.read(in);
+            store.put(entity);
+        } else {
+            entity = existing;
+            codec.readInto(entity, in);
+        }
+        // A durable store encodes the entity with its references, so it is only written once they are resolved
+        if (store.isDurable())
+            in.addFixUp(() -> store.put(entity));
+        return in;
+    }
+
+    /**
+     * Finds the entity of a given type and UUID from the controller that manages that type,
+     * loading the entities of that controller first if they are still to be loaded.
+     * @param type The type of the entity to be searched for.
+     * @param id The UUID of the entity to be searched for.
+     * @return the entity of this UUID, or null if no controller manages it.
+     */
+    private static Entity findManaged(Class<? extends Entity> type, UUID id) {
+        for (EntityController<?> controller : controllers)
+            if (controller.codec.getEntityType().isAssignableFrom(type))
+                return controller.getStore().get(id);
+        return null;
+    }
+
+    /**
+     * Represents the entities of a controller that are still to be loaded, from its segments of a snapshot and
+     * the journal records replayed on top of them.
+     */
+    private static class PendingLoad {
+
+        /**
+         * The snapshot the segments are read from.
+         */
+        private SnapshotFile snapshot;
+
+        /**
+         * The names of the segments of the controller.
+         */
+        private ArrayList<String> segmentNames;
+
+        /**
+         * A linked hash map with the ID of each entity as the key and the last journal record of the entity
+         * as the value, in the order the records were last journaled.
+         */
+        private LinkedHashMap<UUID, JournalRecord> records;
+
+        /**
+         * Whether the entities have started being loaded.
+         */
+        private boolean started;
+
+        /**
+         * Creates the pending load of the segments of a controller.
+         * @param snapshot The snapshot the segments are read from.
+         * @param segmentNames The names of the segments of the controller.
+         */
+        private PendingLoad(SnapshotFile snapshot, ArrayList<String> segmentNames) {
+            this.snapshot = snapshot;
+            this.segmentNames = segmentNames;
+            this.records = new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Represents a journal record held back until the entities of its controller are loaded.
+     */
+    private static class JournalRecord {
+
+        /**
+         * The operation of the record.
+         */
+        private EntityJournal.Operation operation;
+
+        /**
+         * The serialized entity.
+         */
+        private byte[] payload;
+
+        /**
+         * The schema version the entity was serialized in.
+         */
+        private int schemaVersion;
+
+        /**
+         * Creates a journal record.
+         * @param operation The operation of the record.
+         * @param payload The serialized entity.
+         * @param schemaVersion The schema version the entity was serialized in.
+         */
+        private JournalRecord(EntityJournal.Operation operation, byte[] payload, int schemaVersion) {
+            this.operation = operation;
+            this.payload = payload;
+            this.schemaVersion = schemaVersion;
+        }
     }
 }
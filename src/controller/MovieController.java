@@ -7,6 +7,8 @@ import model.booking.ShowtimeStatus;
 import model.cineplex.Cineplex;
 import model.commons.Searchable;
 import model.movie.*;
+import persistence.MovieCodec;
+import persistence.StorageBackend;
 import util.Utilities;
 
 import java.util.*;
@@ -26,13 +28,20 @@ public class MovieController extends EntityController<Movie> {
 
     /**
      * Creates the movie moblima.controller.
+     * @param backend The storage backend of the entities.
      */
-    private MovieController() { super(); }
+    private MovieController(StorageBackend backend) { super(new MovieCodec(), backend); }
 
     /**
      * Initialize the movie moblima.controller.
      */
-    public static void init() { instance = new MovieController(); }
+    public static void init() { init(StorageBackend.MEMORY); }
+
+    /**
+     * Initialize the movie moblima.controller with its entities kept in the given storage backend.
+     * @param backend The storage backend of the movies.
+     */
+    public static void init(StorageBackend backend) { instance = new MovieController(backend); }
 
     /**
      * Gets this Movie Controller's singleton instance.
@@ -60,7 +69,8 @@ public class MovieController extends EntityController<Movie> {
                              MoviePerson[] actors, MovieType movieType,
                              MovieStatus status, MovieRating rating, int runtimeMinutes) {
         Movie movie = new Movie(title, synopsis, director, movieType, actors, status, rating, runtimeMinutes);
-        entities.put(movie.getId(), movie);
+        getStore().put(movie);
+        journal(movie);
         return movie;
     }
 
@@ -101,28 +111,38 @@ public class MovieController extends EntityController<Movie> {
         }
 
         movie.setStatus(status);
+        journal(movie);
     }
 
     /**
-     * Change the movie details of the movie with the given movie ID.
+     * Change the movie details of the movie with the given movie ID, unless they have been changed
+     * since the given version was read. The new details are published at once, so a reader never sees
+     * them half changed. If the runtime changes, the showtimes of the movie are rescheduled in their cinemas.
      * @param movieId The ID of the movie to be changed.
+     * @param expectedVersion The version of the movie the change is made to.
      * @param title The new title of this movie.
      * @param synopsis The new synopsis of this movie.
      * @param director The new director of this movie.
      * @param actors The new actors of this movie.
      * @param rating The new rating of this movie.
      * @param runtimeMinutes The new runtimeMinutes in minutes of this movie.
+     * @throws IllegalActionException if the movie has been changed since the given version.
      */
-    public void changeMovieDetails(UUID movieId, String title, String synopsis,
+    public void changeMovieDetails(UUID movieId, long expectedVersion, String title, String synopsis,
                                    MoviePerson director, MoviePerson[] actors,
-                                   MovieRating rating, int runtimeMinutes) {
+                                   MovieRating rating, int runtimeMinutes) throws IllegalActionException {
         Movie movie = findById(movieId);
-        movie.setTitle(title);
-        movie.setSynopsis(synopsis);
-        movie.setDirector(director);
-        movie.setActors(actors);
-        movie.setRating(rating);
-        movie.setRuntime(runtimeMinutes);
+        Movie.Details details = movie.getDetails();
+        if (details.getVersion() != expectedVersion ||
+                !movie.compareAndSetDetails(details, title, synopsis, director, actors, rating, runtimeMinutes))
+            throw new IllegalActionException("The movie has been changed by someone else.");
+        if (runtimeMinutes != details.getRuntimeMinutes()) {
+            CinemaController cinemaController = CinemaController.getInstance();
+            for (Showtime showtime : movie.getShowtimes())
+                if (!showtime.isCancelled())
+                    cinemaController.schedule(showtime);
+        }
+        journal(movie);
     }
 
 
@@ -134,7 +154,7 @@ public class MovieController extends EntityController<Movie> {
      */
     @SuppressWarnings("unchecked")
     public List<Movie> findByKeyword(String keyword) {
-        return Searchable.fuzzySearch(entities.values().stream()
+        return Searchable.fuzzySearch(getList().stream()
                 .map(movie -> (Searchable) movie)
                 .collect(Collectors.toList()), keyword)
                 .stream().map(searchable -> (Movie) searchable)
@@ -150,7 +170,7 @@ public class MovieController extends EntityController<Movie> {
     public List<Movie> findByCineplex(UUID cineplexId) {
         CineplexController cineplexController = CineplexController.getInstance();
         Cineplex cineplex = cineplexController.findById(cineplexId);
-        return entities.values().stream().filter(movie ->
+        return getList().stream().filter(movie ->
                 movie.getShowtimes().stream().anyMatch(showtime ->
                         showtime.getCineplex().equals(cineplex))).collect(Collectors.toList());
     }
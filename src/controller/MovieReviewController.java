@@ -5,6 +5,8 @@ import exception.UninitialisedSingletonException;
 import model.commons.User;
 import model.movie.Movie;
 import model.movie.MovieReview;
+import persistence.MovieReviewCodec;
+import persistence.StorageBackend;
 
 import java.util.UUID;
 
@@ -22,16 +24,25 @@ public class MovieReviewController extends EntityController<MovieReview> {
 
     /**
      * Creates the movie review moblima.controller.
+     * @param backend The storage backend of the entities.
      */
-    private MovieReviewController() {
-        super();
+    private MovieReviewController(StorageBackend backend) {
+        super(new MovieReviewCodec(), backend);
     }
 
     /**
      * Initialize the movie review moblima.controller.
      */
     public static void init() {
-        instance = new MovieReviewController();
+        init(StorageBackend.MEMORY);
+    }
+
+    /**
+     * Initialize the movie review moblima.controller with its entities kept in the given storage backend.
+     * @param backend The storage backend of the movie reviews.
+     */
+    public static void init(StorageBackend backend) {
+        instance = new MovieReviewController(backend);
     }
 
     /**
@@ -73,9 +84,12 @@ public class MovieReviewController extends EntityController<MovieReview> {
             throw new IllegalActionException("Can only submit review once per movie");
 
         MovieReview movieReview = new MovieReview(review, movie, rating, author);
-        entities.put(movieReview.getId(), movieReview);
+        getStore().put(movieReview);
         movie.addReview(movieReview);
         author.addReview(movieReview);
+        journal(movieReview);
+        movieManager.journal(movie);
+        userManager.journal(author);
 
         return movieReview;
     }
@@ -90,9 +104,15 @@ public class MovieReviewController extends EntityController<MovieReview> {
         MovieReview movieReview = findById(movieReviewId);
         if (movieReview == null)
             throw new IllegalActionException("This movie review does not exist.");
+        MovieController movieManager = MovieController.getInstance();
+        UserController userManager = UserController.getInstance();
+
         movieReview.getMovie().removeReview(movieReview);
         movieReview.getAuthor().removeReview(movieReview);
-        entities.remove(movieReview.getId());
+        getStore().remove(movieReview.getId());
+        movieManager.journal(movieReview.getMovie());
+        userManager.journal(movieReview.getAuthor());
+        journalRemoval(movieReview);
     }
 
 }
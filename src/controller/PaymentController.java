@@ -1,34 +1,68 @@
 package controller;
 
+import exception.IllegalActionException;
 import exception.UninitialisedSingletonException;
 import model.transaction.Payable;
 import model.transaction.Payment;
 import model.transaction.PaymentStatus;
+import persistence.PaymentCodec;
+import persistence.StorageBackend;
+import util.IdempotencyTable;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  Represents the moblima.controller of payments.
+ A payment made with a request key is made only once for the key, so a client can retry it without being charged
+ twice. The payments are remembered by their keys for a limited time, and only up to a limited number of keys.
  @version 1.0
  @since 2017-10-20
  */
 public class PaymentController extends EntityController<Payment> {
 
+    /**
+     * The maximum number of request keys whose payments are remembered.
+     */
+    private static final int REQUEST_KEY_CAPACITY = 100000;
+
+    /**
+     * The number of minutes the payment of a request key is remembered for.
+     */
+    private static final long REQUEST_KEY_EXPIRY_MINUTES = 60;
+
     /**
      * A reference to this singleton instance.
      */
     private static PaymentController instance;
 
+    /**
+     * The payments made by request key.
+     */
+    private IdempotencyTable<Payment> paymentRequests;
+
     /**
      * Creates the payment moblima.controller.
+     * @param backend The storage backend of the entities.
      */
-    private PaymentController() {
-        super();
+    private PaymentController(StorageBackend backend) {
+        super(new PaymentCodec(), backend);
+        this.paymentRequests = new IdempotencyTable<>(REQUEST_KEY_CAPACITY,
+                TimeUnit.MINUTES.toMillis(REQUEST_KEY_EXPIRY_MINUTES));
     }
 
     /**
      * Initialize the payment moblima.controller.
      */
     public static void init() {
-        instance = new PaymentController();
+        init(StorageBackend.MEMORY);
+    }
+
+    /**
+     * Initialize the payment moblima.controller with its entities kept in the given storage backend.
+     * @param backend The storage backend of the payments.
+     */
+    public static void init(StorageBackend backend) {
+        instance = new PaymentController(backend);
     }
 
     /**
@@ -53,8 +87,35 @@ public class PaymentController extends EntityController<Payment> {
 
         Payment payment = new Payment(payable.getPrice(), payable.getTransactionCode());
         payment.setStatus(PaymentStatus.ACCEPTED);
-        payable.setPayment(payment);
-        entities.put(payment.getId(), payment);
+        // The payable is locked as a booking is, so a confirmation in progress sees the payment whole
+        synchronized (payable) {
+            payable.setPayment(payment);
+        }
+        getStore().put(payment);
+        journal(payment);
+        return payment;
+    }
+
+    /**
+     * Makes the payment of a payable once for a request key. A retry with the same key gets the payment made
+     * the first time without another payment being made, and waits for it if the first attempt is still running.
+     * @param payable The payable whose payment is to be made.
+     * @param requestKey The key that identifies the request across its retries.
+     * @return the payment made for the payable with the request key.
+     * @throws IllegalActionException if the request key has been used for the payment of another payable.
+     */
+    public Payment makePayment(Payable payable, String requestKey) throws IllegalActionException {
+        Payment payment = paymentRequests.execute(requestKey, () -> makePayment(payable));
+        if (payable.getPayment() != payment)
+            throw new IllegalActionException("The request key has already been used for another payment");
         return payment;
     }
+
+    /**
+     * Gets the number of payments retried with a request key that were not made again.
+     * @return the number of payment retries answered with the first payment.
+     */
+    public long getReplayedPaymentCount() {
+        return paymentRequests.getReplayCount();
+    }
 }
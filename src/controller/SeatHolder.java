@@ -0,0 +1,209 @@
+package controller;
+
+import config.BookingConfig;
+import exception.UninitialisedSingletonException;
+import model.booking.Booking;
+import util.TimerWheel;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ Represents the seat holder that keeps the seats selected for an in-progress booking held for the number of
+ minutes set in the booking configuration. A hold that is neither confirmed nor cancelled in time expires,
+ releasing its seats and cancelling its booking. Holds are ended while the showtime and the booking are locked,
+ so whichever of the booking and the expiry ends the hold first wins and the other sees it ended.
+ @version 1.0
+ @since 2017-11-23
+ */
+public class SeatHolder {
+
+    /**
+     * The number of milliseconds of each tick of the timer wheel, which bounds how late a hold may expire.
+     */
+    private static final long TICK_MILLIS = 100;
+
+    /**
+     * A reference to this singleton instance.
+     */
+    private static SeatHolder instance;
+
+    /**
+     * The timer wheel the expiry of every hold is scheduled on.
+     */
+    private TimerWheel timerWheel;
+
+    /**
+     * A concurrent hash map with the ID of the booking of each active hold as the key and the hold as the value.
+     */
+    private ConcurrentHashMap<UUID, Hold> holds;
+
+    /**
+     * The number of holds made.
+     */
+    private AtomicLong holdCount;
+
+    /**
+     * The number of holds that expired.
+     */
+    private AtomicLong expiryCount;
+
+    /**
+     * The number of holds that ended, whether confirmed, cancelled or expired.
+     */
+    private AtomicLong endedCount;
+
+    /**
+     * The total number of milliseconds the ended holds lasted.
+     */
+    private AtomicLong endedHoldMillis;
+
+    /**
+     * Creates the seat holder and starts its timer wheel.
+     */
+    private SeatHolder() {
+        this.timerWheel = new TimerWheel("seat-holder", TICK_MILLIS);
+        this.holds = new ConcurrentHashMap<>();
+        this.holdCount = new AtomicLong();
+        this.expiryCount = new AtomicLong();
+        this.endedCount = new AtomicLong();
+        this.endedHoldMillis = new AtomicLong();
+    }
+
+    /**
+     * Initialize the seat holder.
+     */
+    public static void init() {
+        instance = new SeatHolder();
+    }
+
+    /**
+     * Gets this SeatHolder's singleton instance.
+     * @return this SeatHolder's singleton instance.
+     */
+    public static SeatHolder getInstance() {
+        if (instance == null)
+            throw new UninitialisedSingletonException();
+        return instance;
+    }
+
+    /**
+     * Holds the seats of a booking, whose seats have already been claimed as held, until the hold expires.
+     * The showtime and the booking must be locked by the caller.
+     * @param booking The booking whose seats are held.
+     */
+    public void hold(Booking booking) {
+        Hold hold = new Hold();
+        hold.timeout = timerWheel.schedule(() -> expire(booking, hold),
+                TimeUnit.MINUTES.toMillis(BookingConfig.getSeatHoldMinutes()));
+        holds.put(booking.getId(), hold);
+        holdCount.incrementAndGet();
+    }
+
+    /**
+     * Checks if a booking holds its seats, that is its hold has neither expired nor been ended.
+     * The showtime and the booking must be locked by the caller.
+     * @param booking The booking to be checked.
+     * @return true if the booking holds its seats.
+     */
+    public boolean isHolding(Booking booking) {
+        return holds.containsKey(booking.getId());
+    }
+
+    /**
+     * Ends the hold of a booking before it expires, so its seats can be taken or released by the booking.
+     * The showtime and the booking must be locked by the caller.
+     * @param booking The booking whose hold is ended.
+     * @return true if the booking held its seats, or false if its hold has expired or it never held any.
+     */
+    public boolean release(Booking booking) {
+        Hold hold = holds.remove(booking.getId());
+        if (hold == null)
+            return false;
+        timerWheel.cancel(hold.timeout);
+        end(hold);
+        return true;
+    }
+
+    /**
+     * Expires the hold of a booking, unless the booking has ended it first.
+     * @param booking The booking whose hold expires.
+     * @param hold The hold that expires.
+     */
+    private void expire(Booking booking, Hold hold) {
+        BookingController bookingController = BookingController.getInstance();
+        ReentrantLock showtimeLock = bookingController.lockShowtime(booking.getShowtime());
+        try {
+            synchronized (booking) {
+                if (!holds.remove(booking.getId(), hold))
+                    return;
+                end(hold);
+                expiryCount.incrementAndGet();
+                bookingController.expireBooking(booking);
+            }
+        } finally {
+            showtimeLock.unlock();
+        }
+    }
+
+    /**
+     * Records the duration of a hold that has ended.
+     * @param hold The hold that has ended.
+     */
+    private void end(Hold hold) {
+        endedHoldMillis.addAndGet(System.currentTimeMillis() - hold.startMillis);
+        endedCount.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of holds that are active.
+     * @return the number of holds that are active.
+     */
+    public int getActiveHoldCount() {
+        return holds.size();
+    }
+
+    /**
+     * Gets the number of holds made.
+     * @return the number of holds made.
+     */
+    public long getHoldCount() {
+        return holdCount.get();
+    }
+
+    /**
+     * Gets the number of holds that expired.
+     * @return the number of holds that expired.
+     */
+    public long getExpiryCount() {
+        return expiryCount.get();
+    }
+
+    /**
+     * Gets the average duration of the holds that have ended.
+     * @return the average number of milliseconds the ended holds lasted, or 0 if none has ended.
+     */
+    public long getAverageHoldMillis() {
+        long ended = endedCount.get();
+        return ended == 0 ? 0 : endedHoldMillis.get() / ended;
+    }
+
+    /**
+     * Represents the hold of the seats of a booking.
+     */
+    private static class Hold {
+
+        /**
+         * The time the hold was made, in milliseconds.
+         */
+        private long startMillis = System.currentTimeMillis();
+
+        /**
+         * The timeout that expires the hold.
+         */
+        private TimerWheel.Timeout timeout;
+    }
+}
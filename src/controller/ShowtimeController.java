@@ -5,6 +5,9 @@ import exception.IllegalActionException;
 import exception.UninitialisedSingletonException;
 import model.booking.Booking;
 import model.booking.Showtime;
+import model.booking.ShowtimeDraft;
+import model.booking.ShowtimeImportReport;
+import model.booking.ShowtimeOccupancy;
 import model.booking.ShowtimeStatus;
 import model.booking.TicketType;
 import model.cineplex.Cinema;
@@ -12,13 +15,25 @@ import model.cineplex.Cineplex;
 import model.commons.Language;
 import model.movie.Movie;
 import model.movie.MovieStatus;
+import persistence.ShowtimeCodec;
+import persistence.ShowtimeCsvReader;
+import persistence.StorageBackend;
+import util.DayIndex;
 import util.Utilities;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
  Represents the moblima.controller of showtimes.
+ The showtimes of each cineplex and of each movie are indexed by the day they start on, so the showtimes
+ listed for a day are looked up directly.
  @version 1.0
  @since 2017-10-20
  */
@@ -29,18 +44,51 @@ public class ShowtimeController extends EntityController<Showtime> {
      */
     private static ShowtimeController instance;
 
+    /**
+     * The showtimes of each cineplex on each day, sorted by their start time.
+     */
+    private DayIndex<Showtime> cineplexDays;
+
+    /**
+     * The showtimes of each movie on each day, sorted by their start time.
+     */
+    private DayIndex<Showtime> movieDays;
+
+    /**
+     * Whether the showtimes in the store have been added to the day indexes.
+     */
+    private volatile boolean daysIndexed;
+
+    /**
+     * The lock held while a cinema is checked for availability and a showtime is scheduled in it,
+     * so that no other showtime is scheduled in between, however many showtimes are scheduled at once.
+     */
+    private ReentrantLock scheduleLock;
+
     /**
      * Creates the showtime moblima.controller.
+     * @param backend The storage backend of the entities.
      */
-    private ShowtimeController() {
-        super();
+    private ShowtimeController(StorageBackend backend) {
+        super(new ShowtimeCodec(), backend);
+        this.cineplexDays = new DayIndex<>();
+        this.movieDays = new DayIndex<>();
+        this.scheduleLock = new ReentrantLock();
     }
 
     /**
      * Initialize the showtime moblima.controller.
      */
     public static void init() {
-        instance = new ShowtimeController();
+        init(StorageBackend.MEMORY);
+    }
+
+    /**
+     * Initialize the showtime moblima.controller with its entities kept in the given storage backend.
+     * @param backend The storage backend of the showtimes.
+     */
+    public static void init(StorageBackend backend) {
+        instance = new ShowtimeController(backend);
     }
 
     /**
@@ -83,64 +131,254 @@ public class ShowtimeController extends EntityController<Showtime> {
         if (!Arrays.asList(MovieStatus.PREVIEW, MovieStatus.NOW_SHOWING).contains(movie.getStatus()))
             throw new IllegalActionException("Can only create showtime for movies in Now Showing or Preview state");
 
-        if (!cinemaController.isAvaiableOn(cineplexId, cinemaId, startTime, endTime))
-            throw new IllegalActionException("There is already a showtime scheduled for this cineplex");
-
         Cinema cinema = cinemaController.findById(cinemaId);
-        Showtime showtime = new Showtime(movie, cineplex, cinema, language, startTime,
-                noFreePasses, movie.getStatus() == MovieStatus.PREVIEW, subtitles);
+        Showtime showtime;
+        scheduleLock.lock();
+        try {
+            if (!cinemaController.isAvaiableOn(cineplexId, cinemaId, startTime, endTime))
+                throw new IllegalActionException("There is already a showtime scheduled for this cineplex");
+            showtime = new Showtime(movie, cineplex, cinema, language, startTime,
+                    noFreePasses, movie.getStatus() == MovieStatus.PREVIEW, subtitles);
+            cinemaController.schedule(showtime);
+        } finally {
+            scheduleLock.unlock();
+        }
 
         movie.addShowtime(showtime);
         cineplex.addShowtime(showtime);
-        entities.put(showtime.getId(), showtime);
+        getStore().put(showtime);
+        indexDays(showtime);
+        journal(showtime);
+        movieController.journal(movie);
+        cineplexController.journal(cineplex);
         return showtime;
     }
 
     /**
-     * Changes the detail of a showtime.
+     * Creates the showtimes of the given drafts at once. Every draft is checked against the showtimes already
+     * scheduled and against the other drafts before any showtime is created, so either all of them are created
+     * or none is. Each movie and cineplex is journaled once, however many of the showtimes it is given.
+     * @param drafts The drafts of the showtimes to be created.
+     * @return the newly created showtimes, in the order of their drafts.
+     * @throws IllegalActionException if the movie of a draft is not in Now Showing or Preview state,
+     * or if the cinema of a draft is not in its cineplex or is not available at its time,
+     * or if two drafts overlap in the same cinema.
+     */
+    public List<Showtime> createShowtimes(List<ShowtimeDraft> drafts) throws IllegalActionException {
+        scheduleLock.lock();
+        try {
+            String[] reasons = validate(drafts);
+            for (String reason : reasons)
+                if (reason != null)
+                    throw new IllegalActionException(reason);
+            return insert(drafts);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    /**
+     * Imports the showtimes of the comma separated values read from the given reader, as described by
+     * {@link ShowtimeCsvReader}. The rows are parsed in a single pass, and the showtimes checked as with
+     * {@link #createShowtimes(List)}. The batch is committed as a whole, so if any row is rejected, none is
+     * created and the report gives the reason for every row rejected.
+     * @param reader The reader of the comma separated values.
+     * @return the report of the showtimes created or the rows rejected.
+     * @throws IOException if the values cannot be read.
+     */
+    public ShowtimeImportReport importShowtimes(Reader reader) throws IOException {
+        ShowtimeCsvReader csvReader = new ShowtimeCsvReader(CineplexController.getInstance().getList(),
+                MovieController.getInstance().getList());
+        csvReader.read(reader);
+        List<ShowtimeDraft> drafts = csvReader.getDrafts();
+        ArrayList<ShowtimeImportReport.Rejection> rejections = new ArrayList<>(csvReader.getRejections());
+
+        scheduleLock.lock();
+        try {
+            String[] reasons = validate(drafts);
+            for (int i = 0; i < reasons.length; i++)
+                if (reasons[i] != null)
+                    rejections.add(new ShowtimeImportReport.Rejection(csvReader.getDraftRows().get(i), reasons[i]));
+            if (!rejections.isEmpty())
+                return new ShowtimeImportReport(csvReader.getRowCount(), Collections.emptyList(), rejections);
+            return new ShowtimeImportReport(csvReader.getRowCount(), insert(drafts), rejections);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    /**
+     * Checks the drafts of showtimes to be created against the showtimes already scheduled and against each other.
+     * The drafts are partitioned by cinema, and the drafts of each cinema are checked in parallel with the others,
+     * since no two cinemas share a showtime. The caller holds the schedule lock, so nothing is scheduled meanwhile.
+     * @param drafts The drafts of the showtimes.
+     * @return the reason each draft cannot be created, or null for a draft that can, in the order of the drafts.
+     */
+    private String[] validate(List<ShowtimeDraft> drafts) {
+        HashMap<Cinema, List<Integer>> cinemaDrafts = new HashMap<>();
+        for (int i = 0; i < drafts.size(); i++)
+            cinemaDrafts.computeIfAbsent(drafts.get(i).getCinema(), cinema -> new ArrayList<>()).add(i);
+
+        String[] reasons = new String[drafts.size()];
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ArrayList<ForkJoinTask<?>> validations = new ArrayList<>(cinemaDrafts.size());
+        for (List<Integer> indexes : cinemaDrafts.values())
+            validations.add(pool.submit(() -> validate(drafts, indexes, reasons)));
+        for (ForkJoinTask<?> validation : validations)
+            validation.join();
+        return reasons;
+    }
+
+    /**
+     * Checks the drafts of showtimes in a cinema, each on its own and against the earlier drafts in the cinema.
+     * @param drafts The drafts of the showtimes of all cinemas.
+     * @param indexes The indexes of the drafts in the cinema.
+     * @param reasons The reason each draft cannot be created, set for the drafts in the cinema that cannot.
+     */
+    private static void validate(List<ShowtimeDraft> drafts, List<Integer> indexes, String[] reasons) {
+        CinemaController cinemaController = CinemaController.getInstance();
+        long bufferMillis = TimeUnit.MINUTES.toMillis(BookingConfig.getBufferMinutesAfterShowtime());
+        indexes.sort(Comparator.comparing(i -> drafts.get(i).getStartTime()));
+
+        // As with the showtimes already scheduled, a draft overlaps an earlier one ending within the buffer before it,
+        // and only a draft that is not rejected is to be created, so only those are compared with the later ones
+        ShowtimeDraft lastDraft = null;
+        long lastEndMillis = Long.MIN_VALUE;
+        for (int i : indexes) {
+            ShowtimeDraft draft = drafts.get(i);
+            Movie movie = draft.getMovie();
+            long startMillis = draft.getStartTime().getTime();
+            long endMillis = startMillis + TimeUnit.MINUTES.toMillis(movie.getRuntimeMinutes());
+            if (movie.getStatus() != MovieStatus.PREVIEW && movie.getStatus() != MovieStatus.NOW_SHOWING)
+                reasons[i] = "Can only create showtime for movies in Now Showing or Preview state";
+            else if (!draft.getCineplex().getCinemas().contains(draft.getCinema()))
+                reasons[i] = "Invalid cinema ID.";
+            else if (!cinemaController.isAvaiableOn(draft.getCineplex().getId(), draft.getCinema().getId(),
+                    draft.getStartTime(), new Date(endMillis + bufferMillis)))
+                reasons[i] = "There is already a showtime scheduled for this cineplex";
+            else if (startMillis - bufferMillis <= lastEndMillis)
+                reasons[i] = "It overlaps the showtime of " + lastDraft.getMovie().getTitle() + " at " +
+                        Utilities.toFormat(lastDraft.getStartTime()) + " to be created in the same cinema";
+
+            if (reasons[i] == null && endMillis > lastEndMillis) {
+                lastDraft = draft;
+                lastEndMillis = endMillis;
+            }
+        }
+    }
+
+    /**
+     * Creates the showtimes of drafts that have been checked. Each movie and cineplex is journaled once,
+     * however many of the showtimes it is given.
+     * @param drafts The drafts of the showtimes, which can all be created.
+     * @return the newly created showtimes, in the order of their drafts.
+     */
+    private List<Showtime> insert(List<ShowtimeDraft> drafts) {
+
+        MovieController movieController = MovieController.getInstance();
+        CineplexController cineplexController = CineplexController.getInstance();
+        CinemaController cinemaController = CinemaController.getInstance();
+
+        ArrayList<Showtime> showtimes = new ArrayList<>(drafts.size());
+        LinkedHashSet<Movie> movies = new LinkedHashSet<>();
+        LinkedHashSet<Cineplex> cineplexes = new LinkedHashSet<>();
+        for (ShowtimeDraft draft : drafts) {
+            Movie movie = draft.getMovie();
+            Cineplex cineplex = draft.getCineplex();
+            Showtime showtime = new Showtime(movie, cineplex, draft.getCinema(), draft.getLanguage(),
+                    draft.getStartTime(), draft.isNoFreePasses(), movie.getStatus() == MovieStatus.PREVIEW,
+                    draft.getSubtitles());
+
+            movie.addShowtime(showtime);
+            cineplex.addShowtime(showtime);
+            cinemaController.schedule(showtime);
+            getStore().put(showtime);
+            indexDays(showtime);
+            journal(showtime);
+            showtimes.add(showtime);
+            movies.add(movie);
+            cineplexes.add(cineplex);
+        }
+        for (Movie movie : movies)
+            movieController.journal(movie);
+        for (Cineplex cineplex : cineplexes)
+            cineplexController.journal(cineplex);
+        return showtimes;
+    }
+
+    /**
+     * Changes the detail of a showtime, unless it has been changed since the given version was read.
+     * The new details are checked against the details of that version and published at once, so a reader
+     * never sees them half changed. The bookings of the showtime are locked meanwhile, so no booking can be
+     * confirmed between the check and the change.
      * @param showtimeId The ID of the showtime to be changed.
+     * @param expectedVersion The version of the showtime the change is made to.
      * @param cinemaId The cineplex of the showtime.
      * @param language The language of the showtime.
      * @param startTime The new start time of the showtime
      * @param noFreePasses The new status of free pass.
      * @param subtitles The new subtitles for the showtime.
+     * @throws IllegalActionException if the showtime has been changed since the given version,
+     * or if it is cancelled or has started, or if it has a confirmed booking,
+     * or if the cinema is not in its cineplex or is not available at the new time,
+     * or if the cinema is changed while a seat is held or taken.
      */
-    public void changeShowtimeDetails(UUID showtimeId, UUID cinemaId, Language language, Date startTime,
-                                      boolean noFreePasses, Language[] subtitles) {
+    public void changeShowtimeDetails(UUID showtimeId, long expectedVersion, UUID cinemaId, Language language,
+                                      Date startTime, boolean noFreePasses, Language[] subtitles)
+            throws IllegalActionException {
 
         CinemaController cinemaController = CinemaController.getInstance();
         Showtime showtime = findById(showtimeId);
 
-        if (showtime.getStatus() == ShowtimeStatus.CANCELLED)
-            throw new IllegalActionException("Can't update cancelled showtime.");
-
-        int minutesBeforeClosedBooking = BookingConfig.getMinutesBeforeClosedBooking();
-        Date lastBookingMinute = Utilities.getDateBefore(showtime.getStartTime(), Calendar.MINUTE,
-                minutesBeforeClosedBooking);
-        if (new Date().after(lastBookingMinute))
-            throw new IllegalActionException("Can't update showtime that has already started.");
-
-        if (showtime.hasConfirmedBooking())
-            throw new IllegalActionException("Can't update showtime when there's already a booking confirmed.");
-
-        Cinema cinema = cinemaController.findById(cinemaId);
-        if (cinema == null || !showtime.getCineplex().getCinemas().contains(cinema))
-            throw new IllegalActionException("Invalid cineplex ID.");
-
-        // Temporarily cancel showtime so can check availability
-        showtime.setCancelled(true);
-        if (!cinemaController.isAvaiableOn(showtime.getCineplex().getId(),
-                cinemaId, startTime, showtime.getEndTime())) {
-            showtime.setCancelled(false);
-            throw new IllegalActionException("There is already a showtime scheduled for this cineplex");
+        ReentrantLock showtimeLock = BookingController.getInstance().lockShowtime(showtime);
+        try {
+            Showtime.Details details = showtime.getDetails();
+            if (details.getVersion() != expectedVersion)
+                throw new IllegalActionException("The showtime has been changed by someone else.");
+
+            if (details.isCancelled())
+                throw new IllegalActionException("Can't update cancelled showtime.");
+
+            if (System.currentTimeMillis() > showtime.getCloseBookingMillis())
+                throw new IllegalActionException("Can't update showtime that has already started.");
+
+            if (showtime.hasConfirmedBooking())
+                throw new IllegalActionException("Can't update showtime when there's already a booking confirmed.");
+
+            Cinema cinema = cinemaController.findById(cinemaId);
+            if (cinema == null || !showtime.getCineplex().getCinemas().contains(cinema))
+                throw new IllegalActionException("Invalid cineplex ID.");
+
+            // The seats cannot be moved to the layout of another cinema
+            ShowtimeOccupancy occupancy = showtime.getOccupancy();
+            if (cinema != details.getCinema() && occupancy.getHeldCount() + occupancy.getTakenCount() > 0)
+                throw new IllegalActionException("Can't change the cinema of showtime when a seat is held or taken.");
+
+            Date endTime = Utilities.getDateAfter(startTime, Calendar.MINUTE,
+                    showtime.getMovie().getRuntimeMinutes() + BookingConfig.getBufferMinutesAfterShowtime());
+            scheduleLock.lock();
+            try {
+                if (!cinemaController.isAvaiableOn(showtime.getCineplex().getId(), cinemaId, startTime, endTime,
+                        showtimeId))
+                    throw new IllegalActionException("There is already a showtime scheduled for this cineplex");
+
+                if (!showtime.compareAndSetDetails(details, cinema, language, startTime, noFreePasses, subtitles))
+                    throw new IllegalActionException("The showtime has been changed by someone else.");
+                if (cinema != details.getCinema())
+                    cinemaController.unschedule(showtime, details.getCinema());
+                cinemaController.schedule(showtime);
+            } finally {
+                scheduleLock.unlock();
+            }
+            // The showtimes of a day are sorted by start time, so a move within the day is indexed again as well
+            if (!startTime.equals(details.getStartTime())) {
+                unindexDays(showtime, details.getStartTime());
+                indexDays(showtime);
+            }
+        } finally {
+            showtimeLock.unlock();
         }
-        showtime.setCancelled(false);
-
-        showtime.setCinema(cinema);
-        showtime.setLanguage(language);
-        showtime.setNoFreePasses(noFreePasses);
-        showtime.setSubtitles(subtitles);
-        showtime.setStartTime(startTime);
+        journal(showtime);
     }
 
     /**
@@ -155,19 +393,25 @@ public class ShowtimeController extends EntityController<Showtime> {
 
         Showtime showtime = findById(showtimeId);
 
-        if (showtime.getStatus() == ShowtimeStatus.CANCELLED)
-            throw new IllegalActionException("Showtime is already cancelled");
+        // The bookings of the showtime are locked, so no booking can be confirmed once it is checked
+        ReentrantLock showtimeLock = bookingController.lockShowtime(showtime);
+        try {
+            if (showtime.getStatus() == ShowtimeStatus.CANCELLED)
+                throw new IllegalActionException("Showtime is already cancelled");
 
-        int minutesBeforeClosedBooking = BookingConfig.getMinutesBeforeClosedBooking();
-        Date lastBookingMinute = Utilities.getDateBefore(showtime.getStartTime(), Calendar.MINUTE,
-                minutesBeforeClosedBooking);
-        if (new Date().after(lastBookingMinute))
-            throw new IllegalActionException("Can't cancel showtime that has already started.");
+            if (System.currentTimeMillis() > showtime.getCloseBookingMillis())
+                throw new IllegalActionException("Can't cancel showtime that has already started.");
 
-        if (showtime.hasConfirmedBooking())
-            throw new IllegalActionException("Can't cancel showtime when there's already a booking confirmed.");
+            if (showtime.hasConfirmedBooking())
+                throw new IllegalActionException("Can't cancel showtime when there's already a booking confirmed.");
 
-        showtime.setCancelled(true);
+            showtime.setCancelled(true);
+            CinemaController.getInstance().unschedule(showtime, showtime.getCinema());
+            showtime.getSeating().release();
+        } finally {
+            showtimeLock.unlock();
+        }
+        journal(showtime);
         for (Booking booking : showtime.getBookings())
             bookingController.cancelBooking(booking.getId());
     }
@@ -192,6 +436,78 @@ public class ShowtimeController extends EntityController<Showtime> {
         return showtimes;
     }
 
+    /**
+     * Gets the showtimes of a cineplex on the day of a date, without looking at its other showtimes.
+     * @param cineplexId The ID of the cineplex.
+     * @param date A date on the day.
+     * @return the unmodifiable list of the showtimes of the cineplex starting on the day, sorted by start time.
+     */
+    public List<Showtime> findByCineplexOnDay(UUID cineplexId, Date date) {
+        indexStoredDays();
+        return cineplexDays.get(cineplexId, date);
+    }
+
+    /**
+     * Gets the showtimes of a movie on the day of a date, without looking at its other showtimes.
+     * @param movieId The ID of the movie.
+     * @param date A date on the day.
+     * @return the unmodifiable list of the showtimes of the movie starting on the day, sorted by start time.
+     */
+    public List<Showtime> findByMovieOnDay(UUID movieId, Date date) {
+        indexStoredDays();
+        return movieDays.get(movieId, date);
+    }
+
+    /**
+     * Gets the showtimes in a cineplex that show a movie on the day of a date.
+     * @param cineplexId The ID of the cineplex.
+     * @param movieId The ID of the movie.
+     * @param date A date on the day.
+     * @return the showtimes of the movie in the cineplex starting on the day, sorted by start time.
+     */
+    public List<Showtime> findByCineplexAndMovieOnDay(UUID cineplexId, UUID movieId, Date date) {
+        ArrayList<Showtime> showtimes = new ArrayList<>();
+        for (Showtime showtime : findByCineplexOnDay(cineplexId, date))
+            if (showtime.getMovie().getId().equals(movieId))
+                showtimes.add(showtime);
+        return showtimes;
+    }
+
+    /**
+     * Adds the showtimes in the store to the day indexes, once, when the day indexes are first used.
+     * Showtimes created later are added as they are created.
+     */
+    private void indexStoredDays() {
+        if (daysIndexed)
+            return;
+        synchronized (this) {
+            if (daysIndexed)
+                return;
+            for (Showtime showtime : getList())
+                indexDays(showtime);
+            daysIndexed = true;
+        }
+    }
+
+    /**
+     * Adds a showtime to the day indexes of its cineplex and movie on the day it starts.
+     * @param showtime The showtime.
+     */
+    private void indexDays(Showtime showtime) {
+        cineplexDays.add(showtime.getCineplex().getId(), showtime.getStartTime(), showtime);
+        movieDays.add(showtime.getMovie().getId(), showtime.getStartTime(), showtime);
+    }
+
+    /**
+     * Removes a showtime from the day indexes of its cineplex and movie on the day it used to start.
+     * @param showtime The showtime.
+     * @param startTime The start time the showtime was indexed by.
+     */
+    private void unindexDays(Showtime showtime, Date startTime) {
+        cineplexDays.remove(showtime.getCineplex().getId(), startTime, showtime);
+        movieDays.remove(showtime.getMovie().getId(), startTime, showtime);
+    }
+
     /**
      * Gets the showtimes of a given cineplex and cinemas.
      * @param cineplexId The ID of the cineplex to be searched for.
@@ -206,6 +522,16 @@ public class ShowtimeController extends EntityController<Showtime> {
                 showtime.getCinema().getId().equals(cinemaId)).collect(Collectors.toList());
     }
 
+    /**
+     * Gets the occupancy of a showtime without looking at its bookings or its seats.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @return the number of seats of the showtime in each status.
+     */
+    public ShowtimeOccupancy getOccupancy(UUID showtimeId) {
+        return findById(showtimeId).getOccupancy();
+    }
+
     /**
      * Checks whether this ticket type is available for a booking.
      *
@@ -0,0 +1,520 @@
+package controller;
+
+import config.BookingConfig;
+import exception.IllegalActionException;
+import model.booking.Showtime;
+import model.booking.ShowtimeDemand;
+import model.booking.ShowtimeDraft;
+import model.cineplex.Cinema;
+import model.cineplex.Cineplex;
+import model.commons.Language;
+import model.movie.Movie;
+import model.movie.MovieStatus;
+import util.Utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Represents the scheduler that plans a week of showtimes across all cineplexes from the demand for each movie.
+ Each cineplex is planned on its own, in parallel, one day at a time. The showtimes of a day are first packed
+ greedily, always filling the cinema that is free the earliest with the movie furthest below its target for the
+ day. They are then improved by a local search that replaces, inserts and swaps showtimes whenever the day gets
+ closer to its targets, or stays as close and leaves more time free in its cinemas.
+ Showtimes already scheduled are kept clear of, and the plan is created in bulk through the showtime controller.
+ @version 1.0
+ @since 2017-11-26
+ */
+public class ShowtimeScheduler {
+
+    /**
+     * The number of days planned.
+     */
+    private static final int DAYS_PER_WEEK = 7;
+
+    /**
+     * The number of milliseconds between the start times a showtime may be planned at.
+     */
+    private static final long SLOT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * The number of moves tried by the local search for each cinema of a cineplex on a day.
+     */
+    private static final int MOVES_PER_CINEMA = 200;
+
+    /**
+     * The first day of the week to be planned.
+     */
+    private Date weekStart;
+
+    /**
+     * The minute of the day the cineplexes open, from which showtimes may start.
+     */
+    private int openingMinute;
+
+    /**
+     * The minute of the day the cineplexes close, by which every showtime must end.
+     */
+    private int closingMinute;
+
+    /**
+     * The demands of the movies that can be shown, which are those in Now Showing or Preview state.
+     */
+    private List<ShowtimeDemand> demands;
+
+    /**
+     * Creates a scheduler of the week starting on the given day.
+     * @param weekStart A date on the first day of the week to be planned.
+     * @param openingMinute The minute of the day the cineplexes open, from which showtimes may start.
+     * @param closingMinute The minute of the day the cineplexes close, by which every showtime must end.
+     * @param demands The demand for the showtimes of each movie.
+     */
+    public ShowtimeScheduler(Date weekStart, int openingMinute, int closingMinute, List<ShowtimeDemand> demands) {
+        this.weekStart = Utilities.getStartOfDate(weekStart);
+        this.openingMinute = openingMinute;
+        this.closingMinute = closingMinute;
+        this.demands = new ArrayList<>();
+        for (ShowtimeDemand demand : demands) {
+            MovieStatus status = demand.getMovie().getStatus();
+            if (demand.getShowtimesPerWeek() > 0 &&
+                    (status == MovieStatus.NOW_SHOWING || status == MovieStatus.PREVIEW))
+                this.demands.add(demand);
+        }
+    }
+
+    /**
+     * Plans the showtimes of the week in every cineplex, without creating them.
+     * @return the drafts of the planned showtimes, by cineplex, day and cinema.
+     */
+    public List<ShowtimeDraft> plan() {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ArrayList<ForkJoinTask<List<ShowtimeDraft>>> plannings = new ArrayList<>();
+        for (Cineplex cineplex : CineplexController.getInstance().getList())
+            plannings.add(pool.submit(() -> plan(cineplex)));
+
+        ArrayList<ShowtimeDraft> drafts = new ArrayList<>();
+        for (ForkJoinTask<List<ShowtimeDraft>> planning : plannings)
+            drafts.addAll(planning.join());
+        return drafts;
+    }
+
+    /**
+     * Plans the showtimes of the week in every cineplex and creates them all at once.
+     * @return the newly created showtimes.
+     * @throws IllegalActionException if a planned showtime can no longer be created,
+     * such as when another showtime has been scheduled at its time meanwhile, in which case none is created.
+     */
+    public List<Showtime> schedule() throws IllegalActionException {
+        return ShowtimeController.getInstance().createShowtimes(plan());
+    }
+
+    /**
+     * Gets the number of showtimes demanded in the week across all cineplexes.
+     * @return the number of showtimes demanded of the movies that can be shown.
+     */
+    public int getDemandedCount() {
+        int showtimesPerCineplex = 0;
+        for (ShowtimeDemand demand : demands)
+            showtimesPerCineplex += demand.getShowtimesPerWeek();
+        return showtimesPerCineplex * CineplexController.getInstance().getList().size();
+    }
+
+    /**
+     * Plans the showtimes of the week in a cineplex.
+     * @param cineplex The cineplex.
+     * @return the drafts of the showtimes planned in the cineplex.
+     */
+    private List<ShowtimeDraft> plan(Cineplex cineplex) {
+        ArrayList<ShowtimeDraft> drafts = new ArrayList<>();
+        Calendar day = Calendar.getInstance();
+        day.setTime(weekStart);
+        for (int dayIndex = 0; dayIndex < DAYS_PER_WEEK; dayIndex++) {
+            int[] targets = new int[demands.size()];
+            for (int i = 0; i < targets.length; i++) {
+                // The showtimes left over after an even split go to different days for different movies
+                int showtimesPerWeek = demands.get(i).getShowtimesPerWeek();
+                targets[i] = showtimesPerWeek / DAYS_PER_WEEK +
+                        (Math.floorMod(dayIndex - i, DAYS_PER_WEEK) < showtimesPerWeek % DAYS_PER_WEEK ? 1 : 0);
+            }
+
+            long dayMillis = day.getTimeInMillis();
+            day.add(Calendar.DAY_OF_YEAR, 1);
+            DayPlan dayPlan = new DayPlan(cineplex, dayMillis, day.getTimeInMillis(), targets);
+            dayPlan.pack();
+            dayPlan.improve(new Random(cineplex.getId().hashCode() * 31L + dayIndex));
+            dayPlan.addDrafts(drafts);
+        }
+        return drafts;
+    }
+
+    /**
+     * Represents the plan of the showtimes of a cineplex on a day, as the sequence of the movies shown in each
+     * cinema. Each sequence is packed from the start of the day, with each showtime at the earliest start time
+     * clear of the one before it and of the showtimes already scheduled.
+     */
+    private class DayPlan {
+
+        /**
+         * The cineplex planned.
+         */
+        private Cineplex cineplex;
+
+        /**
+         * The cinemas of the cineplex.
+         */
+        private List<Cinema> cinemas;
+
+        /**
+         * The time the cineplex opens on the day, from which the start times are counted.
+         */
+        private long openingMillis;
+
+        /**
+         * The earliest time a showtime may start, which is the opening time unless it has passed.
+         */
+        private long earliestMillis;
+
+        /**
+         * The time the cineplex closes on the day, by which every showtime must end.
+         */
+        private long closingMillis;
+
+        /**
+         * The buffer after every showtime during which its cinema cannot show another.
+         */
+        private long bufferMillis;
+
+        /**
+         * The number of showtimes of each movie targeted on the day, by the index of its demand.
+         */
+        private int[] targets;
+
+        /**
+         * The number of showtimes of each movie planned on the day, by the index of its demand.
+         */
+        private int[] counts;
+
+        /**
+         * The start and end of the movie of every showtime already scheduled in each cinema around the day,
+         * sorted by start.
+         */
+        private List<List<long[]>> scheduled;
+
+        /**
+         * The indexes of the demands of the movies shown in each cinema, in order.
+         */
+        private List<List<Integer>> sequences;
+
+        /**
+         * The start times of the showtimes in each cinema, in the order of its sequence.
+         */
+        private long[][] startTimes;
+
+        /**
+         * Creates an empty plan of a cineplex on a day, around the showtimes already scheduled in the cineplex from
+         * the day before to the day after.
+         * @param cineplex The cineplex.
+         * @param dayMillis The start of the day.
+         * @param nextDayMillis The start of the next day.
+         * @param targets The number of showtimes of each movie targeted on the day.
+         */
+        private DayPlan(Cineplex cineplex, long dayMillis, long nextDayMillis, int[] targets) {
+            this.cineplex = cineplex;
+            this.cinemas = cineplex.getCinemas();
+            this.openingMillis = dayMillis + TimeUnit.MINUTES.toMillis(openingMinute);
+            this.earliestMillis = Math.max(openingMillis, System.currentTimeMillis());
+            this.closingMillis = dayMillis + TimeUnit.MINUTES.toMillis(closingMinute);
+            this.bufferMillis = TimeUnit.MINUTES.toMillis(BookingConfig.getBufferMinutesAfterShowtime());
+            this.targets = targets;
+            this.counts = new int[targets.length];
+            this.scheduled = new ArrayList<>();
+            this.sequences = new ArrayList<>();
+            this.startTimes = new long[cinemas.size()][];
+            for (int c = 0; c < cinemas.size(); c++) {
+                scheduled.add(new ArrayList<>());
+                sequences.add(new ArrayList<>());
+                startTimes[c] = new long[0];
+            }
+
+            ShowtimeController showtimeController = ShowtimeController.getInstance();
+            for (long millis : new long[]{dayMillis - 1, dayMillis, nextDayMillis})
+                for (Showtime showtime : showtimeController.findByCineplexOnDay(cineplex.getId(), new Date(millis))) {
+                    int c = cinemas.indexOf(showtime.getCinema());
+                    if (c < 0 || showtime.isCancelled())
+                        continue;
+                    long startMillis = showtime.getStartTime().getTime();
+                    scheduled.get(c).add(new long[]{startMillis,
+                            startMillis + TimeUnit.MINUTES.toMillis(showtime.getMovie().getRuntimeMinutes())});
+                }
+            for (List<long[]> intervals : scheduled)
+                intervals.sort(Comparator.comparingLong(interval -> interval[0]));
+        }
+
+        /**
+         * Packs the showtimes greedily, filling the cinema that is free the earliest with the movie that fits and
+         * brings the day closest to its targets, until no cinema fits a movie below its target.
+         */
+        private void pack() {
+            long[] freeMillis = new long[cinemas.size()];
+            boolean[] full = new boolean[cinemas.size()];
+            Arrays.fill(freeMillis, earliestMillis);
+            while (true) {
+                int c = -1;
+                for (int other = 0; other < cinemas.size(); other++)
+                    if (!full[other] && (c < 0 || freeMillis[other] < freeMillis[c]))
+                        c = other;
+                if (c < 0)
+                    break;
+
+                int chosen = -1;
+                long chosenStart = -1;
+                for (int i = 0; i < targets.length; i++) {
+                    if (counts[i] >= targets[i] || !demands.get(i).isShownIn(cinemas.get(c).getType()))
+                        continue;
+                    if (chosen >= 0 && getGain(i) <= getGain(chosen))
+                        continue;
+                    long start = findStart(c, freeMillis[c], getRuntimeMillis(i));
+                    if (start >= 0) {
+                        chosen = i;
+                        chosenStart = start;
+                    }
+                }
+
+                if (chosen < 0)
+                    full[c] = true;
+                else {
+                    sequences.get(c).add(chosen);
+                    counts[chosen]++;
+                    freeMillis[c] = chosenStart + getRuntimeMillis(chosen) + bufferMillis + 1;
+                }
+            }
+            for (int c = 0; c < cinemas.size(); c++)
+                startTimes[c] = getStartTimes(c, sequences.get(c));
+        }
+
+        /**
+         * Improves the plan by trying random moves, keeping each move that brings the day closer to its targets,
+         * or that keeps it as close and ends the showtimes of the cinemas it changes earlier.
+         * @param random The random number generator the moves are picked with.
+         */
+        private void improve(Random random) {
+            int moves = MOVES_PER_CINEMA * cinemas.size();
+            for (int move = 0; move < moves && getCost() > 0; move++) {
+                int c = random.nextInt(cinemas.size());
+                List<Integer> sequence = sequences.get(c);
+                int i = random.nextInt(targets.length);
+                if (!demands.get(i).isShownIn(cinemas.get(c).getType()))
+                    continue;
+
+                switch (random.nextInt(3)) {
+                    case 0:
+                        // Insert a movie below its target
+                        if (counts[i] < targets[i]) {
+                            List<Integer> inserted = new ArrayList<>(sequence);
+                            inserted.add(random.nextInt(sequence.size() + 1), i);
+                            if (tryChange(c, inserted))
+                                counts[i]++;
+                        }
+                        break;
+                    case 1:
+                        // Replace a showtime with one of a movie further below its target, or of a shorter movie
+                        if (!sequence.isEmpty()) {
+                            int k = random.nextInt(sequence.size());
+                            int replaced = sequence.get(k);
+                            double gain = replaced == i ? 0 : getGain(i) - getLoss(replaced);
+                            if (replaced != i &&
+                                    (gain > 0 || gain == 0 && getRuntimeMillis(i) < getRuntimeMillis(replaced))) {
+                                List<Integer> replacing = new ArrayList<>(sequence);
+                                replacing.set(k, i);
+                                if (tryChange(c, replacing)) {
+                                    counts[i]++;
+                                    counts[replaced]--;
+                                }
+                            }
+                        }
+                        break;
+                    default:
+                        // Swap showtimes between two cinemas if it ends their showtimes earlier
+                        int other = random.nextInt(cinemas.size());
+                        List<Integer> otherSequence = sequences.get(other);
+                        if (other != c && !sequence.isEmpty() && !otherSequence.isEmpty())
+                            trySwap(c, random.nextInt(sequence.size()), other, random.nextInt(otherSequence.size()));
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Changes the sequence of a cinema if it can be packed.
+         * @param c The index of the cinema.
+         * @param sequence The new sequence of the cinema.
+         * @return true if the sequence is changed.
+         */
+        private boolean tryChange(int c, List<Integer> sequence) {
+            long[] starts = getStartTimes(c, sequence);
+            if (starts == null)
+                return false;
+            sequences.set(c, sequence);
+            startTimes[c] = starts;
+            return true;
+        }
+
+        /**
+         * Swaps a showtime of a cinema with a showtime of another cinema if both cinemas can show the movie swapped
+         * in, both sequences can be packed and the showtimes of the two cinemas end earlier in total.
+         * @param c The index of the cinema.
+         * @param k The position of the showtime in the sequence of the cinema.
+         * @param other The index of the other cinema.
+         * @param otherK The position of the showtime in the sequence of the other cinema.
+         */
+        private void trySwap(int c, int k, int other, int otherK) {
+            int i = sequences.get(c).get(k);
+            int otherI = sequences.get(other).get(otherK);
+            if (i == otherI || !demands.get(i).isShownIn(cinemas.get(other).getType()) ||
+                    !demands.get(otherI).isShownIn(cinemas.get(c).getType()))
+                return;
+
+            List<Integer> swapped = new ArrayList<>(sequences.get(c));
+            swapped.set(k, otherI);
+            List<Integer> otherSwapped = new ArrayList<>(sequences.get(other));
+            otherSwapped.set(otherK, i);
+            long[] starts = getStartTimes(c, swapped);
+            long[] otherStarts = starts == null ? null : getStartTimes(other, otherSwapped);
+            if (otherStarts == null || getEndMillis(swapped, starts) + getEndMillis(otherSwapped, otherStarts) >=
+                    getEndMillis(sequences.get(c), startTimes[c]) +
+                            getEndMillis(sequences.get(other), startTimes[other]))
+                return;
+
+            sequences.set(c, swapped);
+            startTimes[c] = starts;
+            sequences.set(other, otherSwapped);
+            startTimes[other] = otherStarts;
+        }
+
+        /**
+         * Gets how far the plan is from its targets, which is the sum over the movies of the square of the number
+         * of showtimes each is short of its target, divided by its target. A shortfall is then spread over the
+         * movies in proportion to their targets, however few types of cinemas they can be shown in.
+         * @return the cost of the plan, which is 0 if every target is met.
+         */
+        private double getCost() {
+            double cost = 0;
+            for (int i = 0; i < targets.length; i++)
+                if (targets[i] > 0)
+                    cost += (double) (targets[i] - counts[i]) * (targets[i] - counts[i]) / targets[i];
+            return cost;
+        }
+
+        /**
+         * Gets how much closer to its targets the plan gets with another showtime of a movie.
+         * @param i The index of the demand of the movie, which is below its target.
+         * @return the decrease in the cost of the plan.
+         */
+        private double getGain(int i) {
+            return (double) (2 * (targets[i] - counts[i]) - 1) / targets[i];
+        }
+
+        /**
+         * Gets how much further from its targets the plan gets with one showtime of a movie fewer.
+         * @param i The index of the demand of the movie, which has a showtime planned.
+         * @return the increase in the cost of the plan.
+         */
+        private double getLoss(int i) {
+            return (double) (2 * (targets[i] - counts[i]) + 1) / targets[i];
+        }
+
+        /**
+         * Packs the sequence of a cinema from the start of the day.
+         * @param c The index of the cinema.
+         * @param sequence The indexes of the demands of the movies shown in the cinema, in order.
+         * @return the start times of the showtimes of the sequence, or null if they do not fit in the day.
+         */
+        private long[] getStartTimes(int c, List<Integer> sequence) {
+            long[] starts = new long[sequence.size()];
+            long freeMillis = earliestMillis;
+            for (int k = 0; k < starts.length; k++) {
+                long runtimeMillis = getRuntimeMillis(sequence.get(k));
+                starts[k] = findStart(c, freeMillis, runtimeMillis);
+                if (starts[k] < 0)
+                    return null;
+                freeMillis = starts[k] + runtimeMillis + bufferMillis + 1;
+            }
+            return starts;
+        }
+
+        /**
+         * Finds the earliest start time from the given time at which a cinema is clear of the showtimes already
+         * scheduled and the movie ends before closing. As when the cinema is checked for availability, a showtime
+         * already scheduled is in the way if it ends within the buffer before the start or starts within the buffer
+         * after the end, in which case the start time is moved past it.
+         * @param c The index of the cinema.
+         * @param fromMillis The time from which the showtime may start.
+         * @param runtimeMillis The runtime of the movie.
+         * @return the earliest start time, or -1 if there is none on the day.
+         */
+        private long findStart(int c, long fromMillis, long runtimeMillis) {
+            long start = roundUp(fromMillis);
+            long lastEndMillis = Long.MIN_VALUE;
+            for (long[] interval : scheduled.get(c)) {
+                lastEndMillis = Math.max(lastEndMillis, interval[1]);
+                if (interval[0] <= start + runtimeMillis + bufferMillis && interval[1] >= start - bufferMillis)
+                    start = roundUp(lastEndMillis + bufferMillis + 1);
+            }
+            return start + runtimeMillis <= closingMillis ? start : -1;
+        }
+
+        /**
+         * Rounds a time up to the next start time a showtime may be planned at, which is no earlier than opening.
+         * @param millis The time.
+         * @return the earliest start time at or after the time.
+         */
+        private long roundUp(long millis) {
+            return openingMillis + Math.max(0, (millis - openingMillis + SLOT_MILLIS - 1) / SLOT_MILLIS) * SLOT_MILLIS;
+        }
+
+        /**
+         * Gets the time the last showtime of a sequence ends.
+         * @param sequence The indexes of the demands of the movies shown in a cinema, in order.
+         * @param starts The start times of the showtimes of the sequence.
+         * @return the end of the last showtime, or the earliest start time if there are none.
+         */
+        private long getEndMillis(List<Integer> sequence, long[] starts) {
+            if (starts.length == 0)
+                return earliestMillis;
+            return starts[starts.length - 1] + getRuntimeMillis(sequence.get(starts.length - 1));
+        }
+
+        /**
+         * Gets the runtime of the movie of a demand.
+         * @param i The index of the demand.
+         * @return the runtime of the movie in milliseconds.
+         */
+        private long getRuntimeMillis(int i) {
+            return TimeUnit.MINUTES.toMillis(demands.get(i).getMovie().getRuntimeMinutes());
+        }
+
+        /**
+         * Adds the drafts of the showtimes planned to a list.
+         * @param drafts The list the drafts are added to.
+         */
+        private void addDrafts(List<ShowtimeDraft> drafts) {
+            for (int c = 0; c < cinemas.size(); c++) {
+                List<Integer> sequence = sequences.get(c);
+                for (int k = 0; k < sequence.size(); k++) {
+                    ShowtimeDemand demand = demands.get(sequence.get(k));
+                    Movie movie = demand.getMovie();
+                    drafts.add(new ShowtimeDraft(movie, cineplex, cinemas.get(c), demand.getLanguage(),
+                            new Date(startTimes[c][k]), false, new Language[0]));
+                }
+            }
+        }
+    }
+}
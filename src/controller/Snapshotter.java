@@ -0,0 +1,168 @@
+package controller;
+
+import config.AdminConfig;
+import exception.UninitialisedSingletonException;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Represents the snapshotter that saves the data in the background at the interval set in the admin configuration,
+ so saving never blocks the console.
+ @version 1.0
+ @since 2017-11-18
+ */
+public class Snapshotter {
+
+    /**
+     * A reference to this singleton instance.
+     */
+    private static Snapshotter instance;
+
+    /**
+     * The name of the file the data is saved to.
+     */
+    private String filename;
+
+    /**
+     * The executor that takes the snapshots one at a time.
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * The number of snapshots taken.
+     */
+    private volatile int snapshotCount;
+
+    /**
+     * The time the last snapshot was taken, or null if none has been taken.
+     */
+    private volatile Date lastSnapshotTime;
+
+    /**
+     * The number of milliseconds the last snapshot took.
+     */
+    private volatile long lastDurationMillis;
+
+    /**
+     * The size of the data file written by the last snapshot in bytes.
+     */
+    private volatile long lastSize;
+
+    /**
+     * The error of the last snapshot, or null if it succeeded.
+     */
+    private volatile Exception lastError;
+
+    /**
+     * Creates the snapshotter and schedules the first snapshot.
+     * @param filename The name of the file the data is saved to.
+     */
+    private Snapshotter(String filename) {
+        this.filename = filename;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshotter");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduleNext();
+    }
+
+    /**
+     * Initialize the snapshotter.
+     * @param filename The name of the file the data is saved to.
+     */
+    public static void init(String filename) {
+        instance = new Snapshotter(filename);
+    }
+
+    /**
+     * Gets this Snapshotter's singleton instance.
+     * @return this Snapshotter's singleton instance.
+     */
+    public static Snapshotter getInstance() {
+        if (instance == null)
+            throw new UninitialisedSingletonException();
+        return instance;
+    }
+
+    /**
+     * Takes a snapshot in the background as soon as any snapshot in progress is done.
+     * @return the future that completes when the snapshot is taken.
+     */
+    public Future<?> snapshot() {
+        return executor.submit(this::takeSnapshot);
+    }
+
+    /**
+     * Schedules the next periodic snapshot after the interval set in the admin configuration.
+     */
+    private void scheduleNext() {
+        executor.schedule(() -> {
+            takeSnapshot();
+            scheduleNext();
+        }, AdminConfig.getSnapshotIntervalMinutes(), TimeUnit.MINUTES);
+    }
+
+    /**
+     * Saves the data and records the duration and size of the snapshot.
+     */
+    private void takeSnapshot() {
+        long startTime = System.nanoTime();
+        try {
+            lastSize = EntityController.save(filename, AdminConfig.getSnapshotCompression());
+            lastDurationMillis = (System.nanoTime() - startTime) / 1000000;
+            lastSnapshotTime = new Date();
+            lastError = null;
+            snapshotCount++;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            lastError = e;
+        }
+    }
+
+    /**
+     * Gets the number of snapshots taken.
+     * @return the number of snapshots taken.
+     */
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    /**
+     * Gets the time the last snapshot was taken.
+     * @return the time the last snapshot was taken, or null if none has been taken.
+     */
+    public Date getLastSnapshotTime() {
+        return lastSnapshotTime;
+    }
+
+    /**
+     * Gets the number of milliseconds the last snapshot took.
+     * @return the number of milliseconds the last snapshot took.
+     */
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    /**
+     * Gets the size of the data file written by the last snapshot.
+     * @return the size of the data file written by the last snapshot in bytes.
+     */
+    public long getLastSize() {
+        return lastSize;
+    }
+
+    /**
+     * Gets the error of the last snapshot.
+     * @return the error of the last snapshot, or null if it succeeded.
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+}
@@ -4,6 +4,8 @@ import exception.IllegalActionException;
 import exception.UninitialisedSingletonException;
 import model.cineplex.Staff;
 import model.commons.User;
+import persistence.UserCodec;
+import persistence.StorageBackend;
 
 /**
  Represents the moblima.controller of users, including the moviegoer and cineplex staff.
@@ -19,16 +21,25 @@ public class UserController extends EntityController<User> {
 
     /**
      * Creates the cineplex moblima.controller.
+     * @param backend The storage backend of the entities.
      */
-    private UserController() {
-        super();
+    private UserController(StorageBackend backend) {
+        super(new UserCodec(), backend);
     }
 
     /**
      * Initialize the cineplex moblima.controller.
      */
     public static void init() {
-        instance = new UserController();
+        init(StorageBackend.MEMORY);
+    }
+
+    /**
+     * Initialize the user moblima.controller with its entities kept in the given storage backend.
+     * @param backend The storage backend of the users.
+     */
+    public static void init(StorageBackend backend) {
+        instance = new UserController(backend);
     }
 
     /**
@@ -58,7 +69,8 @@ public class UserController extends EntityController<User> {
             throw new IllegalActionException("This mobile number has already been registered.");
 
         User user = new User(firstName, lastName, mobile, email);
-        entities.put(user.getId(), user);
+        getStore().put(user);
+        journal(user);
         return user;
     }
 
@@ -84,7 +96,8 @@ public class UserController extends EntityController<User> {
             throw new IllegalActionException("This username already exists");
 
         Staff staff = new Staff(firstName, lastName, mobile, email, username, password);
-        entities.put(staff.getId(), staff);
+        getStore().put(staff);
+        journal(staff);
     }
 
     /**
@@ -93,7 +106,7 @@ public class UserController extends EntityController<User> {
      * @return the user who registers with this mobile number.
      */
     public User findByMobile(String mobile) {
-        for (User user : entities.values()) {
+        for (User user : getStore().scan()) {
             if (user.getMobile().equals(mobile))
                 return user;
         }
@@ -106,7 +119,7 @@ public class UserController extends EntityController<User> {
      * @return the staff who registers with this username.
      */
     public Staff findByUsername(String username) {
-        for (User registeredUser : entities.values()) {
+        for (User registeredUser : getStore().scan()) {
             if (registeredUser instanceof Staff) {
                 Staff staff = (Staff) registeredUser;
                 if (staff.getUsername().equals(username))
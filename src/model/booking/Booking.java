@@ -7,9 +7,9 @@ import model.commons.Entity;
 import model.transaction.Payable;
 import model.transaction.Payment;
 
-import java.util.ArrayList;
-import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a booking made by the user to book for tickets for a showtime.
@@ -26,14 +26,15 @@ public class Booking extends Entity implements Payable {
     private Showtime showtime;
 
     /**
-     * A hash table with ticket types as the key and the quantity of this ticket type as the key of this booking.
+     * A concurrent hash map with ticket types as the key and the quantity of this ticket type as the key
+     * of this booking.
      */
-    private Hashtable<TicketType, Integer> ticketTypesCount;
+    private ConcurrentHashMap<TicketType, Integer> ticketTypesCount;
 
     /**
-     * An array list of seats of this booking.
+     * A copy-on-write list of seats of this booking.
      */
-    private ArrayList<Seat> seats;
+    private CopyOnWriteArrayList<Seat> seats;
 
     /**
      * The payment of this booking.
@@ -47,7 +48,7 @@ public class Booking extends Entity implements Payable {
 
     /**
      * Creates a booking with the given showtime.
-     * A booking contains an empty array list of tickets when initially being created.
+     * A booking contains an empty list of tickets when initially being created.
      * A booking has no payment when initially being created.
      * The status of booking is set to be in progress when the booking is initially created.
      *
@@ -55,8 +56,8 @@ public class Booking extends Entity implements Payable {
      */
     public Booking(Showtime showtime) {
         this.showtime = showtime;
-        this.ticketTypesCount = new Hashtable<>();
-        this.seats = new ArrayList<>();
+        this.ticketTypesCount = new ConcurrentHashMap<>();
+        this.seats = new CopyOnWriteArrayList<>();
         this.payment = null;
         this.status = BookingStatus.IN_PROGRESS;
     }
@@ -98,17 +99,18 @@ public class Booking extends Entity implements Payable {
     }
 
     /**
-     * Gets a hash table with ticket types as the key and the quantity of this ticket type as the key of this booking.
-     * @return a hash table with ticket types as the key and the quantity of this ticket type
+     * Gets a concurrent hash map with ticket types as the key and the quantity of this ticket type as the key
+     * of this booking.
+     * @return a concurrent hash map with ticket types as the key and the quantity of this ticket type
      * as the key of this booking.
      */
-    public Hashtable<TicketType, Integer> getTicketTypesCount() {
+    public ConcurrentHashMap<TicketType, Integer> getTicketTypesCount() {
         return ticketTypesCount;
     }
 
     /**
-     * Gets an array list of seats of this booking.
-     * @return an array list of seats of this booking.
+     * Gets a copy-on-write list of seats of this booking.
+     * @return a copy-on-write list of seats of this booking.
      */
     public List<Seat> getSeats() {
         return seats;
@@ -171,8 +173,8 @@ public class Booking extends Entity implements Payable {
      * Changes the ticket types selected by this booking.
      * @param ticketTypesCount the new ticket types selected by this booking.
      */
-    public void setTicketTypesCount(Hashtable<TicketType, Integer> ticketTypesCount) {
-        this.ticketTypesCount = ticketTypesCount;
+    public void setTicketTypesCount(ConcurrentHashMap<TicketType, Integer> ticketTypesCount) {
+        this.ticketTypesCount = new ConcurrentHashMap<>(ticketTypesCount);
     }
 
     /**
@@ -180,7 +182,6 @@ public class Booking extends Entity implements Payable {
      * @param seats the new seats selected by this booking.
      */
     public void setSeats(List<Seat> seats) {
-        this.seats.clear();
-        this.seats.addAll(seats);
+        this.seats = new CopyOnWriteArrayList<>(seats);
     }
 }
@@ -0,0 +1,147 @@
+package model.booking;
+
+import model.cineplex.Seat;
+import model.transaction.Payable;
+import model.transaction.Payment;
+import model.transaction.Priceable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents a group booking made by a user across several showtimes at once, with a booking for each showtime.
+ * A group booking is payable because a single payment is made for all its bookings.
+ *
+ * @version 1.0
+ * @since 2017-11-26
+ */
+public class GroupBooking implements Payable {
+
+    /**
+     * The bookings of this group booking, one for each showtime.
+     */
+    private List<Booking> bookings;
+
+    /**
+     * Creates a group booking of the given bookings.
+     *
+     * @param bookings The bookings of this group booking.
+     */
+    public GroupBooking(List<Booking> bookings) {
+        this.bookings = Collections.unmodifiableList(new ArrayList<>(bookings));
+    }
+
+    /**
+     * Gets the bookings of this group booking.
+     *
+     * @return the bookings of this group booking, one for each showtime.
+     */
+    public List<Booking> getBookings() {
+        return bookings;
+    }
+
+    /**
+     * Gets the payment of this group booking, which is shared by all its bookings.
+     *
+     * @return the payment of this group booking.
+     */
+    @Override
+    public Payment getPayment() {
+        return bookings.get(0).getPayment();
+    }
+
+    /**
+     * Sets the payment of every booking of this group booking.
+     *
+     * @param payment The payment to be paid for this group booking.
+     */
+    @Override
+    public void setPayment(Payment payment) {
+        for (Booking booking : bookings)
+            booking.setPayment(payment);
+    }
+
+    /**
+     * Gets the transaction code of this group booking, which is that of its first booking.
+     *
+     * @return the transaction code of this group booking.
+     */
+    @Override
+    public String getTransactionCode() {
+        return bookings.get(0).getTransactionCode();
+    }
+
+    /**
+     * Gets the price of this group booking, which is the sum of the prices of its bookings.
+     *
+     * @return the price of this group booking.
+     */
+    @Override
+    public double getPrice() {
+        return Priceable.getPrice(bookings.toArray(new Priceable[0]));
+    }
+
+    /**
+     * Represents the showtime, ticket types and seats requested for one booking of a group booking.
+     */
+    public static class Leg {
+
+        /**
+         * The ID of the showtime of the booking.
+         */
+        private UUID showtimeId;
+
+        /**
+         * A concurrent hash map with ticket types as the key and the quantity of this ticket type as the value.
+         */
+        private ConcurrentHashMap<TicketType, Integer> ticketTypesCount;
+
+        /**
+         * The seats of the booking.
+         */
+        private List<Seat> seats;
+
+        /**
+         * Creates the leg of a group booking.
+         *
+         * @param showtimeId The ID of the showtime of the booking.
+         * @param ticketTypesCount The quantity of each ticket type of the booking.
+         * @param seats The seats of the booking.
+         */
+        public Leg(UUID showtimeId, ConcurrentHashMap<TicketType, Integer> ticketTypesCount, List<Seat> seats) {
+            this.showtimeId = showtimeId;
+            this.ticketTypesCount = new ConcurrentHashMap<>(ticketTypesCount);
+            this.seats = new ArrayList<>(seats);
+        }
+
+        /**
+         * Gets the ID of the showtime of the booking.
+         *
+         * @return the ID of the showtime of the booking.
+         */
+        public UUID getShowtimeId() {
+            return showtimeId;
+        }
+
+        /**
+         * Gets the quantity of each ticket type of the booking.
+         *
+         * @return the quantity of each ticket type of the booking.
+         */
+        public ConcurrentHashMap<TicketType, Integer> getTicketTypesCount() {
+            return ticketTypesCount;
+        }
+
+        /**
+         * Gets the seats of the booking.
+         *
+         * @return the seats of the booking.
+         */
+        public List<Seat> getSeats() {
+            return seats;
+        }
+    }
+}
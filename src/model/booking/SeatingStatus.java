@@ -16,7 +16,12 @@ public enum SeatingStatus {
     /**
      * The status of a taken seating.
      */
-    TAKEN("X");
+    TAKEN("X"),
+
+    /**
+     * The status of a seating held for a booking in progress, shown as taken to everyone else.
+     */
+    HELD("X");
 
     /**
      * The icon representation of this seating.
@@ -8,12 +8,17 @@ import model.commons.Language;
 import model.movie.Movie;
 import model.movie.MovieStatus;
 import model.transaction.Priceable;
+import util.CoarseClock;
 import util.Utilities;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Represents the showtime of a movie in a Cineplex.
+ * The details of a showtime that can be changed are kept in a revision, so a change is published as a whole
+ * and a reader sees either the details from before or after it.
  *
  * @version 1.0
  * @since 2017-10-20
@@ -30,50 +35,21 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      */
     private Cineplex cineplex;
 
-    /**
-     * The cineplex where the showtime is at.
-     */
-    private Cinema cinema;
-
-    /**
-     * The seating of this showtime.
-     */
-    private ShowtimeSeating seating;
-
-    /**
-     * The language of this showtime.
-     */
-    private Language language;
-
-    /**
-     * The starting time of this showtime.
-     */
-    private Date startTime;
-
-    /**
-     * Whether this showtime can use coupons.
-     */
-    private boolean noFreePasses;
-
     /**
      * Whether this showtime is a preview.
      */
     private boolean isPreview;
 
     /**
-     * Whether this showtime is cancelled.
-     */
-    private boolean isCancelled;
-
-    /**
-     * The subtitles of this showtime.
+     * The bookings of this showtime.
      */
-    private ArrayList<Language> subtitles;
+    private CopyOnWriteArrayList<Booking> bookings;
 
     /**
-     * The bookings of this showtime.
+     * The booking window of this showtime as last computed, which is computed again once the details or the
+     * booking window settings it was computed from are changed.
      */
-    private ArrayList<Booking> bookings;
+    private transient volatile BookingWindow bookingWindow;
 
     /**
      * Creates a showtime with the given information.
@@ -91,16 +67,11 @@ public class Showtime extends Entity implements Comparable<Showtime> {
                     boolean isPreview, Language[] subtitles) {
         this.movie = movie;
         this.cineplex = cineplex;
-        this.cinema = cinema;
-        this.seating = new ShowtimeSeating(this);
-        this.language = language;
-        this.startTime = startTime;
-        this.noFreePasses = noFreePasses;
         this.isPreview = isPreview;
-        this.isCancelled = false;
-        this.subtitles = new ArrayList<>();
-        this.subtitles.addAll(Arrays.asList(subtitles));
-        this.bookings = new ArrayList<>();
+        // A showtime read from a snapshot gets its seating once its cinema is resolved
+        initRevision(new Details(cinema, cinema == null ? null : new ShowtimeSeating(getId(), cinema.getLayout()),
+                language, startTime, noFreePasses, subtitles));
+        this.bookings = new CopyOnWriteArrayList<>();
     }
 
     /**
@@ -136,25 +107,77 @@ public class Showtime extends Entity implements Comparable<Showtime> {
     }
 
     /**
-     * Gets the cineplex of this showtime.
-     * @return The cincinemaeplex of this showtime.
+     * Gets the details of this showtime that can be changed.
+     * @return the latest details of this showtime.
+     */
+    public Details getDetails() {
+        return (Details) getRevision();
+    }
+
+    /**
+     * Changes the details of this showtime, unless they have been changed since the expected details were read.
+     * The seating is replaced if the cinema is changed, which must only be done while no seat is held or taken and
+     * the seats of the showtime are not changed. The new seating is only given a region of the seat inventory once
+     * the change is published, after the region of the old seating is released, so the old seating never shares
+     * its region with the new one.
+     * @param expected The details the change is made to.
+     * @param cinema The new cinema of this showtime.
+     * @param language The new language of this showtime.
+     * @param startTime The new starting time of this showtime.
+     * @param noFreePasses The new setting of free pass.
+     * @param subtitles The new subtitles of this showtime.
+     * @return true if the details are changed, or false if they have been changed since they were read.
+     */
+    public boolean compareAndSetDetails(Details expected, Cinema cinema, Language language, Date startTime,
+                                        boolean noFreePasses, Language[] subtitles) {
+        Details next = new Details(expected);
+        if (cinema != expected.cinema) {
+            next.cinema = cinema;
+            next.seating = new ShowtimeSeating(getId(), cinema.getLayout(), false);
+        }
+        next.language = language;
+        next.startTime = startTime;
+        next.noFreePasses = noFreePasses;
+        next.subtitles = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(subtitles)));
+        if (!compareAndSetRevision(expected, next))
+            return false;
+        if (next.seating != expected.seating) {
+            expected.seating.release();
+            next.seating.attach();
+        }
+        return true;
+    }
+
+    /**
+     * Gets the cinema of this showtime.
+     * @return The cinema of this showtime.
      */
     public Cinema getCinema() {
-        return cinema;
+        return getDetails().cinema;
     }
 
     /**
-     * Changes the cineplex of this showtime.
-     * @param cinema the new cineplex of this showtime.
+     * Changes the cinema of this showtime.
+     * @param cinema the new cinema of this showtime.
      */
-    public void setCinema(Cinema cinema) { this.cinema = cinema; }
+    public void setCinema(Cinema cinema) {
+        update(details -> details.cinema = cinema);
+    }
 
     /**
      * Gets the seating of this showtime.
      * @return the seating of this showtime.
      */
     public ShowtimeSeating getSeating() {
-        return seating;
+        return getDetails().seating;
+    }
+
+    /**
+     * Gets the occupancy of the seating of this showtime, counted as its seats change status.
+     * @return the number of seats of this showtime in each status.
+     */
+    public ShowtimeOccupancy getOccupancy() {
+        return getSeating().getOccupancy();
     }
 
     /**
@@ -162,7 +185,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @param seating The new seating of this showtime.
      */
     public void setSeating(ShowtimeSeating seating) {
-        this.seating = seating;
+        update(details -> details.seating = seating);
     }
 
     /**
@@ -170,7 +193,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @return the language of this showtime.
      */
     public Language getLanguage() {
-        return language;
+        return getDetails().language;
     }
 
     /**
@@ -178,7 +201,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @param language The new language of this showtime.
      */
     public void setLanguage(Language language) {
-        this.language = language;
+        update(details -> details.language = language);
     }
 
     /**
@@ -186,7 +209,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @return the new starting time of this showtime.
      */
     public Date getStartTime() {
-        return startTime;
+        return getDetails().startTime;
     }
 
     /**
@@ -194,7 +217,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @param startTime The new starting time of this showtime.
      */
     public void setStartTime(Date startTime) {
-        this.startTime = startTime;
+        update(details -> details.startTime = startTime);
     }
 
     /**
@@ -202,7 +225,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @return true if this showtime does allows free pass.
      */
     public boolean isNoFreePasses() {
-        return noFreePasses;
+        return getDetails().noFreePasses;
     }
 
     /**
@@ -210,7 +233,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @param noFreePasses The new setting of free pass.
      */
     public void setNoFreePasses(boolean noFreePasses) {
-        this.noFreePasses = noFreePasses;
+        update(details -> details.noFreePasses = noFreePasses);
     }
 
     /**
@@ -233,8 +256,8 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * Gets the subtitles of this showtime.
      * @return the subtitles of this showtime.
      */
-    public ArrayList<Language> getSubtitles() {
-        return subtitles;
+    public List<Language> getSubtitles() {
+        return getDetails().subtitles;
     }
 
     /**
@@ -242,8 +265,8 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @param subtitles The new subtitles of this showtime.
      */
     public void setSubtitles(Language[] subtitles) {
-        this.subtitles.clear();
-        this.subtitles.addAll(Arrays.asList(subtitles));
+        List<Language> subtitleList = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(subtitles)));
+        update(details -> details.subtitles = subtitleList);
     }
 
     /**
@@ -256,26 +279,48 @@ public class Showtime extends Entity implements Comparable<Showtime> {
 
     /**
      * Gets the status of this showtime.
+     * The booking window is computed only when the details or the booking window settings have changed,
+     * so the status is found by comparing the time of the shared coarse clock with its instants.
      * @return the status of this showtime.
      */
     public ShowtimeStatus getStatus() {
-        if (isCancelled) return ShowtimeStatus.CANCELLED;
-
-        ShowtimeStatus showtimeStatus = ShowtimeStatus.OPEN_BOOKING;
+        Details details = getDetails();
+        if (details.cancelled) return ShowtimeStatus.CANCELLED;
+
+        MovieStatus movieStatus = movie.getStatus();
+        if (movieStatus != MovieStatus.NOW_SHOWING && movieStatus != MovieStatus.PREVIEW)
+            return ShowtimeStatus.CLOSED_BOOKING;
+
+        BookingWindow window = getBookingWindow(details);
+        long now = CoarseClock.currentTimeMillis();
+        if (now < window.openMillis || now > window.closeMillis)
+            return ShowtimeStatus.CLOSED_BOOKING;
+        return ShowtimeStatus.OPEN_BOOKING;
+    }
 
-        int minDaysBeforeOpenBooking = BookingConfig.getDaysBeforeOpenBooking();
-        Date openBookingDate = Utilities.getDateBefore(startTime,
-                Calendar.DAY_OF_YEAR,
-                minDaysBeforeOpenBooking);
-        int minutesBeforeClosedBooking = BookingConfig.getMinutesBeforeClosedBooking();
-        Date lastBookingMinute = Utilities.getDateBefore(startTime, Calendar.MINUTE,
-                minutesBeforeClosedBooking);
-        Date now = new Date();
-        if (now.before(Utilities.getStartOfDate(openBookingDate)) || now.after(lastBookingMinute) ||
-                !Arrays.asList(MovieStatus.NOW_SHOWING, MovieStatus.PREVIEW).contains(movie.getStatus()))
-            showtimeStatus = ShowtimeStatus.CLOSED_BOOKING;
+    /**
+     * Gets the last instant at which this showtime can be booked.
+     * @return the epoch milliseconds of the last booking minute of this showtime.
+     */
+    public long getCloseBookingMillis() {
+        return getBookingWindow(getDetails()).closeMillis;
+    }
 
-        return showtimeStatus;
+    /**
+     * Gets the booking window of the given details of this showtime, computing it again if it was computed from
+     * other details or from booking window settings that have since changed.
+     * @param details The latest details of this showtime.
+     * @return the booking window of the details.
+     */
+    private BookingWindow getBookingWindow(Details details) {
+        // The version is read before the settings, so a window computed while they change is computed again
+        int configVersion = BookingConfig.getBookingWindowVersion();
+        BookingWindow window = bookingWindow;
+        if (window == null || window.details != details || window.configVersion != configVersion) {
+            window = new BookingWindow(details, configVersion);
+            bookingWindow = window;
+        }
+        return window;
     }
 
     /**
@@ -292,7 +337,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @return true if this showtime is cancelled.
      */
     public boolean isCancelled() {
-        return isCancelled;
+        return getDetails().cancelled;
     }
 
     /**
@@ -300,7 +345,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @param cancelled The booking to be cancelled.
      */
     public void setCancelled(boolean cancelled) {
-        isCancelled = cancelled;
+        update(details -> details.cancelled = cancelled);
     }
 
     /**
@@ -315,7 +360,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * Remove a booking from this showtime.
      * @param booking The booking to be removed from this showtime.
      */
-    public void removeBooking(Booking booking) { bookings.remove(booking.getId()); }
+    public void removeBooking(Booking booking) { bookings.remove(booking); }
 
     /**
      * Compares this showtime with the specified showtime for order. Returns a negative integer, zero, or a
@@ -326,7 +371,7 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      */
     @Override
     public int compareTo(Showtime o) {
-        return startTime.compareTo(o.startTime);
+        return getStartTime().compareTo(o.getStartTime());
     }
 
     /**
@@ -345,7 +390,190 @@ public class Showtime extends Entity implements Comparable<Showtime> {
      * @return the ending time of this showtime after its buffer time.
      */
     public Date getEndTime() {
-        return Utilities.getDateAfter(startTime, Calendar.MINUTE,
+        return Utilities.getDateAfter(getStartTime(), Calendar.MINUTE,
                 movie.getRuntimeMinutes() + BookingConfig.getBufferMinutesAfterShowtime());
     }
+
+    /**
+     * Publishes the next details of this showtime, made by a change to a copy of the latest details.
+     * @param change The change made to the copy.
+     */
+    private void update(Consumer<Details> change) {
+        this.<Details>updateRevision(details -> {
+            Details next = new Details(details);
+            change.accept(next);
+            return next;
+        });
+    }
+
+    /**
+     * Represents the instants between which a showtime can be booked, computed from a revision of its details and
+     * a version of the booking window settings.
+     */
+    private static class BookingWindow {
+
+        /**
+         * The details the window is computed from.
+         */
+        private final Details details;
+
+        /**
+         * The version of the booking window settings the window is computed from.
+         */
+        private final int configVersion;
+
+        /**
+         * The epoch milliseconds of the start of the day the booking opens.
+         */
+        private final long openMillis;
+
+        /**
+         * The epoch milliseconds of the last booking minute.
+         */
+        private final long closeMillis;
+
+        /**
+         * Creates the booking window of the given details with the current booking window settings.
+         * @param details The details of the showtime.
+         * @param configVersion The version of the booking window settings, read before the settings are.
+         */
+        private BookingWindow(Details details, int configVersion) {
+            this.details = details;
+            this.configVersion = configVersion;
+            Date openBookingDate = Utilities.getDateBefore(details.startTime, Calendar.DAY_OF_YEAR,
+                    BookingConfig.getDaysBeforeOpenBooking());
+            this.openMillis = Utilities.getStartOfDate(openBookingDate).getTime();
+            this.closeMillis = Utilities.getDateBefore(details.startTime, Calendar.MINUTE,
+                    BookingConfig.getMinutesBeforeClosedBooking()).getTime();
+        }
+    }
+
+    /**
+     * Represents a revision of the details of a showtime that can be changed.
+     */
+    public static class Details extends Revision {
+
+        /**
+         * The version of the serialized form of the details.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The cinema where the showtime is at.
+         */
+        private Cinema cinema;
+
+        /**
+         * The seating of the showtime.
+         */
+        private ShowtimeSeating seating;
+
+        /**
+         * The language of the showtime.
+         */
+        private Language language;
+
+        /**
+         * The starting time of the showtime.
+         */
+        private Date startTime;
+
+        /**
+         * Whether the showtime can use coupons.
+         */
+        private boolean noFreePasses;
+
+        /**
+         * The subtitles of the showtime.
+         */
+        private List<Language> subtitles;
+
+        /**
+         * Whether the showtime is cancelled.
+         */
+        private boolean cancelled;
+
+        /**
+         * Creates the first details of a showtime.
+         * @param cinema The cinema where the showtime is at.
+         * @param seating The seating of the showtime.
+         * @param language The language of the showtime.
+         * @param startTime The starting time of the showtime.
+         * @param noFreePasses Whether the showtime can use coupons.
+         * @param subtitles The subtitles of the showtime.
+         */
+        private Details(Cinema cinema, ShowtimeSeating seating, Language language, Date startTime,
+                        boolean noFreePasses, Language[] subtitles) {
+            this.cinema = cinema;
+            this.seating = seating;
+            this.language = language;
+            this.startTime = startTime;
+            this.noFreePasses = noFreePasses;
+            this.subtitles = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(subtitles)));
+            this.cancelled = false;
+        }
+
+        /**
+         * Creates the next details of a showtime from a copy of the given details.
+         * @param previous The details this revision is copied from.
+         */
+        private Details(Details previous) {
+            super(previous);
+            this.cinema = previous.cinema;
+            this.seating = previous.seating;
+            this.language = previous.language;
+            this.startTime = previous.startTime;
+            this.noFreePasses = previous.noFreePasses;
+            this.subtitles = previous.subtitles;
+            this.cancelled = previous.cancelled;
+        }
+
+        /**
+         * Gets the cinema of the showtime.
+         * @return the cinema of the showtime.
+         */
+        public Cinema getCinema() {
+            return cinema;
+        }
+
+        /**
+         * Gets the language of the showtime.
+         * @return the language of the showtime.
+         */
+        public Language getLanguage() {
+            return language;
+        }
+
+        /**
+         * Gets the starting time of the showtime.
+         * @return the starting time of the showtime.
+         */
+        public Date getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * Checks whether the showtime does not allow free pass.
+         * @return true if the showtime does not allow free pass.
+         */
+        public boolean isNoFreePasses() {
+            return noFreePasses;
+        }
+
+        /**
+         * Gets the subtitles of the showtime.
+         * @return the subtitles of the showtime.
+         */
+        public List<Language> getSubtitles() {
+            return subtitles;
+        }
+
+        /**
+         * Checks whether the showtime is cancelled.
+         * @return true if the showtime is cancelled.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
 }
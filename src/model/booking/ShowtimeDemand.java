@@ -0,0 +1,101 @@
+package model.booking;
+
+import model.cineplex.CinemaType;
+import model.commons.Language;
+import model.movie.Movie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents how many showtimes of a movie each cineplex should have in a week, and in which types of cinemas.
+ *
+ * @version 1.0
+ * @since 2017-11-26
+ */
+public class ShowtimeDemand {
+
+    /**
+     * The movie to be shown.
+     */
+    private Movie movie;
+
+    /**
+     * The number of showtimes of the movie each cineplex should have in the week.
+     */
+    private int showtimesPerWeek;
+
+    /**
+     * The types of cinemas the movie can be shown in, which is empty if it can be shown in any.
+     */
+    private List<CinemaType> cinemaTypes;
+
+    /**
+     * The language of the showtimes of the movie.
+     */
+    private Language language;
+
+    /**
+     * Creates the demand for the showtimes of a movie.
+     *
+     * @param movie            The movie to be shown.
+     * @param showtimesPerWeek The number of showtimes of the movie each cineplex should have in the week.
+     * @param language         The language of the showtimes of the movie.
+     * @param cinemaTypes      The types of cinemas the movie can be shown in, or none if it can be shown in any.
+     */
+    public ShowtimeDemand(Movie movie, int showtimesPerWeek, Language language, CinemaType... cinemaTypes) {
+        this.movie = movie;
+        this.showtimesPerWeek = showtimesPerWeek;
+        this.language = language;
+        this.cinemaTypes = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(cinemaTypes)));
+    }
+
+    /**
+     * Gets the movie to be shown.
+     *
+     * @return the movie to be shown.
+     */
+    public Movie getMovie() {
+        return movie;
+    }
+
+    /**
+     * Gets the number of showtimes of the movie each cineplex should have in the week.
+     *
+     * @return the number of showtimes of the movie each cineplex should have in the week.
+     */
+    public int getShowtimesPerWeek() {
+        return showtimesPerWeek;
+    }
+
+    /**
+     * Gets the language of the showtimes of the movie.
+     *
+     * @return the language of the showtimes of the movie.
+     */
+    public Language getLanguage() {
+        return language;
+    }
+
+    /**
+     * Gets the types of cinemas the movie can be shown in.
+     *
+     * @return the unmodifiable list of the types of cinemas the movie can be shown in, which is empty if it can be
+     * shown in any.
+     */
+    public List<CinemaType> getCinemaTypes() {
+        return cinemaTypes;
+    }
+
+    /**
+     * Checks whether the movie can be shown in a type of cinema.
+     *
+     * @param cinemaType The type of the cinema.
+     * @return true if the movie can be shown in the type of cinema.
+     */
+    public boolean isShownIn(CinemaType cinemaType) {
+        return cinemaTypes.isEmpty() || cinemaTypes.contains(cinemaType);
+    }
+}
@@ -0,0 +1,139 @@
+package model.booking;
+
+import model.cineplex.Cinema;
+import model.cineplex.Cineplex;
+import model.commons.Language;
+import model.movie.Movie;
+
+import java.util.Date;
+
+/**
+ * Represents a showtime that is yet to be created, with the information it is to be created with.
+ * Drafts are checked against each other and against the showtimes already scheduled before any of them is
+ * created, so a whole schedule is created at once.
+ *
+ * @version 1.0
+ * @since 2017-11-26
+ */
+public class ShowtimeDraft {
+
+    /**
+     * The movie to be shown.
+     */
+    private Movie movie;
+
+    /**
+     * The cineplex where the showtime is to be at.
+     */
+    private Cineplex cineplex;
+
+    /**
+     * The cinema where the showtime is to be at.
+     */
+    private Cinema cinema;
+
+    /**
+     * The language of the showtime.
+     */
+    private Language language;
+
+    /**
+     * The starting time of the showtime.
+     */
+    private Date startTime;
+
+    /**
+     * Whether the showtime can use coupons.
+     */
+    private boolean noFreePasses;
+
+    /**
+     * The subtitles of the showtime.
+     */
+    private Language[] subtitles;
+
+    /**
+     * Creates a draft of a showtime with the given information.
+     *
+     * @param movie        The movie to be shown.
+     * @param cineplex     The cineplex where the showtime is to be at.
+     * @param cinema       The cinema where the showtime is to be at.
+     * @param language     The language of the showtime.
+     * @param startTime    The starting time of the showtime.
+     * @param noFreePasses Whether the showtime can use coupons.
+     * @param subtitles    The subtitles of the showtime.
+     */
+    public ShowtimeDraft(Movie movie, Cineplex cineplex, Cinema cinema, Language language, Date startTime,
+                         boolean noFreePasses, Language[] subtitles) {
+        this.movie = movie;
+        this.cineplex = cineplex;
+        this.cinema = cinema;
+        this.language = language;
+        this.startTime = startTime;
+        this.noFreePasses = noFreePasses;
+        this.subtitles = subtitles;
+    }
+
+    /**
+     * Gets the movie to be shown.
+     *
+     * @return the movie to be shown.
+     */
+    public Movie getMovie() {
+        return movie;
+    }
+
+    /**
+     * Gets the cineplex where the showtime is to be at.
+     *
+     * @return the cineplex where the showtime is to be at.
+     */
+    public Cineplex getCineplex() {
+        return cineplex;
+    }
+
+    /**
+     * Gets the cinema where the showtime is to be at.
+     *
+     * @return the cinema where the showtime is to be at.
+     */
+    public Cinema getCinema() {
+        return cinema;
+    }
+
+    /**
+     * Gets the language of the showtime.
+     *
+     * @return the language of the showtime.
+     */
+    public Language getLanguage() {
+        return language;
+    }
+
+    /**
+     * Gets the starting time of the showtime.
+     *
+     * @return the starting time of the showtime.
+     */
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Checks whether the showtime can use coupons.
+     *
+     * @return true if the showtime cannot use coupons.
+     */
+    public boolean isNoFreePasses() {
+        return noFreePasses;
+    }
+
+    /**
+     * Gets the subtitles of the showtime.
+     *
+     * @return the subtitles of the showtime.
+     */
+    public Language[] getSubtitles() {
+        return subtitles;
+    }
+}
@@ -0,0 +1,132 @@
+package model.booking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Represents the outcome of importing a batch of showtimes. A batch is committed as a whole, so either every row
+ * is created or, if any row is rejected, none is and every rejected row is reported with the reason.
+ *
+ * @version 1.0
+ * @since 2017-11-26
+ */
+public class ShowtimeImportReport {
+
+    /**
+     * The number of rows in the batch.
+     */
+    private int rowCount;
+
+    /**
+     * The showtimes created, which is empty if any row is rejected.
+     */
+    private List<Showtime> showtimes;
+
+    /**
+     * The rows rejected, in the order of the rows.
+     */
+    private List<Rejection> rejections;
+
+    /**
+     * Creates the report of an import.
+     *
+     * @param rowCount   The number of rows in the batch.
+     * @param showtimes  The showtimes created.
+     * @param rejections The rows rejected.
+     */
+    public ShowtimeImportReport(int rowCount, List<Showtime> showtimes, List<Rejection> rejections) {
+        this.rowCount = rowCount;
+        this.showtimes = Collections.unmodifiableList(new ArrayList<>(showtimes));
+        ArrayList<Rejection> sortedRejections = new ArrayList<>(rejections);
+        sortedRejections.sort(Comparator.comparingInt(Rejection::getRow));
+        this.rejections = Collections.unmodifiableList(sortedRejections);
+    }
+
+    /**
+     * Gets the number of rows in the batch.
+     *
+     * @return the number of rows in the batch.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the showtimes created.
+     *
+     * @return the unmodifiable list of the showtimes created, which is empty if any row is rejected.
+     */
+    public List<Showtime> getShowtimes() {
+        return showtimes;
+    }
+
+    /**
+     * Gets the rows rejected.
+     *
+     * @return the unmodifiable list of the rows rejected, in the order of the rows.
+     */
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Checks whether the batch is committed.
+     *
+     * @return true if no row is rejected, so every row is created.
+     */
+    public boolean isCommitted() {
+        return rejections.isEmpty();
+    }
+
+    /**
+     * Represents a row of a batch that is rejected, with the reason it is rejected.
+     */
+    public static class Rejection {
+
+        /**
+         * The number of the row, counted from 1.
+         */
+        private int row;
+
+        /**
+         * The reason the row is rejected.
+         */
+        private String reason;
+
+        /**
+         * Creates the rejection of a row.
+         *
+         * @param row    The number of the row, counted from 1.
+         * @param reason The reason the row is rejected.
+         */
+        public Rejection(int row, String reason) {
+            this.row = row;
+            this.reason = reason;
+        }
+
+        /**
+         * Gets the number of the row.
+         *
+         * @return the number of the row, counted from 1.
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Gets the reason the row is rejected.
+         *
+         * @return the reason the row is rejected.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + row + ": " + reason;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package model.booking;
+
+import config.BookingConfig;
+
+/**
+ * Represents the occupancy of the seating of a showtime at one moment, which is the number of its seats in each
+ * status. The numbers of a single occupancy always add up to the number of seats.
+ *
+ * @version 1.0
+ * @since 2017-11-26
+ */
+public class ShowtimeOccupancy {
+
+    /**
+     * The number of seats of the showtime.
+     */
+    private int seatCount;
+
+    /**
+     * The number of seats held for bookings in progress.
+     */
+    private int heldCount;
+
+    /**
+     * The number of seats taken by confirmed bookings.
+     */
+    private int takenCount;
+
+    /**
+     * Creates the occupancy of a showtime.
+     *
+     * @param seatCount  The number of seats of the showtime.
+     * @param heldCount  The number of seats held for bookings in progress.
+     * @param takenCount The number of seats taken by confirmed bookings.
+     */
+    public ShowtimeOccupancy(int seatCount, int heldCount, int takenCount) {
+        this.seatCount = seatCount;
+        this.heldCount = heldCount;
+        this.takenCount = takenCount;
+    }
+
+    /**
+     * Gets the number of seats of the showtime.
+     *
+     * @return the number of seats of the showtime.
+     */
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    /**
+     * Gets the number of seats that are available.
+     *
+     * @return the number of seats that are neither held nor taken.
+     */
+    public int getAvailableCount() {
+        return Math.max(0, seatCount - heldCount - takenCount);
+    }
+
+    /**
+     * Gets the number of seats held for bookings in progress.
+     *
+     * @return the number of seats held for bookings in progress.
+     */
+    public int getHeldCount() {
+        return heldCount;
+    }
+
+    /**
+     * Gets the number of seats taken by confirmed bookings.
+     *
+     * @return the number of seats taken by confirmed bookings.
+     */
+    public int getTakenCount() {
+        return takenCount;
+    }
+
+    /**
+     * Gets the percentage of seats that are held or taken.
+     *
+     * @return the percentage of seats that are not available, or 0 if the showtime has no seats.
+     */
+    public int getFillPercent() {
+        return seatCount == 0 ? 0 : (heldCount + takenCount) * 100 / seatCount;
+    }
+
+    /**
+     * Checks whether the showtime is selling fast, which is when the percentage of seats that are held or taken
+     * has reached the percentage set in the booking configuration and some seats are still available.
+     *
+     * @return true if the showtime is selling fast.
+     */
+    public boolean isSellingFast() {
+        return getAvailableCount() > 0 && getFillPercent() >= BookingConfig.getSellingFastPercent();
+    }
+
+    /**
+     * Checks whether the showtime is sold out.
+     *
+     * @return true if no seats are available.
+     */
+    public boolean isSoldOut() {
+        return getAvailableCount() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return getAvailableCount() + " of " + seatCount + " seats left";
+    }
+}
@@ -1,13 +1,44 @@
 package model.booking;
 
 import exception.IllegalActionException;
+import model.cineplex.CinemaLayout;
 import model.cineplex.Seat;
+import persistence.SeatInventory;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.Hashtable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a seating of a showtime, consisting the all seats and their status.
+ * The status of each seat is two bits of an atomic array of words, so seats are claimed without locking.
+ * Every change is written through to the seat inventory if one is opened, until the seating is released
+ * from it once the showtime is cancelled or over.
+ * <p>
+ * The cells of the layout are indexed row by row as slots, {@code (row - 'A') * maxColumn + (column - 1)}.
+ * A seat is looked up by its slot in a dense array, and the seats in a status are counted a word at a time,
+ * so neither allocates. The best available seats for a party are found from a bitmap of the free seats of every
+ * row, built a word of statuses at a time.
+ * <p>
+ * The seats are those of the interned cinema layout, and the masks of the seats in each word are computed once
+ * for each distinct layout and shared by all its showtimes, so a showtime only keeps the statuses of its seats.
+ * Without a seat inventory, the statuses are only kept in the atomic array.
+ * <p>
+ * The number of held and taken seats is counted as the statuses change, both in a single atomic word,
+ * so the occupancy of the showtime is read without looking at its seats and is never torn.
  *
  * @version 1.0
  * @since 2017-10-20
@@ -15,21 +46,149 @@ import java.util.Hashtable;
 public class ShowtimeSeating implements Serializable {
 
     /**
-     * A hashtable with seat as the key and its status as the value.
+     * The number of bits of the status of each seat.
      */
-    private Hashtable<Seat, SeatingStatus> seatings;
+    private static final int BITS_PER_SEAT = 2;
+
+    /**
+     * The number of seat statuses in each word of the atomic array.
+     */
+    private static final int SEATS_PER_WORD = Integer.SIZE / BITS_PER_SEAT;
+
+    /**
+     * The mask of the bits of a single seat status.
+     */
+    private static final int STATUS_MASK = (1 << BITS_PER_SEAT) - 1;
+
+    /**
+     * The mask of the high bit of every seat status in a word, which is set for a held seat.
+     */
+    private static final int HELD_BITS = 0xAAAAAAAA;
+
+    /**
+     * The mask of the low bit of every seat status in a word.
+     */
+    private static final int LOW_BITS = 0x55555555;
+
+    /**
+     * The seating statuses by ordinal, shared so that decoding a status does not copy them.
+     */
+    private static final SeatingStatus[] SEATING_STATUSES = SeatingStatus.values();
+
+    /**
+     * A concurrent hash map with the ID of each cinema layout as the key and its slot index as the value.
+     */
+    private static final ConcurrentHashMap<Integer, SlotIndex> SLOT_INDEXES = new ConcurrentHashMap<>();
+
+    /**
+     * The cinema layout of the showtime.
+     */
+    private CinemaLayout layout;
+
+    /**
+     * The seat inventory the statuses are kept in, or null if they are kept on the heap.
+     */
+    private SeatInventory inventory;
+
+    /**
+     * The ID of the showtime.
+     */
+    private UUID showtimeId;
+
+    /**
+     * The buffer the statuses are written through to, in the byte order of the seat inventory,
+     * or null if they are kept on the heap.
+     */
+    private volatile ByteBuffer statusBuffer;
+
+    /**
+     * The atomic array of the status of every cell of the layout, row by row, as the authority on the statuses.
+     */
+    private AtomicIntegerArray statuses;
+
+    /**
+     * The slot index of the cinema layout, shared by every showtime in a cinema of the same layout.
+     */
+    private SlotIndex index;
+
+    /**
+     * The number of taken seats in the high half and the number of held seats in the low half.
+     */
+    private AtomicLong occupancy;
 
     /**
      * Creates a showtime seating for the given showtime.
      * The seating will be all the seats in the cineplex layout of the assigned cineplex of the showtime.
-     * All seats are set to be available when initially created.
+     * All seats are available when initially created, while a showtime already in the seat inventory
+     * keeps the statuses of its seats. Seats held by a booking are released, as no hold outlives the session
+     * that made it.
      *
      * @param showtime the showtime seating of which to be creates of.
      */
     public ShowtimeSeating(Showtime showtime) {
-        seatings = new Hashtable<>();
-        for (Seat seat : showtime.getCinema().getLayout().getSeats())
-            seatings.put(seat, SeatingStatus.AVAILABLE);
+        this(showtime.getId(), showtime.getCinema().getLayout());
+    }
+
+    /**
+     * Creates a showtime seating for the showtime of the given ID in a cinema of the given layout,
+     * before the showtime has the cinema.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @param layout The layout of the cinema of the showtime.
+     */
+    public ShowtimeSeating(UUID showtimeId, CinemaLayout layout) {
+        this(showtimeId, layout, true);
+    }
+
+    /**
+     * Creates a showtime seating for the showtime of the given ID in a cinema of the given layout, either loaded
+     * from the seat inventory or with all seats available on the heap until it is attached to the inventory.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @param layout The layout of the cinema of the showtime.
+     * @param attached Whether the statuses are loaded from the seat inventory.
+     */
+    ShowtimeSeating(UUID showtimeId, CinemaLayout layout, boolean attached) {
+        this.showtimeId = showtimeId;
+        this.layout = layout;
+        index = SLOT_INDEXES.computeIfAbsent(layout.getId(), id -> new SlotIndex(layout));
+        statuses = new AtomicIntegerArray(index.seatMasks.length);
+        occupancy = new AtomicLong();
+        inventory = SeatInventory.getInstance();
+        if (inventory != null && attached)
+            load(showtimeId);
+    }
+
+    /**
+     * Allocates the statuses of the seats in the seat inventory and loads those already kept there,
+     * releasing the seats that were held.
+     *
+     * @param showtimeId The ID of the showtime.
+     */
+    private void load(UUID showtimeId) {
+        try {
+            statusBuffer = inventory.allocate(showtimeId, layout);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        statusBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        for (int word = 0; word < statuses.length(); word++) {
+            int bits = statusBuffer.getInt(word * Integer.BYTES);
+            int heldBits = bits & HELD_BITS & ~(bits << 1);
+            statuses.set(word, bits & ~heldBits);
+            if (heldBits != 0)
+                writeThrough(word);
+        }
+        occupancy.set(getOccupancyBits(SeatingStatus.TAKEN, getSeatCount(SeatingStatus.TAKEN)));
+    }
+
+    /**
+     * Gets the cinema layout of this showtime seating.
+     *
+     * @return the cinema layout of the showtime.
+     */
+    public CinemaLayout getLayout() {
+        return layout;
     }
 
     /**
@@ -40,10 +199,11 @@ public class ShowtimeSeating implements Serializable {
      * @throws IllegalActionException if the seat is not in this showtime seating.
      */
     public SeatingStatus getSeatingStatus(Seat seat) throws IllegalActionException {
-        SeatingStatus seatingStatus = seatings.get(seat);
-        if (seatingStatus == null)
+        if (!hasSeat(seat))
             throw new IllegalActionException("This seat is not found in this showtime's seating");
-        return seatingStatus;
+        int slot = getSlot(seat.getRow(), seat.getColumn());
+        int bits = statuses.get(slot / SEATS_PER_WORD) >>> getShift(slot);
+        return SEATING_STATUSES[bits & STATUS_MASK];
     }
 
     /**
@@ -64,10 +224,122 @@ public class ShowtimeSeating implements Serializable {
      * @return the seat by the given row and column.
      */
     public Seat getSeatAt(char row, int column) throws IllegalActionException {
-        for (Seat seat : seatings.keySet())
-            if (seat.getRow() == row && seat.getColumn() == column)
-                return seat;
-        return null;
+        return layout.getSeatAt(row, column);
+    }
+
+    /**
+     * Finds the best available seats for a party, next to each other in the same row. The seats of a row are
+     * contiguous when no aisle or unavailable seat is between them. The best seats are the closest to the centre
+     * of the hall, in line with the centre of the screen and halfway back from it, and the front-most and then
+     * left-most of equally close seats are chosen.
+     * <p>
+     * A bitmap of the free seats of each row is built from the statuses, and each run of free seats in a row is
+     * found with a bit scan. The best place for the party in a run is the centre of the row clamped to the run,
+     * so each run is scored once however long it is. The seats found are not held, so they may be taken
+     * before they are claimed.
+     *
+     * @param count The number of seats of the party.
+     * @return the best seats next to each other from left to right, or an empty list if no row has enough
+     * free seats next to each other.
+     */
+    public List<Seat> findBestAvailable(int count) {
+        int maxColumn = layout.getMaxColumn();
+        if (count < 1 || count > maxColumn)
+            return Collections.emptyList();
+
+        // A bit is set in the bitmap of a row for each of its seats that is available
+        int rowWords = (maxColumn + Long.SIZE - 1) / Long.SIZE;
+        // The free seats are visited in slot order, so the row of each is found by moving on from the last
+        long[] freeBits = new long[index.rowScores.length * rowWords];
+        int slotRow = 0;
+        int rowSlot = 0;
+        for (int word = 0; word < index.seatMasks.length; word++) {
+            int bits = statuses.get(word);
+            int free = ~bits & ~(bits >>> 1) & LOW_BITS & index.seatMasks[word];
+            while (free != 0) {
+                int slot = word * SEATS_PER_WORD + Integer.numberOfTrailingZeros(free) / BITS_PER_SEAT;
+                while (slot - rowSlot >= maxColumn) {
+                    slotRow++;
+                    rowSlot += maxColumn;
+                }
+                int column = slot - rowSlot;
+                freeBits[slotRow * rowWords + column / Long.SIZE] |= 1L << column;
+                free &= free - 1;
+            }
+        }
+
+        // The centre of the run of seats is closest to the centre of the row when it starts here
+        int centreStart = (maxColumn - count) / 2;
+        int bestScore = Integer.MAX_VALUE;
+        int bestSlot = -1;
+        // The rows get closer to the middle and then further, so no later row can beat a row scored as far
+        for (int row = 0; row < index.rowScores.length && index.rowScores[row] < bestScore; row++) {
+            int rowBase = row * rowWords;
+            int start = nextBit(freeBits, rowBase, rowWords, 0, true);
+            while (start < maxColumn) {
+                int end = Math.min(maxColumn, nextBit(freeBits, rowBase, rowWords, start, false));
+                if (end - start >= count) {
+                    int column = Math.max(start, Math.min(centreStart, end - count));
+                    int offset = 2 * column + count - maxColumn;
+                    int score = index.rowScores[row] + offset * offset;
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestSlot = row * maxColumn + column;
+                    }
+                }
+                start = end < maxColumn ? nextBit(freeBits, rowBase, rowWords, end, true) : maxColumn;
+            }
+        }
+        if (bestSlot < 0)
+            return Collections.emptyList();
+        Seat[] bestSeats = new Seat[count];
+        for (int i = 0; i < count; i++)
+            bestSeats[i] = layout.getSeatAt((char) ('A' + bestSlot / maxColumn), bestSlot % maxColumn + 1 + i);
+        return Collections.unmodifiableList(Arrays.asList(bestSeats));
+    }
+
+    /**
+     * Finds the next set or clear bit of the bitmap of a row, from a column onwards.
+     *
+     * @param bits The bitmaps of all the rows.
+     * @param base The index of the first word of the row.
+     * @param words The number of words of each row.
+     * @param from The column to search from.
+     * @param set Whether a set bit is searched for rather than a clear one.
+     * @return the column of the bit found, or the number of bits of the row if there is none.
+     */
+    private static int nextBit(long[] bits, int base, int words, int from, boolean set) {
+        int word = from / Long.SIZE;
+        if (word >= words)
+            return words * Long.SIZE;
+        long remaining = (set ? bits[base + word] : ~bits[base + word]) & -1L << from;
+        while (remaining == 0) {
+            if (++word == words)
+                return words * Long.SIZE;
+            remaining = set ? bits[base + word] : ~bits[base + word];
+        }
+        return word * Long.SIZE + Long.numberOfTrailingZeros(remaining);
+    }
+
+    /**
+     * Counts the seats in a status, a word of statuses at a time.
+     *
+     * @param seatingStatus The status of the seats to be counted.
+     * @return the number of seats in the status.
+     */
+    public int getSeatCount(SeatingStatus seatingStatus) {
+        int statusBits = seatingStatus.ordinal();
+        int count = 0;
+        for (int word = 0; word < index.seatMasks.length; word++) {
+            int bits = statuses.get(word);
+            int lowBits = bits & LOW_BITS;
+            int highBits = bits >>> 1 & LOW_BITS;
+            // Each seat whose low and high bits both match the status leaves its low bit set
+            int matches = ((statusBits & 1) == 0 ? ~lowBits : lowBits)
+                    & ((statusBits & 2) == 0 ? ~highBits : highBits);
+            count += Integer.bitCount(matches & index.seatMasks[word]);
+        }
+        return count;
     }
 
     /**
@@ -80,7 +352,186 @@ public class ShowtimeSeating implements Serializable {
     public void setSeatingStatus(Seat seat, SeatingStatus seatingStatus) throws IllegalActionException {
         if (!hasSeat(seat))
             throw new IllegalActionException("This seat is not found in this showtime's seating");
-        seatings.put(seat, seatingStatus);
+        int slot = getSlot(seat.getRow(), seat.getColumn());
+        int word = slot / SEATS_PER_WORD;
+        int shift = getShift(slot);
+        int current;
+        do {
+            current = statuses.get(word);
+        } while (!statuses.compareAndSet(word, current,
+                current & ~(STATUS_MASK << shift) | seatingStatus.ordinal() << shift));
+        writeThrough(word);
+        count(SEATING_STATUSES[current >>> shift & STATUS_MASK], seatingStatus, 1);
+    }
+
+    /**
+     * Claims all the given seats at once, changing each of them from one status to another.
+     * The seats are claimed a word at a time with a compare-and-set, so no lock is taken. If any seat is not
+     * in the expected status, the seats already claimed are released again and none of the seats are changed.
+     *
+     * @param seats The seats to be claimed.
+     * @param from  The status every seat must be in to be claimed.
+     * @param to    The status the claimed seats are changed to.
+     * @return true if all the seats are claimed, or false if none are because one of them is not in the status.
+     * @throws IllegalActionException if a seat is not in this showtime seating.
+     */
+    public boolean claimSeats(Collection<Seat> seats, SeatingStatus from, SeatingStatus to)
+            throws IllegalActionException {
+
+        // Group the seats by the word their status is in, so each word is claimed by a single compare-and-set
+        TreeMap<Integer, int[]> masks = new TreeMap<>();
+        for (Seat seat : seats) {
+            if (!hasSeat(seat))
+                throw new IllegalActionException("This seat is not found in this showtime's seating");
+            int slot = getSlot(seat.getRow(), seat.getColumn());
+            int[] mask = masks.computeIfAbsent(slot / SEATS_PER_WORD, word -> new int[2]);
+            int shift = getShift(slot);
+            if ((mask[0] & STATUS_MASK << shift) != 0)
+                return false;
+            mask[0] |= STATUS_MASK << shift;
+            mask[1] |= from.ordinal() << shift ^ to.ordinal() << shift;
+        }
+
+        ArrayList<Integer> claimedWords = new ArrayList<>(masks.size());
+        for (Map.Entry<Integer, int[]> entry : masks.entrySet()) {
+            int word = entry.getKey();
+            int mask = entry.getValue()[0];
+            int expected = expand(from, mask);
+            int current;
+            boolean claimed;
+            do {
+                current = statuses.get(word);
+                claimed = (current & mask) == expected;
+            } while (claimed && !statuses.compareAndSet(word, current, current ^ entry.getValue()[1]));
+            if (!claimed) {
+                for (int claimedWord : claimedWords)
+                    release(claimedWord, masks.get(claimedWord)[1]);
+                return false;
+            }
+            claimedWords.add(word);
+        }
+        for (int word : claimedWords)
+            writeThrough(word);
+        count(from, to, seats.size());
+        return true;
+    }
+
+    /**
+     * Gets the occupancy of this showtime seating from the counts of held and taken seats, without reading
+     * the status of any seat.
+     *
+     * @return the number of seats in each status.
+     */
+    public ShowtimeOccupancy getOccupancy() {
+        // A seat may be counted out of a status just before it is counted into it, so a half may be briefly negative
+        long bits = occupancy.get();
+        int heldCount = (int) bits;
+        int takenCount = (int) ((bits - heldCount) >> Integer.SIZE);
+        return new ShowtimeOccupancy(index.seatCount, Math.max(0, heldCount), Math.max(0, takenCount));
+    }
+
+    /**
+     * Counts seats changed from one status to another.
+     *
+     * @param from  The status the seats were in.
+     * @param to    The status the seats are changed to.
+     * @param count The number of seats changed.
+     */
+    private void count(SeatingStatus from, SeatingStatus to, int count) {
+        if (from != to)
+            occupancy.addAndGet(getOccupancyBits(to, count) - getOccupancyBits(from, count));
+    }
+
+    /**
+     * Gets the bits of the occupancy that count a number of seats in a status.
+     *
+     * @param seatingStatus The status of the seats.
+     * @param count         The number of seats.
+     * @return the bits of the count in the half of the status, or 0 for available seats, which are not counted.
+     */
+    private static long getOccupancyBits(SeatingStatus seatingStatus, int count) {
+        switch (seatingStatus) {
+            case HELD:
+                return count;
+            case TAKEN:
+                return (long) count << Integer.SIZE;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Releases the seats of a word claimed by a claim that failed, flipping their status bits back.
+     *
+     * @param word The index of the word.
+     * @param flip The bits the claim flipped.
+     */
+    private void release(int word, int flip) {
+        int current;
+        do {
+            current = statuses.get(word);
+        } while (!statuses.compareAndSet(word, current, current ^ flip));
+    }
+
+    /**
+     * Writes a word of the statuses through to the buffer, if there is one. The latest value of the word is read
+     * under the lock, so the last write of a word always carries every change made to it before.
+     *
+     * @param word The index of the word.
+     */
+    private void writeThrough(int word) {
+        ByteBuffer buffer = statusBuffer;
+        if (buffer == null)
+            return;
+        synchronized (buffer) {
+            if (statusBuffer == buffer)
+                buffer.putInt(word * Integer.BYTES, statuses.get(word));
+        }
+    }
+
+    /**
+     * Releases the statuses of the seats from the seat inventory, so that its region is given to another showtime.
+     * The statuses are kept on the heap from then on, so the seating can still be read and changed.
+     */
+    public void release() {
+        ByteBuffer buffer = statusBuffer;
+        if (buffer == null)
+            return;
+        synchronized (buffer) {
+            statusBuffer = null;
+            inventory.release(showtimeId);
+        }
+    }
+
+    /**
+     * Attaches a seating kept on the heap to a region of the seat inventory allocated for it, writing its statuses
+     * through from then on. The showtime must have no other seating attached, or it would be given that region.
+     */
+    void attach() {
+        if (inventory == null || statusBuffer != null)
+            return;
+        ByteBuffer buffer;
+        try {
+            buffer = inventory.allocate(showtimeId, layout);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        // The buffer is set before the words are copied, so a change the copy misses is written through
+        synchronized (buffer) {
+            statusBuffer = buffer;
+            for (int word = 0; word < statuses.length(); word++)
+                buffer.putInt(word * Integer.BYTES, statuses.get(word));
+        }
+    }
+
+    /**
+     * Forces the statuses of the seats to disk, if they are kept in the seat inventory.
+     */
+    public void force() {
+        if (inventory != null)
+            inventory.force();
     }
 
     /**
@@ -90,6 +541,82 @@ public class ShowtimeSeating implements Serializable {
      * @return true if this showtime seating contains the seat.
      */
     public boolean hasSeat(Seat seat) {
-        return seatings.containsKey(seat);
+        Seat layoutSeat = getSeatAt(seat.getRow(), seat.getColumn());
+        return layoutSeat == seat || layoutSeat != null && layoutSeat.equals(seat);
+    }
+
+    /**
+     * Gets the slot of the status of the cell at the given row and column.
+     *
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @return the index of the cell in the layout, row by row.
+     */
+    private int getSlot(char row, int column) {
+        return (row - 'A') * layout.getMaxColumn() + (column - 1);
+    }
+
+    /**
+     * Gets the position of the status of a slot within its word.
+     *
+     * @param slot The slot of the cell.
+     * @return the number of bits the status is shifted by in its word.
+     */
+    private static int getShift(int slot) {
+        return slot % SEATS_PER_WORD * BITS_PER_SEAT;
+    }
+
+    /**
+     * Repeats a status in every seat of a mask.
+     *
+     * @param status The status to be repeated.
+     * @param mask   The mask of the bits of the seats.
+     * @return the bits of the status in every seat of the mask.
+     */
+    private static int expand(SeatingStatus status, int mask) {
+        int bits = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += BITS_PER_SEAT)
+            bits |= status.ordinal() << shift;
+        return bits & mask;
+    }
+
+    /**
+     * Represents the slot index of a cinema layout, which is the same for every showtime in a cinema of the layout.
+     */
+    private static class SlotIndex {
+
+        /**
+         * The number of seats of the layout.
+         */
+        private int seatCount;
+
+        /**
+         * The low bit of the status of every seat in each word, without the slots that are not seats.
+         */
+        private int[] seatMasks;
+
+        /**
+         * The squared distance of every row from the middle row, in half rows, precomputed for scoring seats.
+         */
+        private int[] rowScores;
+
+        /**
+         * Creates the slot index of a cinema layout.
+         *
+         * @param layout The cinema layout.
+         */
+        private SlotIndex(CinemaLayout layout) {
+            int rowCount = layout.getMaxRow() - 'A' + 1;
+            int slotCount = rowCount * layout.getMaxColumn();
+            seatMasks = new int[(slotCount + SEATS_PER_WORD - 1) / SEATS_PER_WORD];
+            for (Seat seat : layout.getSeats()) {
+                int slot = (seat.getRow() - 'A') * layout.getMaxColumn() + (seat.getColumn() - 1);
+                seatMasks[slot / SEATS_PER_WORD] |= 1 << getShift(slot);
+            }
+            seatCount = layout.getSeats().length;
+            rowScores = new int[rowCount];
+            for (int row = 0; row < rowCount; row++)
+                rowScores[row] = (2 * row - (rowCount - 1)) * (2 * row - (rowCount - 1));
+        }
     }
 }
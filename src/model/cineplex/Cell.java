@@ -4,13 +4,17 @@ import java.io.Serializable;
 
 /**
  * Represents a cell in the cineplex layout which can be either an empty space or a seat.
+ * A cell is immutable, as it is shared by every cinema of the same layout.
  *
  * @version 1.0
  * @since 2017-10-20
  */
 public class Cell implements Serializable {
 
-    private String CELL_ICON = "   ";
+    /**
+     * The icon of a cell that is an empty space.
+     */
+    private static final String CELL_ICON = "   ";
 
     /**
      * This cell's row character.
@@ -42,15 +46,6 @@ public class Cell implements Serializable {
         return row;
     }
 
-    /**
-     * CHanges this cell's row character.
-     *
-     * @param row this cell's new row character.
-     */
-    public void setRow(char row) {
-        this.row = row;
-    }
-
     /**
      * Gets this cell's colomn number.
      *
@@ -60,15 +55,6 @@ public class Cell implements Serializable {
         return column;
     }
 
-    /**
-     * Changes this cell's column number.
-     *
-     * @param column this cell's new column number.
-     */
-    public void setColumn(int column) {
-        this.column = column;
-    }
-
     /**
      * Compares this cell to another.
      *
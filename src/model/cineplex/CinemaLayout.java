@@ -2,11 +2,18 @@ package model.cineplex;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents the cineplex layout of a cineplex.
+ * <p>
+ * A layout is immutable and interned, so every cinema of the same shape shares a single layout, with a single set
+ * of cells and seats, however many cinemas and showtimes there are. The shape of a layout is encoded as a grid of
+ * one byte per cell, row by row, which is either an aisle or the type of the seat in the cell, and is the key
+ * the layout is interned by. Each distinct layout is given an ID when it is first interned.
  *
  * @version 1.0
  * @since 2017-10-20
@@ -14,9 +21,29 @@ import java.util.List;
 public class CinemaLayout implements Serializable {
 
     /**
-     * A hashtable of the row character as key and array of cells in that row as the value.
+     * The cell type of a cell that is an aisle. Any other cell type is one more than the ordinal of a seat type.
      */
-    private Hashtable<Character, Cell[]> layout;
+    private static final byte AISLE = 0;
+
+    /**
+     * The seat types by ordinal, shared so that decoding a cell type does not copy them.
+     */
+    private static final SeatType[] SEAT_TYPES = SeatType.values();
+
+    /**
+     * A concurrent hash map with the shape of each distinct layout as the key and its interned layout as the value.
+     */
+    private static final ConcurrentHashMap<Shape, CinemaLayout> INTERNED = new ConcurrentHashMap<>();
+
+    /**
+     * The ID to be given to the next distinct layout interned.
+     */
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+
+    /**
+     * The ID of this layout, which is the same for every cinema of the same shape.
+     */
+    private int id;
 
     /**
      * The maximum number of columns in the layout.
@@ -28,90 +55,145 @@ public class CinemaLayout implements Serializable {
      */
     private char maxRow;
 
+    /**
+     * The type of every cell of the layout, row by row, which is either an aisle or one more than a seat type.
+     */
+    private byte[] cellTypes;
+
+    /**
+     * The cell in every slot of the layout, row by row.
+     */
+    private Cell[] cells;
+
+    /**
+     * The seat in every slot of the layout, row by row, or null for a slot that is an aisle.
+     */
+    private Seat[] slotSeats;
+
     /**
      * The array of cells that are seats instead of empty space.
      */
     private Seat[] seats;
 
     /**
-     * Creates a cineplex layout with the given array of seats, maximum number of columns and maximum number of rows.
+     * Creates the interned layout of a shape, decoding its cells and seats from the cell types.
      *
-     * @param seats     an given array of this cineplex layout's seats
-     * @param maxColumn this layout's given maximum number of columns.
-     * @param maxRow    this layout's given maximum number of row.
+     * @param id    The ID of the layout.
+     * @param shape The shape of the layout.
      */
-    public CinemaLayout(Seat[] seats, int maxColumn, char maxRow) {
-        this.layout = new Hashtable<>();
-        this.maxColumn = maxColumn;
-        this.maxRow = maxRow;
-        this.seats = seats;
+    private CinemaLayout(int id, Shape shape) {
+        this.id = id;
+        this.maxColumn = shape.maxColumn;
+        this.maxRow = shape.maxRow;
+        this.cellTypes = shape.cellTypes;
+        this.cells = new Cell[cellTypes.length];
+        this.slotSeats = new Seat[cellTypes.length];
 
-        // Create a matrix of cells according to the maximum number of columns and maximum number of row.
-        for (char row = 'A'; row <= maxRow; row++) {
-            Cell[] rowCells = new Cell[maxColumn];
-            for (int column = 1; column <= maxColumn; column++)
-                rowCells[column - 1] = new Cell(row, column);
-            this.layout.put(row, rowCells);
+        ArrayList<Seat> seats = new ArrayList<>();
+        for (int slot = 0; slot < cells.length; slot++) {
+            char row = (char) ('A' + slot / maxColumn);
+            int column = slot % maxColumn + 1;
+            if (cellTypes[slot] == AISLE)
+                cells[slot] = new Cell(row, column);
+            else {
+                Seat seat = new Seat(row, column, SEAT_TYPES[cellTypes[slot] - 1]);
+                seats.add(seat);
+                cells[slot] = seat;
+                slotSeats[slot] = seat;
+            }
         }
+        this.seats = seats.toArray(new Seat[seats.size()]);
+    }
 
-        // Change a cell to a seat where specified
+    /**
+     * Gets the layout with the given array of seats, maximum number of columns and maximum number of rows.
+     * Every cell that is not one of the seats is an aisle.
+     *
+     * @param seats     an given array of this cineplex layout's seats
+     * @param maxColumn this layout's given maximum number of columns.
+     * @param maxRow    this layout's given maximum number of row.
+     * @return the interned layout of this shape.
+     */
+    public static CinemaLayout of(Seat[] seats, int maxColumn, char maxRow) {
+        byte[] cellTypes = new byte[(maxRow - 'A' + 1) * maxColumn];
         for (Seat seat : seats)
-            this.layout.get(seat.row)[seat.column - 1] = seat;
+            cellTypes[(seat.getRow() - 'A') * maxColumn + (seat.getColumn() - 1)] = encode(seat.getType());
+        return intern(cellTypes, maxColumn, maxRow);
     }
 
-    public CinemaLayout(List<Integer> colAisles, List<Character> rowAisles, int maxColumn, char maxRow) {
-        this.layout = new Hashtable<>();
-        this.maxColumn = maxColumn;
-        this.maxRow = maxRow;
-
+    /**
+     * Gets the layout with the given aisles, maximum number of columns and maximum number of rows.
+     * Every cell that is not in an aisle is a single seat.
+     *
+     * @param colAisles The columns that are aisles, or null if there are none.
+     * @param rowAisles The rows that are aisles, or null if there are none.
+     * @param maxColumn this layout's given maximum number of columns.
+     * @param maxRow    this layout's given maximum number of row.
+     * @return the interned layout of this shape.
+     */
+    public static CinemaLayout of(List<Integer> colAisles, List<Character> rowAisles, int maxColumn, char maxRow) {
         if (colAisles == null)
             colAisles = new ArrayList<>();
 
         if (rowAisles == null)
             rowAisles = new ArrayList<>();
 
-        ArrayList<Seat> seats = new ArrayList<>();
-        for (char row = 'A'; row <= maxRow; row++) {
-            Cell[] rowCells = new Cell[maxColumn];
-            for (int column = 1; column <= maxColumn; column++) {
-                if (colAisles.contains(column) || rowAisles.contains(row))
-                    rowCells[column - 1] = new Cell(row, column);
-                else {
-                    Seat seat = new Seat(row, column, SeatType.SINGLE);
-                    seats.add(seat);
-                    rowCells[column - 1] = seat;
-                }
-            }
-            this.layout.put(row, rowCells);
-        }
-        this.seats = seats.toArray(new Seat[seats.size()]);
+        byte[] cellTypes = new byte[(maxRow - 'A' + 1) * maxColumn];
+        for (char row = 'A'; row <= maxRow; row++)
+            for (int column = 1; column <= maxColumn; column++)
+                if (!colAisles.contains(column) && !rowAisles.contains(row))
+                    cellTypes[(row - 'A') * maxColumn + (column - 1)] = encode(SeatType.SINGLE);
+        return intern(cellTypes, maxColumn, maxRow);
     }
 
     /**
-     * Gets this layout in the form of a hashtable with the row character as the key and array of cells in that row as the value.
+     * Gets the interned layout of a shape, creating it if no layout of the shape has been interned.
      *
-     * @return this layout in the form of a hashtable with the row character as the key and array of cells in that row as the value.
+     * @param cellTypes The type of every cell, row by row.
+     * @param maxColumn The maximum number of columns.
+     * @param maxRow    The maximum row.
+     * @return the interned layout of the shape.
      */
-    public Hashtable<Character, Cell[]> getLayout() {
-        return layout;
+    private static CinemaLayout intern(byte[] cellTypes, int maxColumn, char maxRow) {
+        return INTERNED.computeIfAbsent(new Shape(cellTypes, maxColumn, maxRow),
+                shape -> new CinemaLayout(NEXT_ID.getAndIncrement(), shape));
     }
 
     /**
-     * Gets this layout's maximum column.
+     * Encodes the type of a seat as a cell type.
      *
-     * @return this layout's maximum column.
+     * @param seatType The type of the seat.
+     * @return the cell type of the seat.
      */
-    public int getMaxColumn() {
-        return maxColumn;
+    private static byte encode(SeatType seatType) {
+        return (byte) (seatType.ordinal() + 1);
+    }
+
+    /**
+     * Gets the number of distinct layouts that have been interned.
+     *
+     * @return the number of distinct layouts.
+     */
+    public static int getInternedCount() {
+        return INTERNED.size();
+    }
+
+    /**
+     * Gets the ID of this layout.
+     *
+     * @return the ID of this layout, which is shared by every cinema of the same shape.
+     */
+    public int getId() {
+        return id;
     }
 
     /**
-     * Changes this layout's maximum column.
+     * Gets this layout's maximum column.
      *
-     * @param maxColumn this layout's new maximum column.
+     * @return this layout's maximum column.
      */
-    public void setMaxColumn(int maxColumn) {
-        this.maxColumn = maxColumn;
+    public int getMaxColumn() {
+        return maxColumn;
     }
 
     /**
@@ -124,12 +206,29 @@ public class CinemaLayout implements Serializable {
     }
 
     /**
-     * Changes this layout's maximum row.
+     * Gets the cell at the given row and column.
+     *
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @return the cell at the row and column, or null if it is outside this layout.
+     */
+    public Cell getCellAt(char row, int column) {
+        if (row < 'A' || row > maxRow || column < 1 || column > maxColumn)
+            return null;
+        return cells[(row - 'A') * maxColumn + (column - 1)];
+    }
+
+    /**
+     * Gets the seat at the given row and column.
      *
-     * @param maxRow this layout's new maximum row.
+     * @param row    The row of the seat.
+     * @param column The column of the seat.
+     * @return the seat at the row and column, or null if the cell is an aisle or outside this layout.
      */
-    public void setMaxRow(char maxRow) {
-        this.maxRow = maxRow;
+    public Seat getSeatAt(char row, int column) {
+        if (row < 'A' || row > maxRow || column < 1 || column > maxColumn)
+            return null;
+        return slotSeats[(row - 'A') * maxColumn + (column - 1)];
     }
 
     /**
@@ -142,13 +241,59 @@ public class CinemaLayout implements Serializable {
     }
 
     /**
-     * Changes this layout's array of seats.
+     * Resolves a deserialized layout to the interned layout of its shape.
      *
-     * @param seats this layout's new array of seats.
+     * @return the interned layout of the shape of this layout.
      */
-    public void setSeats(Seat[] seats) {
-        this.seats = seats;
+    private Object readResolve() {
+        return intern(cellTypes, maxColumn, maxRow);
     }
 
+    /**
+     * Represents the shape of a layout, which is its size and the type of every cell.
+     */
+    private static class Shape {
+
+        /**
+         * The type of every cell, row by row.
+         */
+        private byte[] cellTypes;
+
+        /**
+         * The maximum number of columns.
+         */
+        private int maxColumn;
+
+        /**
+         * The maximum row.
+         */
+        private char maxRow;
+
+        /**
+         * Creates the shape of a layout.
+         *
+         * @param cellTypes The type of every cell, row by row.
+         * @param maxColumn The maximum number of columns.
+         * @param maxRow    The maximum row.
+         */
+        private Shape(byte[] cellTypes, int maxColumn, char maxRow) {
+            this.cellTypes = cellTypes;
+            this.maxColumn = maxColumn;
+            this.maxRow = maxRow;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Shape))
+                return false;
+            Shape shape = (Shape) obj;
+            return shape.maxColumn == maxColumn && shape.maxRow == maxRow
+                    && Arrays.equals(shape.cellTypes, cellTypes);
+        }
 
+        @Override
+        public int hashCode() {
+            return (maxRow * 31 + maxColumn) * 31 + Arrays.hashCode(cellTypes);
+        }
+    }
 }
@@ -3,8 +3,8 @@ package model.cineplex;
 import model.booking.Showtime;
 import model.commons.Entity;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a cineplex
@@ -27,14 +27,14 @@ public class Cineplex extends Entity {
     private String address;
 
     /**
-     * This cineplex's array list of cinemas.
+     * This cineplex's copy-on-write list of cinemas.
      */
-    private ArrayList<Cinema> cinemas;
+    private CopyOnWriteArrayList<Cinema> cinemas;
 
     /**
-     * This cineplex's array list of showtimes.
+     * This cineplex's copy-on-write list of showtimes.
      */
-    private ArrayList<Showtime> showtimes;
+    private CopyOnWriteArrayList<Showtime> showtimes;
 
     /**
      * Creates a cineplex with the given name and address.
@@ -44,9 +44,9 @@ public class Cineplex extends Entity {
      */
     public Cineplex(String name, String address) {
         this.name = name;
-        this.cinemas = new ArrayList<>();
+        this.cinemas = new CopyOnWriteArrayList<>();
         this.address = address;
-        this.showtimes = new ArrayList<>();
+        this.showtimes = new CopyOnWriteArrayList<>();
     }
 
     /**
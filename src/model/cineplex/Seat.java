@@ -34,15 +34,6 @@ public class Seat extends Cell {
         return type;
     }
 
-    /**
-     * Changes this seat's seat type.
-     *
-     * @param type This seat's new seat type.
-     */
-    public void setType(SeatType type) {
-        this.type = type;
-    }
-
     /**
      * Compares this seat to another.
      *
@@ -75,7 +66,7 @@ public class Seat extends Cell {
      */
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return row * 31 + column;
     }
 
     @Override
@@ -2,9 +2,15 @@ package model.commons;
 
 import java.io.Serializable;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.UnaryOperator;
 
 /**
  * Represents an entity with an ID.
+ * The state of an entity that is edited concurrently can be kept in a revision, which is never changed once
+ * published. An update builds the next revision and publishes it with a compare-and-set, so a reader never
+ * blocks and never sees an update half applied, and the version of the revision tells whether the entity
+ * has changed since it was read.
  *
  * @version 1.0
  * @since 2017-10-20
@@ -17,6 +23,17 @@ public abstract class Entity implements Serializable {
      */
     protected UUID id;
 
+    /**
+     * The atomic updater of the revision of an entity.
+     */
+    private static final AtomicReferenceFieldUpdater<Entity, Revision> REVISION_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Entity.class, Revision.class, "revision");
+
+    /**
+     * The latest published revision of this entity, or null if its state is not kept in revisions.
+     */
+    private volatile Revision revision;
+
     /**
      * Creates an entity with a system-generated ID number.
      */
@@ -42,6 +59,60 @@ public abstract class Entity implements Serializable {
         this.id = id;
     }
 
+    /**
+     * Gets the version of this entity, which is advanced by every update published.
+     *
+     * @return the version of the latest revision of this entity, or 0 if its state is not kept in revisions.
+     */
+    public long getVersion() {
+        Revision revision = this.revision;
+        return revision == null ? 0 : revision.version;
+    }
+
+    /**
+     * Gets the latest published revision of this entity.
+     *
+     * @return the latest revision of this entity.
+     */
+    protected Revision getRevision() {
+        return revision;
+    }
+
+    /**
+     * Sets the first revision of this entity when it is created.
+     *
+     * @param revision The first revision of this entity.
+     */
+    protected void initRevision(Revision revision) {
+        this.revision = revision;
+    }
+
+    /**
+     * Publishes the next revision of this entity, unless another has been published since the expected one.
+     *
+     * @param expected The revision the next revision is built from.
+     * @param next     The next revision, whose version is one after the expected revision.
+     * @return true if the next revision is published, or false if the entity has changed since.
+     */
+    protected boolean compareAndSetRevision(Revision expected, Revision next) {
+        return REVISION_UPDATER.compareAndSet(this, expected, next);
+    }
+
+    /**
+     * Publishes the next revision of this entity, building it again from the latest revision for as long as
+     * another revision is published first.
+     *
+     * @param update Builds the next revision from the latest revision.
+     * @param <R>    The type of the revisions of this entity.
+     */
+    @SuppressWarnings("unchecked")
+    protected <R extends Revision> void updateRevision(UnaryOperator<R> update) {
+        R current;
+        do {
+            current = (R) revision;
+        } while (!REVISION_UPDATER.compareAndSet(this, current, update.apply(current)));
+    }
+
     /**
      * Compares this entity to another.
      *
@@ -65,4 +136,46 @@ public abstract class Entity implements Serializable {
     public int hashCode() {
         return id.hashCode();
     }
+
+    /**
+     * Represents a revision of the state of an entity. A revision is copied to build the next one,
+     * and is not changed once it is published.
+     */
+    public abstract static class Revision implements Serializable {
+
+        /**
+         * The version of the serialized form of a revision.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The version of this revision.
+         */
+        private long version;
+
+        /**
+         * Creates the first revision of an entity.
+         */
+        protected Revision() {
+            this.version = 1;
+        }
+
+        /**
+         * Creates the next revision of an entity from a copy of the given revision.
+         *
+         * @param previous The revision this revision is copied from.
+         */
+        protected Revision(Revision previous) {
+            this.version = previous.version + 1;
+        }
+
+        /**
+         * Gets the version of this revision.
+         *
+         * @return the version of this revision.
+         */
+        public long getVersion() {
+            return version;
+        }
+    }
 }
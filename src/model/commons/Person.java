@@ -60,7 +60,7 @@ public abstract class Person extends Entity {
      *
      * @param firstName This person's new first name.
      */
-    protected void setFirstName(String firstName) {
+    public void setFirstName(String firstName) {
         this.firstName = firstName;
     }
 
@@ -78,7 +78,7 @@ public abstract class Person extends Entity {
      *
      * @param lastName This person's new last name.
      */
-    protected void setLastName(String lastName) {
+    public void setLastName(String lastName) {
         this.lastName = lastName;
     }
 
@@ -31,7 +31,7 @@ public interface Searchable {
      * @return matched results according to the fuzzySearch algorithm.
      */
     static List<Searchable> fuzzySearch(List<Searchable> searchables, String keyword) {
-        Hashtable<Searchable, Integer> searchResults = new Hashtable<>();
+        HashMap<Searchable, Integer> searchResults = new HashMap<>();
         for (Searchable item: searchables) {
             int minDistance = Integer.MAX_VALUE;
             for (String tag : item.getSearchTags()) {
@@ -5,8 +5,8 @@ import model.booking.BookingStatus;
 import model.movie.Movie;
 import model.movie.MovieReview;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a user of the application, who is the moviegoers that can book tickets and write reviews.
@@ -27,17 +27,17 @@ public class User extends Person {
     private String email;
 
     /**
-     * An array list of movie reviews written by this user.
+     * A copy-on-write list of movie reviews written by this user.
      * An user can write zero or many reviews.
      * A user can only write movie reviews for the movie he or she already booked and watched.
      */
-    private ArrayList<MovieReview> reviews;
+    private CopyOnWriteArrayList<MovieReview> reviews;
 
     /**
-     * An array list of bookings made by this user.
+     * A copy-on-write list of bookings made by this user.
      * An user must have at least one booking.
      */
-    private ArrayList<Booking> bookings;
+    private CopyOnWriteArrayList<Booking> bookings;
 
     /**
      * Creates an user with the first name, last name, mobile number and email address.
@@ -51,8 +51,8 @@ public class User extends Person {
         super(firstName, lastName);
         this.mobile = mobile;
         this.email = email;
-        this.reviews = new ArrayList<MovieReview>();
-        this.bookings = new ArrayList<Booking>();
+        this.reviews = new CopyOnWriteArrayList<>();
+        this.bookings = new CopyOnWriteArrayList<>();
     }
 
     /**
@@ -110,7 +110,7 @@ public class User extends Person {
     }
 
     /**
-     * Add a new movie review written by the user to the array list of movie reviews.
+     * Add a new movie review written by the user to the copy-on-write list of movie reviews.
      *
      * @param movieReview A new movie review written by the user.
      */
@@ -119,7 +119,7 @@ public class User extends Person {
     }
 
     /**
-     * Remove a movie review written by the user from the array list of movie reviews.
+     * Remove a movie review written by the user from the copy-on-write list of movie reviews.
      *
      * @param movieReview the movie review to be removed.
      */
@@ -128,7 +128,7 @@ public class User extends Person {
     }
 
     /**
-     * Add a new booking booked by the user to the array list of bookings.
+     * Add a new booking booked by the user to the copy-on-write list of bookings.
      *
      * @param booking The booking to be added to this user.
      */
@@ -137,7 +137,7 @@ public class User extends Person {
     }
 
     /**
-     * Remove a booking booked by the user from the array list of bookings.
+     * Remove a booking booked by the user from the copy-on-write list of bookings.
      *
      * @param booking The booing to be removed from this user.
      */
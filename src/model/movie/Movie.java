@@ -8,65 +8,39 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Represents a movie.
+ * The details of a movie that can be changed are kept in a revision, so a change is published as a whole
+ * and a reader sees either the details from before or after it.
  *
  * @version 1.0
  * @since 2017-10-20
  */
 public class Movie extends Entity implements Searchable {
 
-    /**
-     * The title of this movie.
-     */
-    private String title;
-
-    /**
-     * The synopsis of this movie.
-     */
-    private String synopsis;
-
-    /**
-     * The directer of this movie.
-     */
-    private MoviePerson director;
-
     /**
      * The type of this movie.
      */
     private MovieType type;
 
     /**
-     * The array list of actors of this movie.
+     * The copy-on-write list of reviews of this movie.
      */
-    private ArrayList<MoviePerson> actors;
+    private CopyOnWriteArrayList<MovieReview> reviews;
 
     /**
-     * The array list of reviews of this movie.
+     * The copy-on-write list of showtimes of this movie.
      */
-    private ArrayList<MovieReview> reviews;
-
-    /**
-     * The array list of showtimes of this movie.
-     */
-    private ArrayList<Showtime> showtimes;
+    private CopyOnWriteArrayList<Showtime> showtimes;
 
     /**
      * The status of this movie.
      */
     private MovieStatus status;
 
-    /**
-     * The rating of this movie.
-     */
-    private MovieRating rating;
-
-    /**
-     * The runtime of this movie in minutes.
-     */
-    private int runtimeMinutes;
-
     /**
      * Creates a moview with the given titles, synopsis, director, type, actors, status, rating and runtime in minutes.
      *
@@ -81,16 +55,44 @@ public class Movie extends Entity implements Searchable {
      */
     public Movie(String title, String synopsis, MoviePerson director, MovieType type,
                  MoviePerson[] actors, MovieStatus status, MovieRating rating, int runtimeMinutes) {
-        this.title = title;
-        this.synopsis = synopsis;
-        this.director = director;
-        this.actors = new ArrayList<MoviePerson>(Arrays.asList(actors));
         this.type = type;
-        this.reviews = new ArrayList<MovieReview>();
-        this.showtimes = new ArrayList<Showtime>();
+        this.reviews = new CopyOnWriteArrayList<>();
+        this.showtimes = new CopyOnWriteArrayList<>();
         this.status = status;
-        this.rating = rating;
-        this.runtimeMinutes = runtimeMinutes;
+        initRevision(new Details(title, synopsis, director, actors, rating, runtimeMinutes));
+    }
+
+    /**
+     * Gets the details of this movie that can be changed.
+     *
+     * @return the latest details of this movie.
+     */
+    public Details getDetails() {
+        return (Details) getRevision();
+    }
+
+    /**
+     * Changes the details of this movie, unless they have been changed since the expected details were read.
+     *
+     * @param expected       The details the change is made to.
+     * @param title          The new title of this movie.
+     * @param synopsis       The new synopsis of this movie.
+     * @param director       The new director of this movie.
+     * @param actors         The new actors of this movie.
+     * @param rating         The new rating of this movie.
+     * @param runtimeMinutes The new runtime of this movie in minutes.
+     * @return true if the details are changed, or false if they have been changed since they were read.
+     */
+    public boolean compareAndSetDetails(Details expected, String title, String synopsis, MoviePerson director,
+                                        MoviePerson[] actors, MovieRating rating, int runtimeMinutes) {
+        Details next = new Details(expected);
+        next.title = title;
+        next.synopsis = synopsis;
+        next.director = director;
+        next.actors = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(actors)));
+        next.rating = rating;
+        next.runtimeMinutes = runtimeMinutes;
+        return compareAndSetRevision(expected, next);
     }
 
     /**
@@ -99,7 +101,7 @@ public class Movie extends Entity implements Searchable {
      * @return this movie's title.
      */
     public String getTitle() {
-        return title;
+        return getDetails().title;
     }
 
     /**
@@ -108,7 +110,7 @@ public class Movie extends Entity implements Searchable {
      * @param title The new title of this movie.
      */
     public void setTitle(String title) {
-        this.title = title;
+        update(details -> details.title = title);
     }
 
     /**
@@ -117,7 +119,7 @@ public class Movie extends Entity implements Searchable {
      * @return this movie's synopsis.
      */
     public String getSynopsis() {
-        return synopsis;
+        return getDetails().synopsis;
     }
 
     /**
@@ -126,7 +128,7 @@ public class Movie extends Entity implements Searchable {
      * @param synopsis The new synopsis of this movie.
      */
     public void setSynopsis(String synopsis) {
-        this.synopsis = synopsis;
+        update(details -> details.synopsis = synopsis);
     }
 
     /**
@@ -135,7 +137,7 @@ public class Movie extends Entity implements Searchable {
      * @return this movie's director.
      */
     public MoviePerson getDirector() {
-        return director;
+        return getDetails().director;
     }
 
     /**
@@ -144,7 +146,7 @@ public class Movie extends Entity implements Searchable {
      * @param director The new director of this movie.
      */
     public void setDirector(MoviePerson director) {
-        this.director = director;
+        update(details -> details.director = director);
     }
 
     /**
@@ -171,7 +173,7 @@ public class Movie extends Entity implements Searchable {
      * @return this movie's list of actors.
      */
     public List<MoviePerson> getActors() {
-        return actors;
+        return getDetails().actors;
     }
 
     /**
@@ -180,7 +182,8 @@ public class Movie extends Entity implements Searchable {
      * @param actors The new actors list of this movie.
      */
     public void setActors(MoviePerson[] actors) {
-        this.actors = new ArrayList<MoviePerson>(Arrays.asList(actors));
+        List<MoviePerson> actorList = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(actors)));
+        update(details -> details.actors = actorList);
     }
 
     /**
@@ -225,7 +228,7 @@ public class Movie extends Entity implements Searchable {
      * @return this movie's rating.
      */
     public MovieRating getRating() {
-        return rating;
+        return getDetails().rating;
     }
 
     /**
@@ -234,7 +237,7 @@ public class Movie extends Entity implements Searchable {
      * @param rating The new rating of this movie.
      */
     public void setRating(MovieRating rating) {
-        this.rating = rating;
+        update(details -> details.rating = rating);
     }
 
     /**
@@ -243,7 +246,7 @@ public class Movie extends Entity implements Searchable {
      * @return this movie's runtime in minutes.
      */
     public int getRuntimeMinutes() {
-        return runtimeMinutes;
+        return getDetails().runtimeMinutes;
     }
 
     /**
@@ -253,16 +256,17 @@ public class Movie extends Entity implements Searchable {
      */
     public List<String> getSearchTags() {
 
+        Details details = getDetails();
         ArrayList<String> tags = new ArrayList<>();
 
         // Movie Title
-        tags.addAll(Arrays.asList(title.split(" ")));
-        tags.add(title);
+        tags.addAll(Arrays.asList(details.title.split(" ")));
+        tags.add(details.title);
 
         // Actors and Director
-        for (MoviePerson actor : actors)
+        for (MoviePerson actor : details.actors)
             tags.addAll(actor.getSearchTags());
-        tags.addAll(director.getSearchTags());
+        tags.addAll(details.director.getSearchTags());
         return tags;
     }
 
@@ -308,7 +312,7 @@ public class Movie extends Entity implements Searchable {
      * @param runtimeMinutes The new runtime in minutes of this movie.
      */
     public void setRuntime(int runtimeMinutes) {
-        this.runtimeMinutes = runtimeMinutes;
+        update(details -> details.runtimeMinutes = runtimeMinutes);
     }
 
     /**
@@ -358,7 +362,8 @@ public class Movie extends Entity implements Searchable {
      */
     @Override
     public String toString() {
-        return String.format("%s [%s] %s", title, type, rating);
+        Details details = getDetails();
+        return String.format("%s [%s] %s", details.title, type, details.rating);
     }
 
     /**
@@ -369,8 +374,113 @@ public class Movie extends Entity implements Searchable {
      * with or without "*" to indicate whether there is free pass.
      */
     public String toString(boolean noFreePasses) {
-        return (noFreePasses ? "*" : "") + String.format("%s [%s] %s", title, type, rating);
+        return (noFreePasses ? "*" : "") + toString();
     }
 
-}
+    /**
+     * Publishes the next details of this movie, made by a change to a copy of the latest details.
+     *
+     * @param change The change made to the copy.
+     */
+    private void update(Consumer<Details> change) {
+        this.<Details>updateRevision(details -> {
+            Details next = new Details(details);
+            change.accept(next);
+            return next;
+        });
+    }
 
+    /**
+     * Represents a revision of the details of a movie that can be changed.
+     */
+    public static class Details extends Revision {
+
+        /**
+         * The version of the serialized form of the details.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The title of the movie.
+         */
+        private String title;
+
+        /**
+         * The synopsis of the movie.
+         */
+        private String synopsis;
+
+        /**
+         * The directer of the movie.
+         */
+        private MoviePerson director;
+
+        /**
+         * The unmodifiable list of actors of the movie.
+         */
+        private List<MoviePerson> actors;
+
+        /**
+         * The rating of the movie.
+         */
+        private MovieRating rating;
+
+        /**
+         * The runtime of the movie in minutes.
+         */
+        private int runtimeMinutes;
+
+        /**
+         * Creates the first details of a movie.
+         *
+         * @param title          The title of the movie.
+         * @param synopsis       The synopsis of the movie.
+         * @param director       The directer of the movie.
+         * @param actors         The array of actors of the movie.
+         * @param rating         The rating of the movie.
+         * @param runtimeMinutes The runtime of the movie in minutes.
+         */
+        private Details(String title, String synopsis, MoviePerson director, MoviePerson[] actors,
+                        MovieRating rating, int runtimeMinutes) {
+            this.title = title;
+            this.synopsis = synopsis;
+            this.director = director;
+            this.actors = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(actors)));
+            this.rating = rating;
+            this.runtimeMinutes = runtimeMinutes;
+        }
+
+        /**
+         * Creates the next details of a movie from a copy of the given details.
+         *
+         * @param previous The details this revision is copied from.
+         */
+        private Details(Details previous) {
+            super(previous);
+            this.title = previous.title;
+            this.synopsis = previous.synopsis;
+            this.director = previous.director;
+            this.actors = previous.actors;
+            this.rating = previous.rating;
+            this.runtimeMinutes = previous.runtimeMinutes;
+        }
+
+        /**
+         * Gets the title of the movie.
+         *
+         * @return the title of the movie.
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * Gets the runtime of the movie in minutes.
+         *
+         * @return the runtime of the movie in minutes.
+         */
+        public int getRuntimeMinutes() {
+            return runtimeMinutes;
+        }
+    }
+}
@@ -100,6 +100,15 @@ public class MovieReview extends Entity {
         return created;
     }
 
+    /**
+     * Changes the time this review is created.
+     *
+     * @param created the new time this review is created.
+     */
+    public void setCreated(Date created) {
+        this.created = created;
+    }
+
     /**
      * Gets the author of this movie.
      *
@@ -125,4 +134,12 @@ public class MovieReview extends Entity {
     public Movie getMovie() {
         return movie;
     }
+
+    /**
+     * Changes the movie that this review is written for.
+     * @param movie the new movie that this review is written for.
+     */
+    public void setMovie(Movie movie) {
+        this.movie = movie;
+    }
 }
@@ -109,4 +109,13 @@ public class Payment extends Entity {
     public String getTransactionId() {
         return transactionId;
     }
+
+    /**
+     * Changes the transaction ID of this payment.
+     *
+     * @param transactionId The new transaction ID of this payment.
+     */
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
 }
@@ -0,0 +1,70 @@
+package persistence;
+
+import model.booking.Booking;
+import model.booking.BookingStatus;
+import model.booking.Showtime;
+import model.booking.TicketType;
+import model.cineplex.Seat;
+import model.transaction.Payment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents the codec of bookings.
+ *
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public class BookingCodec implements EntityCodec<Booking> {
+
+    @Override
+    public Class<Booking> getEntityType() {
+        return Booking.class;
+    }
+
+    @Override
+    public void write(Booking booking, EntityOutput out) throws IOException {
+        out.writeId(booking.getId());
+        out.writeEnum(booking.getStatus());
+        ConcurrentHashMap<TicketType, Integer> ticketTypesCount = booking.getTicketTypesCount();
+        out.writeVarInt(ticketTypesCount.size());
+        for (TicketType ticketType : ticketTypesCount.keySet()) {
+            out.writeEnum(ticketType);
+            out.writeVarInt(ticketTypesCount.get(ticketType));
+        }
+        List<Seat> seats = booking.getSeats();
+        out.writeVarInt(seats.size());
+        for (Seat seat : seats)
+            CinemaCodec.writeSeat(seat, out);
+        out.writeReference(booking.getShowtime());
+        out.writeReference(booking.getPayment());
+    }
+
+    @Override
+    public Booking read(EntityInput in) throws IOException {
+        Booking booking = new Booking(null);
+        readInto(booking, in);
+        return booking;
+    }
+
+    @Override
+    public void readInto(Booking booking, EntityInput in) throws IOException {
+        booking.setId(in.readId());
+        booking.setStatus(in.readEnum(BookingStatus.values()));
+        ConcurrentHashMap<TicketType, Integer> ticketTypesCount = new ConcurrentHashMap<>();
+        int ticketTypes = in.readVarInt();
+        for (int i = 0; i < ticketTypes; i++)
+            ticketTypesCount.put(in.readEnum(TicketType.values()), in.readVarInt());
+        booking.setTicketTypesCount(ticketTypesCount);
+        int seatsCount = in.readVarInt();
+        ArrayList<Seat> seats = new ArrayList<>(seatsCount);
+        for (int i = 0; i < seatsCount; i++)
+            seats.add(CinemaCodec.readSeat(in));
+        booking.setSeats(seats);
+        in.readReference(Showtime.class, booking::setShowtime);
+        in.readReference(Payment.class, booking::setPayment);
+    }
+}
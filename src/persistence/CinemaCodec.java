@@ -0,0 +1,80 @@
+package persistence;
+
+import model.cineplex.*;
+
+import java.io.IOException;
+
+/**
+ * Represents the codec of cinemas. The layout of a cinema is written as part of its record.
+ *
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public class CinemaCodec implements EntityCodec<Cinema> {
+
+    @Override
+    public Class<Cinema> getEntityType() {
+        return Cinema.class;
+    }
+
+    @Override
+    public void write(Cinema cinema, EntityOutput out) throws IOException {
+        out.writeId(cinema.getId());
+        out.writeString(cinema.getCode());
+        out.writeEnum(cinema.getType());
+
+        CinemaLayout layout = cinema.getLayout();
+        out.writeVarInt(layout.getMaxColumn());
+        out.writeChar(layout.getMaxRow());
+        out.writeVarInt(layout.getSeats().length);
+        for (Seat seat : layout.getSeats())
+            writeSeat(seat, out);
+    }
+
+    @Override
+    public Cinema read(EntityInput in) throws IOException {
+        Cinema cinema = new Cinema(null, null, null);
+        readInto(cinema, in);
+        return cinema;
+    }
+
+    @Override
+    public void readInto(Cinema cinema, EntityInput in) throws IOException {
+        cinema.setId(in.readId());
+        cinema.setCode(in.readString());
+        cinema.setType(in.readEnum(CinemaType.values()));
+
+        int maxColumn = in.readVarInt();
+        char maxRow = in.readChar();
+        Seat[] seats = new Seat[in.readVarInt()];
+        for (int i = 0; i < seats.length; i++)
+            seats[i] = readSeat(in);
+        cinema.setLayout(CinemaLayout.of(seats, maxColumn, maxRow));
+    }
+
+    /**
+     * Writes a seat as its row, column and type.
+     *
+     * @param seat The seat to be written.
+     * @param out The entity output to be written to.
+     * @throws IOException if the seat cannot be written.
+     */
+    static void writeSeat(Seat seat, EntityOutput out) throws IOException {
+        out.writeByte(seat.getRow());
+        out.writeVarInt(seat.getColumn());
+        out.writeEnum(seat.getType());
+    }
+
+    /**
+     * Reads a seat written as its row, column and type.
+     *
+     * @param in The entity input to be read from.
+     * @return the seat that is read.
+     * @throws IOException if the seat cannot be read.
+     */
+    static Seat readSeat(EntityInput in) throws IOException {
+        char row = (char) in.readUnsignedByte();
+        int column = in.readVarInt();
+        return new Seat(row, column, in.readEnum(SeatType.values()));
+    }
+}
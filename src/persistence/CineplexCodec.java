@@ -0,0 +1,48 @@
+package persistence;
+
+import model.booking.Showtime;
+import model.cineplex.Cinema;
+import model.cineplex.Cineplex;
+
+import java.io.IOException;
+
+/**
+ * Represents the codec of cineplexes.
+ *
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public class CineplexCodec implements EntityCodec<Cineplex> {
+
+    @Override
+    public Class<Cineplex> getEntityType() {
+        return Cineplex.class;
+    }
+
+    @Override
+    public void write(Cineplex cineplex, EntityOutput out) throws IOException {
+        out.writeId(cineplex.getId());
+        out.writeString(cineplex.getName());
+        out.writeString(cineplex.getAddress());
+        out.writeReferences(cineplex.getCinemas());
+        out.writeReferences(cineplex.getShowtimes());
+    }
+
+    @Override
+    public Cineplex read(EntityInput in) throws IOException {
+        Cineplex cineplex = new Cineplex(null, null);
+        readInto(cineplex, in);
+        return cineplex;
+    }
+
+    @Override
+    public void readInto(Cineplex cineplex, EntityInput in) throws IOException {
+        cineplex.setId(in.readId());
+        cineplex.setName(in.readString());
+        cineplex.setAddress(in.readString());
+        in.addFixUp(cineplex.getCinemas()::clear);
+        in.readReferences(Cinema.class, cineplex::addCinema);
+        in.addFixUp(cineplex.getShowtimes()::clear);
+        in.readReferences(Showtime.class, cineplex::addShowtime);
+    }
+}
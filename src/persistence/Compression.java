@@ -0,0 +1,137 @@
+package persistence;
+
+import view.ui.EnumerableMenuOption;
+
+import java.io.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Represents a standard set of compressions that the segments of a snapshot file are streamed through.
+ *
+ * @version 1.0
+ * @since 2017-11-19
+ */
+public enum Compression implements EnumerableMenuOption {
+
+    /**
+     * No compression.
+     */
+    NONE("None", "No compression, fastest to save and load", 0),
+
+    /**
+     * Deflate at the fastest level.
+     */
+    FAST("Fast", "Deflate at the fastest level", Deflater.BEST_SPEED),
+
+    /**
+     * Deflate at the default level.
+     */
+    DEFAULT("Default", "Deflate at the default level", Deflater.DEFAULT_COMPRESSION),
+
+    /**
+     * Deflate at the smallest level.
+     */
+    BEST("Best", "Deflate at the smallest level, slowest to save", Deflater.BEST_COMPRESSION);
+
+    /**
+     * The size of the buffers placed around the deflater and inflater.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The name of this compression.
+     */
+    private String string;
+
+    /**
+     * The description of this compression.
+     */
+    private String description;
+
+    /**
+     * The level of the deflater of this compression.
+     */
+    private int level;
+
+    /**
+     * Creates the compression with the given name, description and deflater level.
+     *
+     * @param string      The name of this compression.
+     * @param description The description of this compression.
+     * @param level       The level of the deflater of this compression.
+     */
+    Compression(String string, String description, int level) {
+        this.string = string;
+        this.description = description;
+        this.level = level;
+    }
+
+    /**
+     * Wraps an output stream so that everything written to it is compressed.
+     * Closing the returned stream finishes the compression and closes the given stream.
+     *
+     * @param outputStream The output stream the compressed bytes are written to.
+     * @return the output stream that compresses the bytes written to it.
+     */
+    public OutputStream compress(OutputStream outputStream) {
+        if (this == NONE)
+            return outputStream;
+        Deflater deflater = new Deflater(level);
+        return new BufferedOutputStream(new DeflaterOutputStream(outputStream, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        }, BUFFER_SIZE);
+    }
+
+    /**
+     * Wraps an input stream of bytes compressed by this compression so that the bytes read from it are decompressed.
+     * Closing the returned stream closes the given stream.
+     *
+     * @param inputStream The input stream the compressed bytes are read from.
+     * @return the input stream that decompresses the bytes read from it.
+     */
+    public InputStream decompress(InputStream inputStream) {
+        if (this == NONE)
+            return inputStream;
+        Inflater inflater = new Inflater();
+        return new BufferedInputStream(new InflaterInputStream(inputStream, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        }, BUFFER_SIZE);
+    }
+
+    /**
+     * Gets the name of this compression.
+     *
+     * @return the name of this compression.
+     */
+    @Override
+    public String toString() {
+        return string;
+    }
+
+    /**
+     * Gets the description of this compression.
+     *
+     * @return the description of this compression.
+     */
+    @Override
+    public String getDescription() {
+        return description;
+    }
+}
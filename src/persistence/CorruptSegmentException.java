@@ -0,0 +1,41 @@
+package persistence;
+
+import java.io.StreamCorruptedException;
+
+/**
+ * Represents the exception thrown when a segment of a snapshot file does not match its checksum.
+ *
+ * @version 1.0
+ * @since 2017-11-17
+ */
+public class CorruptSegmentException extends StreamCorruptedException {
+
+    /**
+     * The version of the serialized form of this exception.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the corrupt segment.
+     */
+    private String segmentName;
+
+    /**
+     * Creates the exception for the segment of the given name.
+     *
+     * @param segmentName The name of the corrupt segment.
+     */
+    public CorruptSegmentException(String segmentName) {
+        super("Corrupt segment " + segmentName);
+        this.segmentName = segmentName;
+    }
+
+    /**
+     * Gets the name of the corrupt segment.
+     *
+     * @return the name of the corrupt segment.
+     */
+    public String getSegmentName() {
+        return segmentName;
+    }
+}
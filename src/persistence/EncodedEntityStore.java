@@ -0,0 +1,288 @@
+package persistence;
+
+import model.commons.Entity;
+
+import java.io.*;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Represents a durable store that holds its entities encoded off the heap. An entity is decoded when it is
+ * got and kept only as long as something else refers to it, so getting an entity that is still referred to
+ * returns the same instance.
+ *
+ * @param <T> The type of the entities in this store.
+ * @version 1.0
+ * @since 2017-11-20
+ */
+public abstract class EncodedEntityStore<T extends Entity> implements EntityStore<T> {
+
+    /**
+     * The codec that writes and reads the entities of this store.
+     */
+    private EntityCodec<T> codec;
+
+    /**
+     * Finds the entity of a given type and ID that a decoded entity refers to.
+     */
+    private BiFunction<Class<? extends Entity>, UUID, Entity> resolver;
+
+    /**
+     * A concurrent hash map with the UUID of each decoded entity as the key and a weak reference to it as the value.
+     */
+    private ConcurrentHashMap<UUID, EntityReference<T>> decoded;
+
+    /**
+     * A hash map for each thread with the UUID of each entity the thread is resolving the references of as the key
+     * and the entity as the value. An entity is only remembered once its references are resolved, so other threads
+     * never see it half read, while entities referring back to it on the same thread find it here.
+     */
+    private ThreadLocal<HashMap<UUID, T>> resolving;
+
+    /**
+     * The queue of the weak references whose entities are no longer referred to.
+     */
+    private ReferenceQueue<T> referenceQueue;
+
+    /**
+     * The number of times the entities of this store have been changed.
+     */
+    private long modificationCount;
+
+    /**
+     * Creates a store of entities encoded by the given codec.
+     *
+     * @param codec The codec that writes and reads the entities of this store.
+     * @param resolver Finds the entity of a given type and ID that a decoded entity refers to.
+     */
+    protected EncodedEntityStore(EntityCodec<T> codec, BiFunction<Class<? extends Entity>, UUID, Entity> resolver) {
+        this.codec = codec;
+        this.resolver = resolver;
+        this.decoded = new ConcurrentHashMap<>();
+        this.resolving = ThreadLocal.withInitial(HashMap::new);
+        this.referenceQueue = new ReferenceQueue<>();
+    }
+
+    /**
+     * Reads the encoded entity of the given ID.
+     *
+     * @param id The ID of the entity.
+     * @return the encoded entity, or null if this store has no such entity.
+     * @throws IOException if the entity cannot be read.
+     */
+    protected abstract byte[] readRecord(UUID id) throws IOException;
+
+    /**
+     * Writes an encoded entity, replacing any entity with the same ID.
+     *
+     * @param id The ID of the entity.
+     * @param record The encoded entity.
+     * @throws IOException if the entity cannot be written.
+     */
+    protected abstract void writeRecord(UUID id, byte[] record) throws IOException;
+
+    /**
+     * Deletes the encoded entity of the given ID, if any.
+     *
+     * @param id The ID of the entity.
+     * @throws IOException if the entity cannot be deleted.
+     */
+    protected abstract void deleteRecord(UUID id) throws IOException;
+
+    /**
+     * Gets the IDs of all the entities in this store.
+     *
+     * @return a copy of the IDs of all the entities in this store.
+     */
+    protected abstract List<UUID> getIds();
+
+    @Override
+    public void put(T entity) {
+        byte[] record = encode(entity);
+        synchronized (this) {
+            try {
+                writeRecord(entity.getId(), record);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            remember(entity);
+            modificationCount++;
+        }
+    }
+
+    @Override
+    public T get(UUID id) {
+
+        // An entity that is already decoded is recalled without taking the lock
+        T remembered = recall(id);
+        if (remembered != null)
+            return remembered;
+        HashMap<UUID, T> pending = resolving.get();
+        T resolvingEntity = pending.get(id);
+        if (resolvingEntity != null)
+            return resolvingEntity;
+        while (true) {
+            byte[] record;
+            long readModificationCount;
+            synchronized (this) {
+                T entity = recall(id);
+                if (entity != null)
+                    return entity;
+                try {
+                    record = readRecord(id);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                readModificationCount = modificationCount;
+            }
+            if (record == null)
+                return null;
+
+            // The entity is only remembered once its references are resolved, so it is never recalled half read
+            EntityInput in = new EntityInput(new ByteArrayInputStream(record));
+            T entity;
+            try {
+                entity = codec.read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pending.put(id, entity);
+            try {
+                in.resolve(resolver);
+            } finally {
+                pending.remove(id);
+            }
+            synchronized (this) {
+                T recalled = recall(id);
+                if (recalled != null)
+                    return recalled;
+                if (modificationCount != readModificationCount)
+                    continue;
+                remember(entity);
+            }
+            return entity;
+        }
+    }
+
+    @Override
+    public Iterable<T> scan() {
+        List<UUID> ids;
+        synchronized (this) {
+            ids = getIds();
+        }
+        return () -> ids.stream().map(this::get).filter(Objects::nonNull).iterator();
+    }
+
+    @Override
+    public synchronized void remove(UUID id) {
+        try {
+            deleteRecord(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        decoded.remove(id);
+        modificationCount++;
+    }
+
+    @Override
+    public void batch(Collection<? extends T> puts, Collection<UUID> removals) {
+        ArrayList<byte[]> records = new ArrayList<>(puts.size());
+        for (T entity : puts)
+            records.add(encode(entity));
+        synchronized (this) {
+            Iterator<byte[]> recordIterator = records.iterator();
+            for (T entity : puts) {
+                try {
+                    writeRecord(entity.getId(), recordIterator.next());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                remember(entity);
+            }
+            for (UUID id : removals)
+                remove(id);
+            modificationCount++;
+        }
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    /**
+     * Encodes an entity.
+     *
+     * @param entity The entity to be encoded.
+     * @return the encoded entity.
+     */
+    private byte[] encode(T entity) {
+        try {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            EntityOutput out = new EntityOutput(byteArrayOutputStream);
+            codec.write(entity, out);
+            out.close();
+            return byteArrayOutputStream.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Remembers a decoded or put entity, so that getting it returns the same instance while it is referred to.
+     *
+     * @param entity The entity to be remembered.
+     */
+    private void remember(T entity) {
+        expungeForgotten();
+        decoded.put(entity.getId(), new EntityReference<>(entity, referenceQueue));
+    }
+
+    /**
+     * Recalls a remembered entity.
+     *
+     * @param id The ID of the entity.
+     * @return the entity of this ID, or null if it is not remembered or no longer referred to.
+     */
+    private T recall(UUID id) {
+        EntityReference<T> reference = decoded.get(id);
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * Removes the weak references whose entities are no longer referred to.
+     */
+    @SuppressWarnings("unchecked")
+    private void expungeForgotten() {
+        EntityReference<T> reference;
+        while ((reference = (EntityReference<T>) referenceQueue.poll()) != null)
+            decoded.remove(reference.id, reference);
+    }
+
+    /**
+     * Represents a weak reference to a decoded entity that remembers the ID of the entity.
+     *
+     * @param <T> The type of the entity.
+     */
+    private static class EntityReference<T extends Entity> extends WeakReference<T> {
+
+        /**
+         * The ID of the entity.
+         */
+        private UUID id;
+
+        /**
+         * Creates a weak reference to the given entity.
+         *
+         * @param entity The entity to be referred to.
+         * @param referenceQueue The queue the reference is put in once the entity is no longer referred to.
+         */
+        private EntityReference(T entity, ReferenceQueue<T> referenceQueue) {
+            super(entity, referenceQueue);
+            this.id = entity.getId();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package persistence;
+
+import model.commons.Entity;
+
+import java.io.IOException;
+
+/**
+ * Represents a hand-written codec of an entity type that writes each entity as a flat record.
+ *
+ * @param <T> The type of the entities.
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public interface EntityCodec<T extends Entity> {
+
+    /**
+     * The schema version of every record written before schemas were versioned.
+     */
+    int BASE_SCHEMA_VERSION = 1;
+
+    /**
+     * Gets the type of the entities of this codec.
+     *
+     * @return the type of the entities of this codec.
+     */
+    Class<T> getEntityType();
+
+    /**
+     * Writes an entity as a flat record.
+     *
+     * @param entity The entity to be written.
+     * @param out The entity output to be written to.
+     * @throws IOException if the entity cannot be written.
+     */
+    void write(T entity, EntityOutput out) throws IOException;
+
+    /**
+     * Reads an entity from a flat record. References to other entities are only set
+     * once the fix-ups of the entity input are applied.
+     *
+     * @param in The entity input to be read from.
+     * @return the entity that is read.
+     * @throws IOException if the entity cannot be read.
+     */
+    T read(EntityInput in) throws IOException;
+
+    /**
+     * Reads a record into the entity of the same ID that is already in memory, so that every entity referring
+     * to it sees the state of the record. Only the state this codec writes is changed, while the state derived
+     * in memory is kept. References are only set once the fix-ups of the entity input are applied, and the lists
+     * of references are only replaced then, after the fix-ups of any record the entity was read from before.
+     *
+     * @param entity The entity the record is of.
+     * @param in The entity input to be read from.
+     * @throws IOException if the record cannot be read.
+     */
+    void readInto(T entity, EntityInput in) throws IOException;
+
+    /**
+     * Gets the schema version of the records this codec writes. A codec whose record format changes
+     * bumps its schema version and registers the migration from the previous one.
+     *
+     * @return the schema version of the records of this codec.
+     */
+    default int getSchemaVersion() {
+        return BASE_SCHEMA_VERSION;
+    }
+
+    /**
+     * Gets the registered migration of a record of this codec from the given schema version to the next one.
+     *
+     * @param fromVersion The schema version the record is in.
+     * @return the migration to the next schema version, or null if none is registered.
+     */
+    default RecordMigration getMigration(int fromVersion) {
+        return null;
+    }
+}
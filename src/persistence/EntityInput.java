@@ -0,0 +1,173 @@
+package persistence;
+
+import model.commons.Entity;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.BiFunction;
+
+/**
+ * Represents a data input stream that reads entities written by an entity output.
+ * References to other entities are collected as fix-ups and only resolved once every entity
+ * they may refer to has been read.
+ *
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public class EntityInput extends DataInputStream {
+
+    /**
+     * The array list of strings read so far, in the order of their index.
+     */
+    private ArrayList<String> strings;
+
+    /**
+     * The array list of fix-ups to be applied once all entities have been read.
+     */
+    private ArrayList<Runnable> fixUps;
+
+    /**
+     * Finds the entity of a given type and ID when the fix-ups are applied.
+     */
+    private BiFunction<Class<? extends Entity>, UUID, Entity> resolver;
+
+    /**
+     * Creates an entity input that reads from the given input stream.
+     *
+     * @param inputStream The input stream to be read from.
+     */
+    public EntityInput(InputStream inputStream) {
+        super(inputStream);
+        this.strings = new ArrayList<>();
+        this.fixUps = new ArrayList<>();
+    }
+
+    /**
+     * Reads a non-negative integer written by an entity output.
+     *
+     * @return the integer that is read.
+     * @throws IOException if the integer cannot be read.
+     */
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+    /**
+     * Reads a string written by an entity output.
+     *
+     * @return the string that is read, which may be null.
+     * @throws IOException if the string cannot be read.
+     */
+    public String readString() throws IOException {
+        int index = readVarInt();
+        if (index == 0)
+            return null;
+        if (index <= strings.size())
+            return strings.get(index - 1);
+        String string = readUTF();
+        strings.add(string);
+        return string;
+    }
+
+    /**
+     * Reads an enum constant written by an entity output.
+     *
+     * @param constants The constants of the enum to be read.
+     * @param <E> The type of the enum.
+     * @return the enum constant that is read, which may be null.
+     * @throws IOException if the enum constant cannot be read.
+     */
+    public <E extends Enum<E>> E readEnum(E[] constants) throws IOException {
+        int ordinal = readUnsignedByte();
+        return ordinal == 0 ? null : constants[ordinal - 1];
+    }
+
+    /**
+     * Reads a date written by an entity output.
+     *
+     * @return the date that is read, which may be null.
+     * @throws IOException if the date cannot be read.
+     */
+    public Date readDate() throws IOException {
+        long time = readLong();
+        return time == Long.MIN_VALUE ? null : new Date(time);
+    }
+
+    /**
+     * Reads an ID written by an entity output.
+     *
+     * @return the ID that is read.
+     * @throws IOException if the ID cannot be read.
+     */
+    public UUID readId() throws IOException {
+        return new UUID(readLong(), readLong());
+    }
+
+    /**
+     * Reads a reference to another entity. The referred entity is passed to the given setter
+     * once the fix-ups are applied.
+     *
+     * @param type The type of the referred entity.
+     * @param setter The setter of the referred entity.
+     * @param <E> The type of the referred entity.
+     * @throws IOException if the reference cannot be read.
+     */
+    public <E extends Entity> void readReference(Class<E> type, Consumer<? super E> setter) throws IOException {
+        if (!readBoolean()) {
+            setter.accept(null);
+            return;
+        }
+        UUID id = readId();
+        fixUps.add(() -> setter.accept(type.cast(resolver.apply(type, id))));
+    }
+
+    /**
+     * Reads the references to a list of entities. Each referred entity is passed to the given adder
+     * in order once the fix-ups are applied. References to entities that are not found are skipped.
+     *
+     * @param type The type of the referred entities.
+     * @param adder The adder of each referred entity.
+     * @param <E> The type of the referred entities.
+     * @throws IOException if the references cannot be read.
+     */
+    public <E extends Entity> void readReferences(Class<E> type, Consumer<? super E> adder) throws IOException {
+        int size = readVarInt();
+        for (int i = 0; i < size; i++)
+            readReference(type, entity -> {
+                if (entity != null)
+                    adder.accept(entity);
+            });
+    }
+
+    /**
+     * Adds a fix-up to be applied after the references read before it are resolved.
+     *
+     * @param fixUp The fix-up to be applied.
+     */
+    public void addFixUp(Runnable fixUp) {
+        fixUps.add(fixUp);
+    }
+
+    /**
+     * Resolves all the references read so far and applies the fix-ups in the order they were read.
+     *
+     * @param resolver Finds the entity of a given type and ID.
+     */
+    public void resolve(BiFunction<Class<? extends Entity>, UUID, Entity> resolver) {
+        this.resolver = resolver;
+        for (Runnable fixUp : fixUps)
+            fixUp.run();
+        fixUps.clear();
+    }
+}
@@ -0,0 +1,323 @@
+package persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Represents an append-only journal of entity mutations. Each record replaces or removes a single entity
+ * and is protected by a checksum, so a record torn by a crash is detected and discarded on replay.
+ * Records are forced to disk in groups, so many records share one flush.
+ * <p>
+ * When a snapshot is taken, the journal is rotated: the records so far are moved to a rotated journal that is
+ * only discarded once the snapshot is safely written. Every record holds the whole state of its entity,
+ * so replaying the rotated journal and then the journal on top of any later snapshot yields the latest state.
+ * <p>
+ * Every time the journal file is opened, it records the schema version of each controller's records,
+ * so the records of an older schema version left by an earlier release are migrated on replay.
+ *
+ * @version 1.0
+ * @since 2017-11-12
+ */
+public class EntityJournal {
+
+    /**
+     * The number of unflushed records after which the journal is forced to disk.
+     */
+    public static final int GROUP_COMMIT_RECORDS = 64;
+
+    /**
+     * The interval in milliseconds at which unflushed records are forced to disk.
+     */
+    public static final long GROUP_COMMIT_INTERVAL_MILLIS = 200;
+
+    /**
+     * The size of a record header, consisting of the operation, controller index and entity ID.
+     */
+    private static final int HEADER_SIZE = 1 + 4 + 16;
+
+    /**
+     * The entity ID of the records of schema versions, which belong to no entity.
+     */
+    private static final UUID SCHEMA_ID = new UUID(0, 0);
+
+    /**
+     * The suffix of the name of the rotated journal file.
+     */
+    private static final String ROTATED_SUFFIX = ".old";
+
+    /**
+     * The name of the journal file.
+     */
+    private String filename;
+
+    /**
+     * The file output stream of this journal.
+     */
+    private FileOutputStream fileOutputStream;
+
+    /**
+     * The buffered data output stream of this journal.
+     */
+    private DataOutputStream dataOutputStream;
+
+    /**
+     * The sequence number of the last appended record.
+     */
+    private long appendedSequence;
+
+    /**
+     * The sequence number of the last record forced to disk.
+     */
+    private long syncedSequence;
+
+    /**
+     * The executor that periodically forces appended records to disk.
+     */
+    private ScheduledExecutorService flusher;
+
+    /**
+     * The schema version of the records of each controller index.
+     */
+    private int[] schemaVersions;
+
+    /**
+     * Opens the journal with the given file name for appending. Any torn record at the end of the
+     * journal is truncated first.
+     *
+     * @param filename The name of the journal file.
+     * @param schemaVersions The schema version of the records of each controller index.
+     * @throws IOException if the journal file cannot be opened.
+     */
+    public EntityJournal(String filename, int[] schemaVersions) throws IOException {
+        this.filename = filename;
+        this.schemaVersions = schemaVersions;
+        open();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, GROUP_COMMIT_INTERVAL_MILLIS, GROUP_COMMIT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the journal file for appending, truncating any torn record at its end, and records the schema
+     * version of the records appended from now on.
+     *
+     * @throws IOException if the journal file cannot be opened.
+     */
+    private void open() throws IOException {
+        long validLength = replay(filename, null);
+        fileOutputStream = new FileOutputStream(filename, true);
+        fileOutputStream.getChannel().truncate(validLength);
+        dataOutputStream = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+        for (int controllerIndex = 0; controllerIndex < schemaVersions.length; controllerIndex++) {
+            byte[] payload = ByteBuffer.allocate(4).putInt(schemaVersions[controllerIndex]).array();
+            append(Operation.SCHEMA, controllerIndex, SCHEMA_ID, payload);
+        }
+    }
+
+    /**
+     * Appends a record to this journal. The record is forced to disk with the next group of records.
+     *
+     * @param operation The operation of this record.
+     * @param controllerIndex The index of the controller that manages the entity.
+     * @param id The ID of the entity.
+     * @param payload The serialized entity, or an empty array for a removal.
+     * @return the sequence number of the appended record.
+     * @throws IOException if the record cannot be written.
+     */
+    public synchronized long append(Operation operation, int controllerIndex, UUID id, byte[] payload)
+            throws IOException {
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(HEADER_SIZE + payload.length);
+        DataOutputStream record = new DataOutputStream(byteArrayOutputStream);
+        record.writeByte(operation.ordinal());
+        record.writeInt(controllerIndex);
+        record.writeLong(id.getMostSignificantBits());
+        record.writeLong(id.getLeastSignificantBits());
+        record.write(payload);
+        byte[] bytes = byteArrayOutputStream.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        dataOutputStream.writeInt(bytes.length);
+        dataOutputStream.write(bytes);
+        dataOutputStream.writeInt((int) crc.getValue());
+
+        appendedSequence++;
+        if (appendedSequence - syncedSequence >= GROUP_COMMIT_RECORDS)
+            sync();
+        return appendedSequence;
+    }
+
+    /**
+     * Forces all appended records to disk. Callers arriving while another caller is flushing
+     * find their records already forced and return without another flush.
+     *
+     * @throws IOException if the records cannot be forced to disk.
+     */
+    public synchronized void sync() throws IOException {
+        if (syncedSequence == appendedSequence)
+            return;
+        dataOutputStream.flush();
+        fileOutputStream.getChannel().force(false);
+        syncedSequence = appendedSequence;
+    }
+
+    /**
+     * Moves all records of this journal to the rotated journal and starts an empty journal. If a rotated
+     * journal is left by a snapshot that did not complete, the records are appended to it instead.
+     * Every record appended before this returns is in the rotated journal, and every record appended
+     * after it is in the new journal.
+     *
+     * @throws IOException if the journal cannot be rotated.
+     */
+    public synchronized void rotate() throws IOException {
+        sync();
+        dataOutputStream.close();
+        File rotatedFile = new File(getRotatedFilename(filename));
+        if (rotatedFile.exists()) {
+            try (FileOutputStream rotatedOutputStream = new FileOutputStream(rotatedFile, true)) {
+                Files.copy(Paths.get(filename), rotatedOutputStream);
+                rotatedOutputStream.getChannel().force(true);
+            }
+            Files.delete(Paths.get(filename));
+        } else
+            Files.move(Paths.get(filename), rotatedFile.toPath());
+        open();
+    }
+
+    /**
+     * Discards the rotated journal once a snapshot holding all of its records is safely written.
+     *
+     * @throws IOException if the rotated journal cannot be deleted.
+     */
+    public synchronized void discardRotated() throws IOException {
+        Files.deleteIfExists(Paths.get(getRotatedFilename(filename)));
+    }
+
+    /**
+     * Forces all appended records to disk and closes this journal.
+     *
+     * @throws IOException if the records cannot be forced to disk.
+     */
+    public synchronized void close() throws IOException {
+        flusher.shutdown();
+        sync();
+        dataOutputStream.close();
+    }
+
+    /**
+     * Gets the name of the rotated journal file of a journal.
+     *
+     * @param filename The name of the journal file.
+     * @return the name of the rotated journal file.
+     */
+    public static String getRotatedFilename(String filename) {
+        return filename + ROTATED_SUFFIX;
+    }
+
+    /**
+     * Reads every intact record of the journal with the given file name in order.
+     * Reading stops at the first torn or corrupted record. Records of schema versions are passed on
+     * with the schema version as their payload.
+     *
+     * @param filename The name of the journal file.
+     * @param handler The handler of each record, or null to only validate the journal.
+     * @return the length of the intact part of the journal.
+     * @throws IOException if the journal cannot be read.
+     */
+    public static long replay(String filename, RecordHandler handler) throws IOException {
+        File file = new File(filename);
+        if (!file.exists())
+            return 0;
+
+        long validLength = 0;
+        try (DataInputStream dataInputStream = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte[] bytes;
+                int checksum;
+                try {
+                    int length = dataInputStream.readInt();
+                    if (length < HEADER_SIZE || validLength + length + 8 > file.length())
+                        break;
+                    bytes = new byte[length];
+                    dataInputStream.readFully(bytes);
+                    checksum = dataInputStream.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if ((int) crc.getValue() != checksum)
+                    break;
+
+                if (handler != null) {
+                    DataInputStream record = new DataInputStream(new ByteArrayInputStream(bytes));
+                    Operation operation = Operation.values()[record.readByte()];
+                    int controllerIndex = record.readInt();
+                    UUID id = new UUID(record.readLong(), record.readLong());
+                    byte[] payload = new byte[bytes.length - HEADER_SIZE];
+                    record.readFully(payload);
+                    handler.handle(operation, controllerIndex, id, payload);
+                }
+                validLength += bytes.length + 8;
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * Represents the operation of a journal record.
+     */
+    public enum Operation {
+
+        /**
+         * The entity is created or replaced.
+         */
+        PUT,
+
+        /**
+         * The entity is removed.
+         */
+        REMOVE,
+
+        /**
+         * The records of the controller that follow are in the schema version held by the payload.
+         */
+        SCHEMA
+    }
+
+    /**
+     * Represents a handler of the records read from a journal.
+     */
+    public interface RecordHandler {
+
+        /**
+         * Handles a record read from a journal.
+         *
+         * @param operation The operation of this record.
+         * @param controllerIndex The index of the controller that manages the entity.
+         * @param id The ID of the entity.
+         * @param payload The serialized entity, or an empty array for a removal.
+         * @throws IOException if the entity cannot be read.
+         */
+        void handle(Operation operation, int controllerIndex, UUID id, byte[] payload) throws IOException;
+    }
+}
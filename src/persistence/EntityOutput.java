@@ -0,0 +1,128 @@
+package persistence;
+
+import model.commons.Entity;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * Represents a data output stream that writes entities as flat records. Strings are written once and
+ * referred back to by index, enums are packed into a byte and other entities are written by their ID.
+ *
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public class EntityOutput extends DataOutputStream {
+
+    /**
+     * A hash map with each string written so far as the key and its index as the value.
+     */
+    private HashMap<String, Integer> strings;
+
+    /**
+     * Creates an entity output that writes to the given output stream.
+     *
+     * @param outputStream The output stream to be written to.
+     */
+    public EntityOutput(OutputStream outputStream) {
+        super(outputStream);
+        this.strings = new HashMap<>();
+    }
+
+    /**
+     * Writes a non-negative integer in as few bytes as it needs, seven bits per byte.
+     *
+     * @param value The integer to be written.
+     * @throws IOException if the integer cannot be written.
+     */
+    public void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    /**
+     * Writes a string, or the index of the string if it has been written before.
+     *
+     * @param string The string to be written, which may be null.
+     * @throws IOException if the string cannot be written.
+     */
+    public void writeString(String string) throws IOException {
+        if (string == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = strings.get(string);
+        if (index != null) {
+            writeVarInt(index);
+            return;
+        }
+        strings.put(string, strings.size() + 1);
+        writeVarInt(strings.size());
+        writeUTF(string);
+    }
+
+    /**
+     * Writes an enum constant as a single byte.
+     *
+     * @param constant The enum constant to be written, which may be null.
+     * @throws IOException if the enum constant cannot be written.
+     */
+    public void writeEnum(Enum<?> constant) throws IOException {
+        writeByte(constant == null ? 0 : constant.ordinal() + 1);
+    }
+
+    /**
+     * Writes a date as its milliseconds since the epoch.
+     *
+     * @param date The date to be written, which may be null.
+     * @throws IOException if the date cannot be written.
+     */
+    public void writeDate(Date date) throws IOException {
+        writeLong(date == null ? Long.MIN_VALUE : date.getTime());
+    }
+
+    /**
+     * Writes an ID.
+     *
+     * @param id The ID to be written.
+     * @throws IOException if the ID cannot be written.
+     */
+    public void writeId(UUID id) throws IOException {
+        writeLong(id.getMostSignificantBits());
+        writeLong(id.getLeastSignificantBits());
+    }
+
+    /**
+     * Writes a reference to another entity by its ID.
+     *
+     * @param entity The entity to be referred to, which may be null.
+     * @throws IOException if the reference cannot be written.
+     */
+    public void writeReference(Entity entity) throws IOException {
+        writeBoolean(entity != null);
+        if (entity != null)
+            writeId(entity.getId());
+    }
+
+    /**
+     * Writes the references to a list of entities. The list is copied first, so the number of references
+     * written matches the references that follow even if the list grows while it is written.
+     *
+     * @param entities The entities to be referred to.
+     * @throws IOException if the references cannot be written.
+     */
+    public void writeReferences(Collection<? extends Entity> entities) throws IOException {
+        Entity[] array = entities.toArray(new Entity[0]);
+        writeVarInt(array.length);
+        for (Entity entity : array)
+            writeReference(entity);
+    }
+}
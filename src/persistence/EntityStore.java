@@ -0,0 +1,69 @@
+package persistence;
+
+import model.commons.Entity;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Represents a store that holds the entities of one controller. A durable store persists every entity
+ * put into it by itself, so its entities are neither journaled nor written to the data file.
+ *
+ * @param <T> The type of the entities in this store.
+ * @version 1.0
+ * @since 2017-11-20
+ */
+public interface EntityStore<T extends Entity> {
+
+    /**
+     * Puts an entity into this store, replacing any entity with the same ID.
+     *
+     * @param entity The entity to be put.
+     */
+    void put(T entity);
+
+    /**
+     * Gets the entity of the given ID.
+     *
+     * @param id The ID of the entity.
+     * @return the entity of this ID, or null if this store has no such entity.
+     */
+    T get(UUID id);
+
+    /**
+     * Gets all the entities in this store. Entities put or removed while they are iterated may or may not be seen.
+     *
+     * @return the entities in this store.
+     */
+    Iterable<T> scan();
+
+    /**
+     * Removes the entity of the given ID, if any.
+     *
+     * @param id The ID of the entity to be removed.
+     */
+    void remove(UUID id);
+
+    /**
+     * Puts and removes entities together, so that no reader sees only some of them.
+     *
+     * @param puts The entities to be put.
+     * @param removals The IDs of the entities to be removed.
+     */
+    void batch(Collection<? extends T> puts, Collection<UUID> removals);
+
+    /**
+     * Checks whether this store persists its entities by itself.
+     *
+     * @return true if this store persists its entities by itself.
+     */
+    boolean isDurable();
+
+    /**
+     * Forces all the entities put into this store to disk.
+     *
+     * @throws IOException if the entities cannot be forced to disk.
+     */
+    void sync() throws IOException;
+}
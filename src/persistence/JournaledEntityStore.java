@@ -0,0 +1,232 @@
+package persistence;
+
+import model.commons.Entity;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Represents a durable store that appends every put and removal to a journal file and keeps only the position
+ * of the latest record of each entity on the heap. The journal is compacted once most of it is superseded.
+ *
+ * @param <T> The type of the entities in this store.
+ * @version 1.0
+ * @since 2017-11-20
+ */
+public class JournaledEntityStore<T extends Entity> extends EncodedEntityStore<T> {
+
+    /**
+     * The size of a record header, consisting of the length, removal flag and entity ID.
+     */
+    private static final int HEADER_SIZE = 4 + 1 + 16;
+
+    /**
+     * The size of the checksum at the end of a record.
+     */
+    private static final int CHECKSUM_SIZE = 4;
+
+    /**
+     * The number of superseded bytes below which the journal is never compacted.
+     */
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    /**
+     * The name of the journal file.
+     */
+    private String filename;
+
+    /**
+     * The channel of the journal file.
+     */
+    private FileChannel channel;
+
+    /**
+     * The length of the intact part of the journal file, where the next record is appended.
+     */
+    private long end;
+
+    /**
+     * The number of bytes of the records that have been superseded.
+     */
+    private long supersededBytes;
+
+    /**
+     * A hash map with the UUID of each entity as the key and the position and length of its latest record as the value.
+     */
+    private HashMap<UUID, long[]> records;
+
+    /**
+     * Opens the journaled store with the given file name, creating it if it does not exist.
+     * Any torn record at the end of the journal is truncated.
+     *
+     * @param filename The name of the journal file.
+     * @param codec The codec that writes and reads the entities of this store.
+     * @param resolver Finds the entity of a given type and ID that a decoded entity refers to.
+     * @throws IOException if the journal file cannot be opened.
+     */
+    public JournaledEntityStore(String filename, EntityCodec<T> codec,
+                                BiFunction<Class<? extends Entity>, UUID, Entity> resolver) throws IOException {
+        super(codec, resolver);
+        this.filename = filename;
+        open();
+    }
+
+    /**
+     * Opens the journal file and indexes the latest record of each entity.
+     *
+     * @throws IOException if the journal file cannot be read.
+     */
+    private void open() throws IOException {
+        channel = new RandomAccessFile(filename, "rw").getChannel();
+        records = new HashMap<>();
+        end = 0;
+        supersededBytes = 0;
+        try (DataInputStream dataInputStream = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(filename)))) {
+            long length = channel.size();
+            while (end + HEADER_SIZE + CHECKSUM_SIZE <= length) {
+                int payloadLength = dataInputStream.readInt();
+                if (payloadLength < 0 || end + HEADER_SIZE + payloadLength + CHECKSUM_SIZE > length)
+                    break;
+                byte[] body = new byte[1 + 16 + payloadLength];
+                dataInputStream.readFully(body);
+                if (dataInputStream.readInt() != checksum(body))
+                    break;
+
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                boolean removal = buffer.get() != 0;
+                UUID id = new UUID(buffer.getLong(), buffer.getLong());
+                long size = HEADER_SIZE + payloadLength + CHECKSUM_SIZE;
+                long[] previous = removal ? records.remove(id) : records.put(id, new long[] { end, payloadLength });
+                if (previous != null)
+                    supersededBytes += HEADER_SIZE + previous[1] + CHECKSUM_SIZE;
+                if (removal)
+                    supersededBytes += size;
+                end += size;
+            }
+        }
+        channel.truncate(end);
+    }
+
+    @Override
+    protected byte[] readRecord(UUID id) throws IOException {
+        long[] record = records.get(id);
+        if (record == null)
+            return null;
+        ByteBuffer buffer = ByteBuffer.allocate((int) record[1]);
+        long position = record[0] + HEADER_SIZE;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new EOFException();
+        }
+        return buffer.array();
+    }
+
+    @Override
+    protected void writeRecord(UUID id, byte[] record) throws IOException {
+        long[] previous = records.put(id, new long[] { end, record.length });
+        if (previous != null)
+            supersededBytes += HEADER_SIZE + previous[1] + CHECKSUM_SIZE;
+        append(false, id, record);
+        compactIfSuperseded();
+    }
+
+    @Override
+    protected void deleteRecord(UUID id) throws IOException {
+        long[] previous = records.remove(id);
+        if (previous == null)
+            return;
+        supersededBytes += HEADER_SIZE + previous[1] + CHECKSUM_SIZE + HEADER_SIZE + CHECKSUM_SIZE;
+        append(true, id, new byte[0]);
+        compactIfSuperseded();
+    }
+
+    @Override
+    protected List<UUID> getIds() {
+        return new ArrayList<>(records.keySet());
+    }
+
+    @Override
+    public synchronized void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Appends a record to the journal file.
+     *
+     * @param removal Whether the record removes the entity.
+     * @param id The ID of the entity.
+     * @param payload The encoded entity, or an empty array for a removal.
+     * @throws IOException if the record cannot be written.
+     */
+    private void append(boolean removal, UUID id, byte[] payload) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length + CHECKSUM_SIZE);
+        buffer.putInt(payload.length);
+        buffer.put((byte) (removal ? 1 : 0));
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        buffer.put(payload);
+        byte[] bytes = buffer.array();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 4, 1 + 16 + payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer, end + buffer.position());
+        end += bytes.length;
+    }
+
+    /**
+     * Rewrites the journal file with only the latest record of each entity once most of it is superseded.
+     * The compacted journal is written to a temporary file that replaces the journal file atomically.
+     *
+     * @throws IOException if the journal file cannot be compacted.
+     */
+    private void compactIfSuperseded() throws IOException {
+        if (supersededBytes < MIN_COMPACTION_BYTES || supersededBytes < end / 2)
+            return;
+        String temporaryFilename = filename + ".tmp";
+        try (FileOutputStream fileOutputStream = new FileOutputStream(temporaryFilename);
+             DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(fileOutputStream))) {
+            for (Map.Entry<UUID, long[]> entry : records.entrySet()) {
+                byte[] payload = readRecord(entry.getKey());
+                byte[] body = ByteBuffer.allocate(1 + 16 + payload.length).put((byte) 0)
+                        .putLong(entry.getKey().getMostSignificantBits())
+                        .putLong(entry.getKey().getLeastSignificantBits()).put(payload).array();
+                dataOutputStream.writeInt(payload.length);
+                dataOutputStream.write(body);
+                dataOutputStream.writeInt(checksum(body));
+            }
+            dataOutputStream.flush();
+            fileOutputStream.getChannel().force(true);
+        }
+        channel.close();
+        Files.move(Paths.get(temporaryFilename), Paths.get(filename),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    /**
+     * Computes the checksum of the body of a record.
+     *
+     * @param body The bytes of the body, consisting of the removal flag, entity ID and payload.
+     * @return the CRC-32 of the body.
+     */
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+}
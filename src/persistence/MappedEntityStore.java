@@ -0,0 +1,335 @@
+package persistence;
+
+import model.commons.Entity;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Represents a durable store that keeps its entities in slots of a single file mapped into memory in fixed-size
+ * regions. Only the position of the slot of each entity is kept on the heap.
+ * <p>
+ * A changed entity is written to a free slot before its old slot is freed, so a crash leaves either version
+ * intact. Each slot carries a sequence number, so if both versions survive a crash the newer one wins.
+ * Freed slots are reused by later entities of a similar size.
+ *
+ * @param <T> The type of the entities in this store.
+ * @version 1.0
+ * @since 2017-11-20
+ */
+public class MappedEntityStore<T extends Entity> extends EncodedEntityStore<T> {
+
+    /**
+     * The size of each region of the file mapped into memory. No slot spans two regions.
+     */
+    private static final int REGION_SIZE = 1 << 24;
+
+    /**
+     * The alignment of the capacity of each slot.
+     */
+    private static final int SLOT_ALIGNMENT = 64;
+
+    /**
+     * The size of a slot header, consisting of the capacity, state, sequence number, length and entity ID.
+     */
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4 + 16;
+
+    /**
+     * The size of the checksum after the entity in a slot.
+     */
+    private static final int CHECKSUM_SIZE = 4;
+
+    /**
+     * The offset of the state in a slot.
+     */
+    private static final int STATE_OFFSET = 4;
+
+    /**
+     * The offset of the length of the entity in a slot.
+     */
+    private static final int LENGTH_OFFSET = 4 + 1 + 8;
+
+    /**
+     * The state of a slot that is allocated but not yet written.
+     */
+    private static final byte ALLOCATED = 0;
+
+    /**
+     * The state of a slot holding the latest version of an entity.
+     */
+    private static final byte LIVE = 1;
+
+    /**
+     * The state of a slot that is free to be reused.
+     */
+    private static final byte FREE = 2;
+
+    /**
+     * The channel of the file.
+     */
+    private FileChannel channel;
+
+    /**
+     * The regions of the file mapped into memory.
+     */
+    private ArrayList<MappedByteBuffer> regions;
+
+    /**
+     * A hash map with the UUID of each entity as the key and the position of its slot as the value.
+     */
+    private HashMap<UUID, Long> slots;
+
+    /**
+     * A tree map with a slot capacity as the key and the positions of the free slots of that capacity as the value.
+     */
+    private TreeMap<Integer, ArrayDeque<Long>> freeSlots;
+
+    /**
+     * The position after the last slot, where new slots are allocated.
+     */
+    private long tail;
+
+    /**
+     * The sequence number of the last slot written.
+     */
+    private long sequence;
+
+    /**
+     * Opens the mapped store with the given file name, creating it if it does not exist.
+     *
+     * @param filename The name of the file.
+     * @param codec The codec that writes and reads the entities of this store.
+     * @param resolver Finds the entity of a given type and ID that a decoded entity refers to.
+     * @throws IOException if the file cannot be opened.
+     */
+    public MappedEntityStore(String filename, EntityCodec<T> codec,
+                             BiFunction<Class<? extends Entity>, UUID, Entity> resolver) throws IOException {
+        super(codec, resolver);
+        this.channel = new RandomAccessFile(filename, "rw").getChannel();
+        this.regions = new ArrayList<>();
+        this.slots = new HashMap<>();
+        this.freeSlots = new TreeMap<>();
+        long regionCount = Math.max(1, (channel.size() + REGION_SIZE - 1) / REGION_SIZE);
+        for (int i = 0; i < regionCount; i++)
+            mapRegion();
+        indexSlots();
+    }
+
+    /**
+     * Maps the next region of the file into memory, growing the file if needed.
+     *
+     * @throws IOException if the region cannot be mapped.
+     */
+    private void mapRegion() throws IOException {
+        regions.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) regions.size() * REGION_SIZE, REGION_SIZE));
+    }
+
+    /**
+     * Indexes the slots of every region. Slots that were not completely written are freed,
+     * and of two live slots of the same entity the one with the older sequence number is freed.
+     */
+    private void indexSlots() {
+        HashMap<UUID, Long> sequences = new HashMap<>();
+        for (int regionIndex = 0; regionIndex < regions.size(); regionIndex++) {
+            ByteBuffer region = regions.get(regionIndex);
+            int position = 0;
+            while (position + HEADER_SIZE + CHECKSUM_SIZE <= REGION_SIZE) {
+                int capacity = region.getInt(position);
+                if (capacity < HEADER_SIZE + CHECKSUM_SIZE || position + capacity > REGION_SIZE)
+                    break;
+                long slot = (long) regionIndex * REGION_SIZE + position;
+                tail = slot + capacity;
+                position += capacity;
+
+                if (region.get(slot(slot) + STATE_OFFSET) != LIVE || !isIntact(slot)) {
+                    free(slot, capacity);
+                    continue;
+                }
+                long slotSequence = region.getLong(slot(slot) + STATE_OFFSET + 1);
+                sequence = Math.max(sequence, slotSequence);
+                UUID id = readId(slot);
+                Long previous = slots.get(id);
+                if (previous == null || sequences.get(id) < slotSequence) {
+                    slots.put(id, slot);
+                    sequences.put(id, slotSequence);
+                    if (previous != null)
+                        release(previous);
+                } else
+                    release(slot);
+            }
+        }
+    }
+
+    @Override
+    protected byte[] readRecord(UUID id) {
+        Long slot = slots.get(id);
+        if (slot == null)
+            return null;
+        ByteBuffer region = regions.get(region(slot)).duplicate();
+        int length = region.getInt(slot(slot) + LENGTH_OFFSET);
+        byte[] record = new byte[length];
+        region.position(slot(slot) + HEADER_SIZE);
+        region.get(record);
+        return record;
+    }
+
+    @Override
+    protected void writeRecord(UUID id, byte[] record) throws IOException {
+        int capacity = align(HEADER_SIZE + record.length + CHECKSUM_SIZE);
+        if (capacity > REGION_SIZE)
+            throw new IOException("Entity of " + record.length + " bytes does not fit in a region");
+        long slot = allocate(capacity);
+
+        ByteBuffer body = ByteBuffer.allocate(8 + 4 + 16 + record.length);
+        body.putLong(++sequence).putInt(record.length)
+                .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).put(record);
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+
+        ByteBuffer region = regions.get(region(slot)).duplicate();
+        region.position(slot(slot) + STATE_OFFSET + 1);
+        region.put(body.array());
+        region.putInt((int) crc.getValue());
+        region.put(slot(slot) + STATE_OFFSET, LIVE);
+
+        Long previous = slots.put(id, slot);
+        if (previous != null)
+            release(previous);
+    }
+
+    @Override
+    protected void deleteRecord(UUID id) {
+        Long slot = slots.remove(id);
+        if (slot != null)
+            release(slot);
+    }
+
+    @Override
+    protected List<UUID> getIds() {
+        return new ArrayList<>(slots.keySet());
+    }
+
+    @Override
+    public synchronized void sync() {
+        for (MappedByteBuffer region : regions)
+            region.force();
+    }
+
+    /**
+     * Allocates a slot of the given capacity, reusing a free slot of up to twice the capacity if there is one.
+     *
+     * @param capacity The capacity of the slot.
+     * @return the position of the slot.
+     * @throws IOException if the file cannot be grown.
+     */
+    private long allocate(int capacity) throws IOException {
+        Map.Entry<Integer, ArrayDeque<Long>> entry = freeSlots.ceilingEntry(capacity);
+        if (entry != null && entry.getKey() <= 2 * capacity) {
+            long slot = entry.getValue().poll();
+            if (entry.getValue().isEmpty())
+                freeSlots.remove(entry.getKey());
+            regions.get(region(slot)).put(slot(slot) + STATE_OFFSET, ALLOCATED);
+            return slot;
+        }
+
+        if (slot(tail) + capacity > REGION_SIZE || region(tail) == regions.size())
+            tail = (long) (region(tail) + (slot(tail) == 0 ? 0 : 1)) * REGION_SIZE;
+        while (region(tail) >= regions.size())
+            mapRegion();
+        long slot = tail;
+        ByteBuffer region = regions.get(region(slot));
+        region.put(slot(slot) + STATE_OFFSET, ALLOCATED);
+        region.putInt(slot(slot), capacity);
+        tail += capacity;
+        return slot;
+    }
+
+    /**
+     * Marks a slot free and makes it available for reuse.
+     *
+     * @param slot The position of the slot.
+     */
+    private void release(long slot) {
+        ByteBuffer region = regions.get(region(slot));
+        region.put(slot(slot) + STATE_OFFSET, FREE);
+        free(slot, region.getInt(slot(slot)));
+    }
+
+    /**
+     * Makes a slot available for reuse.
+     *
+     * @param slot The position of the slot.
+     * @param capacity The capacity of the slot.
+     */
+    private void free(long slot, int capacity) {
+        freeSlots.computeIfAbsent(capacity, key -> new ArrayDeque<>()).add(slot);
+    }
+
+    /**
+     * Checks whether a slot has been written completely.
+     *
+     * @param slot The position of the slot.
+     * @return true if the checksum of the slot matches its contents.
+     */
+    private boolean isIntact(long slot) {
+        ByteBuffer region = regions.get(region(slot)).duplicate();
+        int length = region.getInt(slot(slot) + LENGTH_OFFSET);
+        int capacity = region.getInt(slot(slot));
+        if (length < 0 || HEADER_SIZE + length + CHECKSUM_SIZE > capacity)
+            return false;
+        byte[] body = new byte[8 + 4 + 16 + length];
+        region.position(slot(slot) + STATE_OFFSET + 1);
+        region.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return region.getInt() == (int) crc.getValue();
+    }
+
+    /**
+     * Reads the ID of the entity in a slot.
+     *
+     * @param slot The position of the slot.
+     * @return the ID of the entity in the slot.
+     */
+    private UUID readId(long slot) {
+        ByteBuffer region = regions.get(region(slot));
+        int position = slot(slot) + LENGTH_OFFSET + 4;
+        return new UUID(region.getLong(position), region.getLong(position + 8));
+    }
+
+    /**
+     * Gets the index of the region a position falls in.
+     *
+     * @param position The position in the file.
+     * @return the index of the region.
+     */
+    private static int region(long position) {
+        return (int) (position / REGION_SIZE);
+    }
+
+    /**
+     * Gets the offset of a position within its region.
+     *
+     * @param position The position in the file.
+     * @return the offset within the region.
+     */
+    private static int slot(long position) {
+        return (int) (position % REGION_SIZE);
+    }
+
+    /**
+     * Rounds a size up to the slot alignment.
+     *
+     * @param size The size to be rounded up.
+     * @return the smallest multiple of the slot alignment that is not smaller than the size.
+     */
+    private static int align(int size) {
+        return (size + SLOT_ALIGNMENT - 1) / SLOT_ALIGNMENT * SLOT_ALIGNMENT;
+    }
+}
@@ -0,0 +1,71 @@
+package persistence;
+
+import model.commons.Entity;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents a store that holds its entities in a concurrent hash map on the heap. Its entities are persisted
+ * through the journal and the data file. Getting and scanning the entities takes no lock.
+ *
+ * @param <T> The type of the entities in this store.
+ * @version 1.0
+ * @since 2017-11-20
+ */
+public class MemoryEntityStore<T extends Entity> implements EntityStore<T> {
+
+    /**
+     * A concurrent hash map with the UUID of the entity as the key and the entity as the value.
+     */
+    private ConcurrentHashMap<UUID, T> entities;
+
+    /**
+     * Creates an empty memory store.
+     */
+    public MemoryEntityStore() {
+        this.entities = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void put(T entity) {
+        entities.put(entity.getId(), entity);
+    }
+
+    @Override
+    public T get(UUID id) {
+        return entities.get(id);
+    }
+
+    @Override
+    public Iterable<T> scan() {
+        return entities.values();
+    }
+
+    @Override
+    public void remove(UUID id) {
+        entities.remove(id);
+    }
+
+    @Override
+    public void batch(Collection<? extends T> puts, Collection<UUID> removals) {
+
+        // Batches do not interleave with each other, though a reader may see part of one
+        synchronized (entities) {
+            for (T entity : puts)
+                put(entity);
+            for (UUID id : removals)
+                remove(id);
+        }
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    @Override
+    public void sync() {
+    }
+}
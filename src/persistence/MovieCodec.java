@@ -0,0 +1,115 @@
+package persistence;
+
+import model.booking.Showtime;
+import model.movie.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Represents the codec of movies. The director and actors of a movie are written as part of its record.
+ *
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public class MovieCodec implements EntityCodec<Movie> {
+
+    @Override
+    public Class<Movie> getEntityType() {
+        return Movie.class;
+    }
+
+    @Override
+    public void write(Movie movie, EntityOutput out) throws IOException {
+        out.writeId(movie.getId());
+        out.writeString(movie.getTitle());
+        out.writeString(movie.getSynopsis());
+        writePerson(movie.getDirector(), out);
+        List<MoviePerson> actors = movie.getActors();
+        out.writeVarInt(actors.size());
+        for (MoviePerson actor : actors)
+            writePerson(actor, out);
+        out.writeEnum(movie.getType());
+        out.writeEnum(movie.getStatus());
+        out.writeEnum(movie.getRating());
+        out.writeVarInt(movie.getRuntimeMinutes());
+        out.writeReferences(movie.getReviews());
+        out.writeReferences(movie.getShowtimes());
+    }
+
+    @Override
+    public Movie read(EntityInput in) throws IOException {
+        UUID id = in.readId();
+        String title = in.readString();
+        String synopsis = in.readString();
+        MoviePerson director = readPerson(in);
+        MoviePerson[] actors = new MoviePerson[in.readVarInt()];
+        for (int i = 0; i < actors.length; i++)
+            actors[i] = readPerson(in);
+        MovieType type = in.readEnum(MovieType.values());
+        MovieStatus status = in.readEnum(MovieStatus.values());
+        MovieRating rating = in.readEnum(MovieRating.values());
+        int runtimeMinutes = in.readVarInt();
+
+        Movie movie = new Movie(title, synopsis, director, type, actors, status, rating, runtimeMinutes);
+        movie.setId(id);
+        in.readReferences(MovieReview.class, movie::addReview);
+        in.readReferences(Showtime.class, movie::addShowtime);
+        return movie;
+    }
+
+    @Override
+    public void readInto(Movie movie, EntityInput in) throws IOException {
+        in.readId();
+        String title = in.readString();
+        String synopsis = in.readString();
+        MoviePerson director = readPerson(in);
+        MoviePerson[] actors = new MoviePerson[in.readVarInt()];
+        for (int i = 0; i < actors.length; i++)
+            actors[i] = readPerson(in);
+        MovieType type = in.readEnum(MovieType.values());
+        MovieStatus status = in.readEnum(MovieStatus.values());
+        MovieRating rating = in.readEnum(MovieRating.values());
+        int runtimeMinutes = in.readVarInt();
+
+        // The details are published as a single revision, so no reader sees the record half applied
+        Movie.Details details;
+        do {
+            details = movie.getDetails();
+        } while (!movie.compareAndSetDetails(details, title, synopsis, director, actors, rating, runtimeMinutes));
+        movie.setType(type);
+        movie.setStatus(status);
+        in.addFixUp(movie.getReviews()::clear);
+        in.readReferences(MovieReview.class, movie::addReview);
+        in.addFixUp(movie.getShowtimes()::clear);
+        in.readReferences(Showtime.class, movie::addShowtime);
+    }
+
+    /**
+     * Writes a movie person as part of a movie record.
+     *
+     * @param person The movie person to be written.
+     * @param out The entity output to be written to.
+     * @throws IOException if the movie person cannot be written.
+     */
+    private static void writePerson(MoviePerson person, EntityOutput out) throws IOException {
+        out.writeId(person.getId());
+        out.writeString(person.getFirstName());
+        out.writeString(person.getLastName());
+    }
+
+    /**
+     * Reads a movie person written as part of a movie record.
+     *
+     * @param in The entity input to be read from.
+     * @return the movie person that is read.
+     * @throws IOException if the movie person cannot be read.
+     */
+    private static MoviePerson readPerson(EntityInput in) throws IOException {
+        UUID id = in.readId();
+        MoviePerson person = new MoviePerson(in.readString(), in.readString());
+        person.setId(id);
+        return person;
+    }
+}
@@ -0,0 +1,48 @@
+package persistence;
+
+import model.commons.User;
+import model.movie.Movie;
+import model.movie.MovieReview;
+
+import java.io.IOException;
+
+/**
+ * Represents the codec of movie reviews.
+ *
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public class MovieReviewCodec implements EntityCodec<MovieReview> {
+
+    @Override
+    public Class<MovieReview> getEntityType() {
+        return MovieReview.class;
+    }
+
+    @Override
+    public void write(MovieReview movieReview, EntityOutput out) throws IOException {
+        out.writeId(movieReview.getId());
+        out.writeString(movieReview.getReview());
+        out.writeVarInt(movieReview.getRating());
+        out.writeDate(movieReview.getCreated());
+        out.writeReference(movieReview.getMovie());
+        out.writeReference(movieReview.getAuthor());
+    }
+
+    @Override
+    public MovieReview read(EntityInput in) throws IOException {
+        MovieReview movieReview = new MovieReview(null, null, 0, null);
+        readInto(movieReview, in);
+        return movieReview;
+    }
+
+    @Override
+    public void readInto(MovieReview movieReview, EntityInput in) throws IOException {
+        movieReview.setId(in.readId());
+        movieReview.setReview(in.readString());
+        movieReview.setRating(in.readVarInt());
+        movieReview.setCreated(in.readDate());
+        in.readReference(Movie.class, movieReview::setMovie);
+        in.readReference(User.class, movieReview::setAuthor);
+    }
+}
@@ -0,0 +1,45 @@
+package persistence;
+
+import model.transaction.Payment;
+import model.transaction.PaymentStatus;
+
+import java.io.IOException;
+
+/**
+ * Represents the codec of payments.
+ *
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public class PaymentCodec implements EntityCodec<Payment> {
+
+    @Override
+    public Class<Payment> getEntityType() {
+        return Payment.class;
+    }
+
+    @Override
+    public void write(Payment payment, EntityOutput out) throws IOException {
+        out.writeId(payment.getId());
+        out.writeEnum(payment.getStatus());
+        out.writeDate(payment.getDate());
+        out.writeString(payment.getTransactionId());
+        out.writeDouble(payment.getAmount());
+    }
+
+    @Override
+    public Payment read(EntityInput in) throws IOException {
+        Payment payment = new Payment(0, "");
+        readInto(payment, in);
+        return payment;
+    }
+
+    @Override
+    public void readInto(Payment payment, EntityInput in) throws IOException {
+        payment.setId(in.readId());
+        payment.setStatus(in.readEnum(PaymentStatus.values()));
+        payment.setDate(in.readDate());
+        payment.setTransactionId(in.readString());
+        payment.setAmount(in.readDouble());
+    }
+}
@@ -0,0 +1,21 @@
+package persistence;
+
+import java.io.IOException;
+
+/**
+ * Represents a migration step that rewrites a single record from one schema version of its codec to the next.
+ *
+ * @version 1.0
+ * @since 2017-11-22
+ */
+public interface RecordMigration {
+
+    /**
+     * Reads one record in the old schema version and writes it in the next one.
+     *
+     * @param in The entity input the record is read from, positioned at the start of the record.
+     * @param out The entity output the migrated record is written to.
+     * @throws IOException if the record cannot be read or written.
+     */
+    void migrate(EntityInput in, EntityOutput out) throws IOException;
+}
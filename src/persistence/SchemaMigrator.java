@@ -0,0 +1,174 @@
+package persistence;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the migrator that brings records written in an older schema version up to the schema version
+ * of their codec, one record at a time through the migrations registered by the codec.
+ *
+ * @version 1.0
+ * @since 2017-11-22
+ */
+public class SchemaMigrator {
+
+    /**
+     * The suffix of the name of the copy of a snapshot file kept from before it was upgraded.
+     */
+    private static final String BACKUP_SUFFIX = ".bak";
+
+    /**
+     * Upgrades the snapshot file with the given name in place, so that every segment is in the schema version
+     * of its codec. The segments are streamed one at a time and their records migrated one at a time, so the
+     * memory needed does not grow with the size of the file. The file from before the upgrade is kept as a backup.
+     *
+     * @param filename The name of the snapshot file.
+     * @param codecs A map with the prefix of the names of the segments of each codec as the key and the codec
+     *               as the value.
+     * @return the number of segments migrated, which is zero if the file is missing or already up to date.
+     * @throws StreamCorruptedException if a record is in a schema version that cannot be migrated.
+     * @throws IOException if the file cannot be upgraded.
+     */
+    public static int upgrade(String filename, Map<String, EntityCodec<?>> codecs) throws IOException {
+        if (!new File(filename).exists())
+            return 0;
+        SnapshotFile snapshot = SnapshotFile.readHeader(filename);
+        List<String> names = snapshot.getSegmentNames();
+        HashMap<String, Integer> schemaVersions = new HashMap<>();
+        int outdatedCount = 0;
+        for (String name : names) {
+            EntityCodec<?> codec = codecs.get(getPrefix(name));
+            int schemaVersion = snapshot.getSchemaVersion(name);
+            if (codec != null && schemaVersion != codec.getSchemaVersion()) {
+                schemaVersion = codec.getSchemaVersion();
+                outdatedCount++;
+            }
+            schemaVersions.put(name, schemaVersion);
+        }
+        if (outdatedCount == 0)
+            return 0;
+
+        backup(filename);
+        Compression compression = snapshot.getCompression();
+        SnapshotFile.write(filename, compression, names, schemaVersions, name -> {
+            byte[] segment = snapshot.getSegment(name);
+            EntityCodec<?> codec = codecs.get(getPrefix(name));
+            if (codec == null || snapshot.getSchemaVersion(name) == codec.getSchemaVersion())
+                return segment;
+            return migrateSegment(codec, snapshot.getSchemaVersion(name), segment, compression);
+        });
+        return outdatedCount;
+    }
+
+    /**
+     * Migrates every record of a segment to the schema version of its codec.
+     *
+     * @param codec The codec of the records of the segment.
+     * @param fromVersion The schema version the records are in.
+     * @param segment The bytes of the segment as it is stored.
+     * @param compression The compression the segment is stored in.
+     * @return the bytes of the migrated segment, stored in the same compression.
+     * @throws StreamCorruptedException if the records are in a schema version that cannot be migrated.
+     * @throws IOException if the segment cannot be migrated.
+     */
+    public static byte[] migrateSegment(EntityCodec<?> codec, int fromVersion, byte[] segment,
+                                        Compression compression) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(segment.length);
+        try (EntityInput in = new EntityInput(compression.decompress(new ByteArrayInputStream(segment)));
+             EntityOutput out = new EntityOutput(compression.compress(byteArrayOutputStream))) {
+            int size = in.readVarInt();
+            out.writeVarInt(size);
+            for (int i = 0; i < size; i++)
+                migrate(codec, fromVersion, in, out);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Migrates a single record to the schema version of its codec.
+     *
+     * @param codec The codec of the record.
+     * @param fromVersion The schema version the record is in.
+     * @param record The bytes of the record.
+     * @return the bytes of the migrated record.
+     * @throws StreamCorruptedException if the record is in a schema version that cannot be migrated.
+     * @throws IOException if the record cannot be migrated.
+     */
+    public static byte[] migrateRecord(EntityCodec<?> codec, int fromVersion, byte[] record) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(record.length);
+        try (EntityInput in = new EntityInput(new ByteArrayInputStream(record));
+             EntityOutput out = new EntityOutput(byteArrayOutputStream)) {
+            migrate(codec, fromVersion, in, out);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Migrates the next record of an entity input through every step up to the schema version of its codec.
+     *
+     * @param codec The codec of the record.
+     * @param fromVersion The schema version the record is in.
+     * @param in The entity input the record is read from.
+     * @param out The entity output the migrated record is written to.
+     * @throws StreamCorruptedException if there is no migration from one of the schema versions on the way.
+     * @throws IOException if the record cannot be migrated.
+     */
+    private static void migrate(EntityCodec<?> codec, int fromVersion, EntityInput in, EntityOutput out)
+            throws IOException {
+        String typeName = codec.getEntityType().getSimpleName();
+        if (fromVersion > codec.getSchemaVersion())
+            throw new StreamCorruptedException(typeName + " records are in a newer schema version " + fromVersion);
+
+        // Each step but the last writes to a buffer the next step reads from
+        EntityInput stepInput = in;
+        for (int version = fromVersion; version < codec.getSchemaVersion(); version++) {
+            RecordMigration migration = codec.getMigration(version);
+            if (migration == null)
+                throw new StreamCorruptedException("No migration of " + typeName + " records from schema version "
+                        + version);
+            if (version == codec.getSchemaVersion() - 1) {
+                migration.migrate(stepInput, out);
+                return;
+            }
+            ByteArrayOutputStream stepBytes = new ByteArrayOutputStream();
+            EntityOutput stepOutput = new EntityOutput(stepBytes);
+            migration.migrate(stepInput, stepOutput);
+            stepOutput.flush();
+            stepInput = new EntityInput(new ByteArrayInputStream(stepBytes.toByteArray()));
+        }
+    }
+
+    /**
+     * Keeps a copy of a snapshot file from before it is upgraded, replacing any older copy.
+     * The copy is a hard link where the file system supports one.
+     *
+     * @param filename The name of the snapshot file.
+     * @throws IOException if the copy cannot be made.
+     */
+    private static void backup(String filename) throws IOException {
+        Path path = Paths.get(filename).toAbsolutePath();
+        Path backupPath = Paths.get(filename + BACKUP_SUFFIX).toAbsolutePath();
+        Files.deleteIfExists(backupPath);
+        try {
+            Files.createLink(backupPath, path);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(path, backupPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Gets the prefix of the name of a segment, shared by all the segments of the same codec.
+     *
+     * @param name The name of the segment.
+     * @return the name of the segment without its index.
+     */
+    private static String getPrefix(String name) {
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+}
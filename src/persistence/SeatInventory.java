@@ -0,0 +1,261 @@
+package persistence;
+
+import exception.IllegalActionException;
+import model.cineplex.CinemaLayout;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Represents the seat inventory of all showtimes, kept in a file mapped into memory so that changing the status
+ * of a seat is a write in place and nothing has to be decoded at startup.
+ * <p>
+ * The file is a sequence of regions of {@value #REGION_SIZE} bytes, one per showtime, allocated in order.
+ * A region starts with the ID of its showtime (two big-endian longs, both zero for an unallocated region and
+ * both all ones for a region released by a showtime that is cancelled or over, which is allocated again first),
+ * followed by the maximum row and maximum column of the cinema layout (two big-endian shorts) and four reserved
+ * bytes. The rest of the region holds two bits per cell of the layout, row by row, with the status of the seat
+ * at row {@code r} and column {@code c} at slot {@code (r - 'A') * maxColumn + (c - 1)}, four slots per byte
+ * starting from the lowest bits. Another process can therefore read the seat maps with nothing but this file.
+ *
+ * @version 1.0
+ * @since 2017-11-21
+ */
+public class SeatInventory {
+
+    /**
+     * The size of the region of each showtime.
+     */
+    public static final int REGION_SIZE = 512;
+
+    /**
+     * The size of a region header, consisting of the showtime ID, maximum row, maximum column and reserved bytes.
+     */
+    private static final int HEADER_SIZE = 16 + 2 + 2 + 4;
+
+    /**
+     * The maximum number of cells of a cinema layout whose statuses fit in a region.
+     */
+    public static final int MAX_SLOTS = (REGION_SIZE - HEADER_SIZE) * 4;
+
+    /**
+     * The number of regions in each chunk of the file mapped into memory.
+     */
+    private static final int CHUNK_REGIONS = 8192;
+
+    /**
+     * The value of both longs of the showtime ID of a released region.
+     */
+    private static final long RELEASED_ID = -1;
+
+    /**
+     * A reference to this singleton instance, or null if no seat inventory is opened.
+     */
+    private static SeatInventory instance;
+
+    /**
+     * The channel of the file.
+     */
+    private FileChannel channel;
+
+    /**
+     * The chunks of the file mapped into memory.
+     */
+    private ArrayList<MappedByteBuffer> chunks;
+
+    /**
+     * A hash map with the UUID of each showtime as the key and the index of its region as the value.
+     */
+    private HashMap<UUID, Integer> regions;
+
+    /**
+     * The number of regions allocated.
+     */
+    private int regionCount;
+
+    /**
+     * The tree set of the indexes of the released regions, allocated again from the lowest.
+     */
+    private TreeSet<Integer> releasedRegions;
+
+    /**
+     * Opens the seat inventory with the given file name, creating it if it does not exist.
+     *
+     * @param filename The name of the file.
+     * @throws IOException if the file cannot be opened.
+     */
+    private SeatInventory(String filename) throws IOException {
+        this.channel = new RandomAccessFile(filename, "rw").getChannel();
+        this.chunks = new ArrayList<>();
+        this.regions = new HashMap<>();
+        this.releasedRegions = new TreeSet<>();
+        long chunkSize = (long) CHUNK_REGIONS * REGION_SIZE;
+        long chunkCount = Math.max(1, (channel.size() + chunkSize - 1) / chunkSize);
+        for (int i = 0; i < chunkCount; i++)
+            mapChunk();
+        indexRegions();
+    }
+
+    /**
+     * Opens the seat inventory that the seatings of all showtimes are kept in from now on.
+     *
+     * @param filename The name of the file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public static void init(String filename) throws IOException {
+        instance = new SeatInventory(filename);
+    }
+
+    /**
+     * Gets this seat inventory's singleton instance.
+     *
+     * @return this seat inventory's singleton instance, or null if the seatings are kept on the heap.
+     */
+    public static SeatInventory getInstance() {
+        return instance;
+    }
+
+    /**
+     * Maps the next chunk of the file into memory, growing the file if needed.
+     *
+     * @throws IOException if the chunk cannot be mapped.
+     */
+    private void mapChunk() throws IOException {
+        long chunkSize = (long) CHUNK_REGIONS * REGION_SIZE;
+        chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, chunks.size() * chunkSize, chunkSize));
+    }
+
+    /**
+     * Indexes the allocated and released regions, which end at the first region without a showtime ID.
+     */
+    private void indexRegions() {
+        for (int region = 0; region < chunks.size() * CHUNK_REGIONS; region++) {
+            ByteBuffer chunk = chunks.get(region / CHUNK_REGIONS);
+            int offset = offset(region);
+            UUID showtimeId = new UUID(chunk.getLong(offset), chunk.getLong(offset + 8));
+            if (showtimeId.getMostSignificantBits() == 0 && showtimeId.getLeastSignificantBits() == 0)
+                break;
+            if (showtimeId.getMostSignificantBits() == RELEASED_ID &&
+                    showtimeId.getLeastSignificantBits() == RELEASED_ID)
+                releasedRegions.add(region);
+            else
+                regions.put(showtimeId, region);
+            regionCount = region + 1;
+        }
+    }
+
+    /**
+     * Gets the seat statuses of a showtime, allocating a region with all seats available if it has none.
+     * A released region is allocated before the file is grown. The region of a showtime whose cinema layout has
+     * changed size is cleared.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @param layout     The cinema layout of the showtime.
+     * @return the buffer of the seat statuses of the showtime, backed by the file.
+     * @throws IOException            if the file cannot be grown.
+     * @throws IllegalActionException if the cinema layout has too many cells for a region.
+     */
+    public synchronized ByteBuffer allocate(UUID showtimeId, CinemaLayout layout) throws IOException {
+        short maxRow = (short) layout.getMaxRow();
+        short maxColumn = (short) layout.getMaxColumn();
+        if ((maxRow - 'A' + 1) * maxColumn > MAX_SLOTS)
+            throw new IllegalActionException("The cinema layout has too many seats for the seat inventory");
+
+        Integer region = regions.get(showtimeId);
+        if (region != null) {
+            ByteBuffer chunk = chunks.get(region / CHUNK_REGIONS);
+            int offset = offset(region);
+            if (chunk.getShort(offset + 16) == maxRow && chunk.getShort(offset + 18) == maxColumn)
+                return statuses(region);
+            clear(region);
+            chunk.putShort(offset + 16, maxRow);
+            chunk.putShort(offset + 18, maxColumn);
+            return statuses(region);
+        }
+
+        // The ID is written last, so a region torn by a crash is never indexed
+        region = releasedRegions.isEmpty() ? regionCount : releasedRegions.pollFirst();
+        if (region / CHUNK_REGIONS >= chunks.size())
+            mapChunk();
+        ByteBuffer chunk = chunks.get(region / CHUNK_REGIONS);
+        int offset = offset(region);
+        clear(region);
+        chunk.putShort(offset + 16, maxRow);
+        chunk.putShort(offset + 18, maxColumn);
+        chunk.putLong(offset, showtimeId.getMostSignificantBits());
+        chunk.putLong(offset + 8, showtimeId.getLeastSignificantBits());
+        regions.put(showtimeId, region);
+        regionCount = Math.max(regionCount, region + 1);
+        return statuses(region);
+    }
+
+    /**
+     * Releases the region of a showtime whose seats no longer change, so that it is allocated to another showtime.
+     * The buffer of its seat statuses must no longer be written to.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @return true if the showtime had a region.
+     */
+    public synchronized boolean release(UUID showtimeId) {
+        Integer region = regions.remove(showtimeId);
+        if (region == null)
+            return false;
+        ByteBuffer chunk = chunks.get(region / CHUNK_REGIONS);
+        int offset = offset(region);
+        chunk.putLong(offset, RELEASED_ID);
+        chunk.putLong(offset + 8, RELEASED_ID);
+        releasedRegions.add(region);
+        return true;
+    }
+
+    /**
+     * Forces the changed seat statuses of all showtimes to disk.
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer chunk : chunks)
+            chunk.force();
+    }
+
+    /**
+     * Sets the seat statuses of a region to all available.
+     *
+     * @param region The index of the region.
+     */
+    private void clear(int region) {
+        ByteBuffer chunk = chunks.get(region / CHUNK_REGIONS);
+        int offset = offset(region);
+        for (int position = offset + HEADER_SIZE; position < offset + REGION_SIZE; position++)
+            chunk.put(position, (byte) 0);
+    }
+
+    /**
+     * Gets the buffer of the seat statuses of a region.
+     *
+     * @param region The index of the region.
+     * @return the buffer of the seat statuses, sharing the memory of the file.
+     */
+    private ByteBuffer statuses(int region) {
+        ByteBuffer chunk = chunks.get(region / CHUNK_REGIONS).duplicate();
+        int offset = offset(region);
+        chunk.limit(offset + REGION_SIZE);
+        chunk.position(offset + HEADER_SIZE);
+        return chunk.slice();
+    }
+
+    /**
+     * Gets the offset of a region within its chunk.
+     *
+     * @param region The index of the region.
+     * @return the offset of the region within its chunk.
+     */
+    private static int offset(int region) {
+        return region % CHUNK_REGIONS * REGION_SIZE;
+    }
+}
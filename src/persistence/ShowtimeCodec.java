@@ -0,0 +1,143 @@
+package persistence;
+
+import model.booking.Booking;
+import model.booking.SeatingStatus;
+import model.booking.Showtime;
+import model.booking.ShowtimeSeating;
+import model.cineplex.Cinema;
+import model.cineplex.Cineplex;
+import model.cineplex.Seat;
+import model.commons.Language;
+import model.movie.Movie;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Represents the codec of showtimes. Only the seats that are taken are written,
+ * the rest of the seating is rebuilt from the layout of the cinema. Held seats are not written,
+ * as a hold does not outlive the session that made it.
+ *
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public class ShowtimeCodec implements EntityCodec<Showtime> {
+
+    @Override
+    public Class<Showtime> getEntityType() {
+        return Showtime.class;
+    }
+
+    @Override
+    public void write(Showtime showtime, EntityOutput out) throws IOException {
+        out.writeId(showtime.getId());
+        out.writeEnum(showtime.getLanguage());
+        out.writeDate(showtime.getStartTime());
+        out.writeBoolean(showtime.isNoFreePasses());
+        out.writeBoolean(showtime.isPreview());
+        out.writeBoolean(showtime.isCancelled());
+        List<Language> subtitles = showtime.getSubtitles();
+        out.writeVarInt(subtitles.size());
+        for (Language subtitle : subtitles)
+            out.writeEnum(subtitle);
+        out.writeReference(showtime.getMovie());
+        out.writeReference(showtime.getCineplex());
+        out.writeReference(showtime.getCinema());
+
+        ShowtimeSeating seating = showtime.getSeating();
+        ArrayList<Seat> takenSeats = new ArrayList<>();
+        for (Seat seat : showtime.getCinema().getLayout().getSeats())
+            if (seating.getSeatingStatus(seat) == SeatingStatus.TAKEN)
+                takenSeats.add(seat);
+        out.writeVarInt(takenSeats.size());
+        for (Seat seat : takenSeats) {
+            CinemaCodec.writeSeat(seat, out);
+            out.writeEnum(SeatingStatus.TAKEN);
+        }
+
+        out.writeReferences(showtime.getBookings());
+    }
+
+    @Override
+    public Showtime read(EntityInput in) throws IOException {
+        UUID id = in.readId();
+        Language language = in.readEnum(Language.values());
+        Date startTime = in.readDate();
+        boolean noFreePasses = in.readBoolean();
+        boolean isPreview = in.readBoolean();
+        boolean isCancelled = in.readBoolean();
+        Language[] subtitles = new Language[in.readVarInt()];
+        for (int i = 0; i < subtitles.length; i++)
+            subtitles[i] = in.readEnum(Language.values());
+
+        Showtime showtime = new Showtime(null, null, null, language, startTime,
+                noFreePasses, isPreview, subtitles);
+        showtime.setId(id);
+        showtime.setCancelled(isCancelled);
+        in.readReference(Movie.class, showtime::setMovie);
+        in.readReference(Cineplex.class, showtime::setCineplex);
+        in.readReference(Cinema.class, showtime::setCinema);
+
+        readSeating(showtime, in);
+        in.readReferences(Booking.class, showtime::addBooking);
+        return showtime;
+    }
+
+    @Override
+    public void readInto(Showtime showtime, EntityInput in) throws IOException {
+        in.readId();
+        showtime.setLanguage(in.readEnum(Language.values()));
+        showtime.setStartTime(in.readDate());
+        showtime.setNoFreePasses(in.readBoolean());
+        showtime.setPreview(in.readBoolean());
+        showtime.setCancelled(in.readBoolean());
+        Language[] subtitles = new Language[in.readVarInt()];
+        for (int i = 0; i < subtitles.length; i++)
+            subtitles[i] = in.readEnum(Language.values());
+        showtime.setSubtitles(subtitles);
+        in.readReference(Movie.class, showtime::setMovie);
+        in.readReference(Cineplex.class, showtime::setCineplex);
+        in.readReference(Cinema.class, showtime::setCinema);
+        readSeating(showtime, in);
+        in.addFixUp(showtime.getBookings()::clear);
+        in.readReferences(Booking.class, showtime::addBooking);
+    }
+
+    /**
+     * Reads the seats that are not available and sets them in the seating of a showtime once its cinema is
+     * resolved. A showtime already in memory keeps its seating unless its cinema has another layout, so the
+     * seating is only built again when the showtime is read for the first time or has been moved.
+     *
+     * @param showtime The showtime whose seating is read.
+     * @param in The entity input to be read from.
+     * @throws IOException if the seats cannot be read.
+     */
+    private static void readSeating(Showtime showtime, EntityInput in) throws IOException {
+        int unavailableCount = in.readVarInt();
+        ArrayList<Seat> unavailableSeats = new ArrayList<>(unavailableCount);
+        ArrayList<SeatingStatus> statuses = new ArrayList<>(unavailableCount);
+        for (int i = 0; i < unavailableCount; i++) {
+            unavailableSeats.add(CinemaCodec.readSeat(in));
+            statuses.add(in.readEnum(SeatingStatus.values()));
+        }
+
+        // The seating can only be rebuilt once the cinema is resolved, and no longer needs the seat inventory
+        // once the showtime is cancelled or over
+        in.addFixUp(() -> {
+            ShowtimeSeating seating = showtime.getSeating();
+            if (seating == null || seating.getLayout() != showtime.getCinema().getLayout()) {
+                if (seating != null)
+                    seating.release();
+                seating = new ShowtimeSeating(showtime);
+                showtime.setSeating(seating);
+            }
+            for (int i = 0; i < unavailableCount; i++)
+                seating.setSeatingStatus(unavailableSeats.get(i), statuses.get(i));
+            if (showtime.isCancelled() || showtime.getEndTime().getTime() < System.currentTimeMillis())
+                seating.release();
+        });
+    }
+}
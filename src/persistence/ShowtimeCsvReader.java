@@ -0,0 +1,287 @@
+package persistence;
+
+import model.booking.ShowtimeDraft;
+import model.booking.ShowtimeImportReport.Rejection;
+import model.cineplex.Cinema;
+import model.cineplex.Cineplex;
+import model.commons.Language;
+import model.movie.Movie;
+import view.ui.Form;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Represents the reader of showtimes to be imported from comma separated values, one showtime per line:
+ * <pre>
+ * cineplex,cinema,movie,language,start time,no free passes,subtitles
+ * </pre>
+ * The cineplex is given by its ID or name, the cinema by its ID or code within the cineplex and the movie by its
+ * ID or title, and a name or title shared by several cineplexes or movies is rejected as ambiguous. The start
+ * time is in the date format of the forms, no free passes is true or false and defaults to false, and the
+ * subtitles are languages separated by semicolons. A field with a comma is put in double quotes.
+ * A first line starting with "cineplex" is taken as a header, and blank lines are skipped.
+ * <p>
+ * The lines are read one at a time, and each is turned into either a draft or a rejection of its line, so
+ * a whole file is checked in a single pass. The cineplexes and movies are looked up by maps built once.
+ *
+ * @version 1.0
+ * @since 2017-11-26
+ */
+public class ShowtimeCsvReader {
+
+    /**
+     * The number of fields of a line, the last two of which may be left out.
+     */
+    private static final int FIELD_COUNT = 7;
+
+    /**
+     * The separator of the subtitles in their field.
+     */
+    private static final String SUBTITLE_SEPARATOR = ";";
+
+    /**
+     * A hash map with the ID and the lower case name of each cineplex as the keys and the cineplex as the value,
+     * or null as the value of a name shared by several cineplexes.
+     */
+    private HashMap<String, Cineplex> cineplexes;
+
+    /**
+     * A hash map with the ID and the lower case title of each movie as the keys and the movie as the value,
+     * or null as the value of a title shared by several movies.
+     */
+    private HashMap<String, Movie> movies;
+
+    /**
+     * The format of the start times, created once for all the lines and strict about the days of each month.
+     */
+    private SimpleDateFormat dateFormat;
+
+    /**
+     * The drafts of the lines read that are valid.
+     */
+    private ArrayList<ShowtimeDraft> drafts;
+
+    /**
+     * The number of the line of each draft, counted from 1.
+     */
+    private ArrayList<Integer> draftRows;
+
+    /**
+     * The rejections of the lines read that are not valid.
+     */
+    private ArrayList<Rejection> rejections;
+
+    /**
+     * The number of showtime lines read, without the header and blank lines.
+     */
+    private int rowCount;
+
+    /**
+     * Creates a reader of showtimes that refer to the given cineplexes and movies.
+     *
+     * @param cineplexes The cineplexes the showtimes may be at.
+     * @param movies     The movies the showtimes may show.
+     */
+    public ShowtimeCsvReader(List<Cineplex> cineplexes, List<Movie> movies) {
+        this.cineplexes = new HashMap<>();
+        for (Cineplex cineplex : cineplexes) {
+            this.cineplexes.put(cineplex.getId().toString(), cineplex);
+            String name = cineplex.getName().toLowerCase(Locale.ROOT);
+            this.cineplexes.put(name, this.cineplexes.containsKey(name) ? null : cineplex);
+        }
+        this.movies = new HashMap<>();
+        for (Movie movie : movies) {
+            this.movies.put(movie.getId().toString(), movie);
+            String title = movie.getTitle().toLowerCase(Locale.ROOT);
+            this.movies.put(title, this.movies.containsKey(title) ? null : movie);
+        }
+        this.dateFormat = new SimpleDateFormat(Form.DATE_FORMAT);
+        this.dateFormat.setLenient(false);
+        this.drafts = new ArrayList<>();
+        this.draftRows = new ArrayList<>();
+        this.rejections = new ArrayList<>();
+    }
+
+    /**
+     * Reads every line of the given reader.
+     *
+     * @param reader The reader of the lines.
+     * @throws IOException if the lines cannot be read.
+     */
+    public void read(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int row = 0;
+        while ((line = lines.readLine()) != null) {
+            row++;
+            if (line.trim().isEmpty() || row == 1 && line.trim().toLowerCase(Locale.ROOT).startsWith("cineplex"))
+                continue;
+            rowCount++;
+            try {
+                drafts.add(parse(line));
+                draftRows.add(row);
+            } catch (IllegalArgumentException e) {
+                rejections.add(new Rejection(row, e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Parses a line into the draft of a showtime.
+     *
+     * @param line The line.
+     * @return the draft of the showtime of the line.
+     * @throws IllegalArgumentException if the line is not valid, with the reason as its message.
+     */
+    private ShowtimeDraft parse(String line) {
+        List<String> fields = split(line);
+        if (fields.size() < FIELD_COUNT - 2 || fields.size() > FIELD_COUNT)
+            throw new IllegalArgumentException("Expected " + (FIELD_COUNT - 2) + " to " + FIELD_COUNT +
+                    " fields but found " + fields.size() + ".");
+
+        String cineplexKey = lookupKey(fields.get(0));
+        Cineplex cineplex = cineplexes.get(cineplexKey);
+        if (cineplex == null)
+            throw new IllegalArgumentException((cineplexes.containsKey(cineplexKey) ? "Several cineplexes are named " :
+                    "Cineplex not found: ") + fields.get(0));
+
+        Cinema cinema = null;
+        for (Cinema cineplexCinema : cineplex.getCinemas())
+            if (cineplexCinema.getId().toString().equals(fields.get(1)) ||
+                    cineplexCinema.getCode().equalsIgnoreCase(fields.get(1)))
+                cinema = cineplexCinema;
+        if (cinema == null)
+            throw new IllegalArgumentException("Cinema not found in " + cineplex.getName() + ": " + fields.get(1));
+
+        String movieKey = lookupKey(fields.get(2));
+        Movie movie = movies.get(movieKey);
+        if (movie == null)
+            throw new IllegalArgumentException((movies.containsKey(movieKey) ? "Several movies are titled " :
+                    "Movie not found: ") + fields.get(2));
+
+        Language language = parseLanguage(fields.get(3));
+
+        Date startTime;
+        try {
+            startTime = dateFormat.parse(fields.get(4));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid start time: " + fields.get(4));
+        }
+
+        boolean noFreePasses = false;
+        if (fields.size() > 5 && !fields.get(5).isEmpty()) {
+            if (!fields.get(5).equalsIgnoreCase("true") && !fields.get(5).equalsIgnoreCase("false"))
+                throw new IllegalArgumentException("No free passes must be true or false: " + fields.get(5));
+            noFreePasses = Boolean.parseBoolean(fields.get(5));
+        }
+
+        ArrayList<Language> subtitles = new ArrayList<>();
+        if (fields.size() > 6 && !fields.get(6).isEmpty())
+            for (String subtitle : fields.get(6).split(SUBTITLE_SEPARATOR)) {
+                Language subtitleLanguage = parseLanguage(subtitle.trim());
+                if (subtitles.contains(subtitleLanguage))
+                    throw new IllegalArgumentException(subtitleLanguage + " is already set as a subtitle.");
+                subtitles.add(subtitleLanguage);
+            }
+
+        return new ShowtimeDraft(movie, cineplex, cinema, language, startTime, noFreePasses,
+                subtitles.toArray(new Language[subtitles.size()]));
+    }
+
+    /**
+     * Parses the name of a language.
+     *
+     * @param name The name of the language, in any case.
+     * @return the language.
+     * @throws IllegalArgumentException if there is no language of the name.
+     */
+    private static Language parseLanguage(String name) {
+        for (Language language : Language.values())
+            if (language.name().equalsIgnoreCase(name))
+                return language;
+        throw new IllegalArgumentException("Invalid language: " + name);
+    }
+
+    /**
+     * Gets the key an ID or a name is looked up by.
+     *
+     * @param field The field of the ID or name.
+     * @return the field in lower case, which leaves an ID as it is.
+     */
+    private static String lookupKey(String field) {
+        return field.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Splits a line into its fields, each trimmed, keeping the commas within double quotes. A double quote
+     * within a quoted field is written as two double quotes.
+     *
+     * @param line The line.
+     * @return the fields of the line.
+     */
+    private static List<String> split(String line) {
+        ArrayList<String> fields = new ArrayList<>(FIELD_COUNT);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"' && quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                field.append('"');
+                i++;
+            } else if (c == '"')
+                quoted = !quoted;
+            else if (c == ',' && !quoted) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else
+                field.append(c);
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * Gets the drafts of the lines read that are valid.
+     *
+     * @return the drafts of the valid lines, in the order of the lines.
+     */
+    public List<ShowtimeDraft> getDrafts() {
+        return drafts;
+    }
+
+    /**
+     * Gets the number of the line of each draft.
+     *
+     * @return the number of the line of each draft, counted from 1, in the order of the drafts.
+     */
+    public List<Integer> getDraftRows() {
+        return draftRows;
+    }
+
+    /**
+     * Gets the rejections of the lines read that are not valid.
+     *
+     * @return the rejections of the invalid lines, in the order of the lines.
+     */
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Gets the number of showtime lines read.
+     *
+     * @return the number of lines read, without the header and blank lines.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+}
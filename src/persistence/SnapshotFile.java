@@ -0,0 +1,361 @@
+package persistence;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Represents a snapshot file split into independently decodable segments.
+ * The header holds an offset table with the schema version, length and checksum of each segment,
+ * so every segment is verified on its own and a corrupt one is known by name. The segments are stored
+ * as written by the compression recorded in the header.
+ *
+ * @version 1.0
+ * @since 2017-11-16
+ */
+public class SnapshotFile {
+
+    /**
+     * The magic number at the start of a snapshot file.
+     */
+    private static final int MAGIC = 0x4D424C4D;
+
+    /**
+     * The version of the format of a snapshot file.
+     */
+    private static final int VERSION = 6;
+
+    /**
+     * The version of the format of a snapshot file before the schema version of each segment was recorded.
+     */
+    private static final int UNVERSIONED_VERSION = 5;
+
+    /**
+     * The version of the format of a snapshot file before the compression was recorded in the header.
+     */
+    private static final int UNCOMPRESSED_VERSION = 4;
+
+    /**
+     * The suffix of the name of the temporary file a snapshot file is written to before it replaces the old one.
+     */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * The name of this snapshot file.
+     */
+    private String filename;
+
+    /**
+     * The compression the segments of this snapshot file are stored in.
+     */
+    private Compression compression;
+
+    /**
+     * The names of the segments, in the order they were written.
+     */
+    private ArrayList<String> names;
+
+    /**
+     * A hash map with the name of each segment as the key and its entry in the offset table as the value.
+     */
+    private HashMap<String, SegmentEntry> entries;
+
+    /**
+     * A linked hash map with the name of each segment as the key and its bytes as the value,
+     * or null if the segments are read one at a time.
+     */
+    private LinkedHashMap<String, byte[]> segments;
+
+    /**
+     * Reads the snapshot file with the given name and verifies the checksum of every segment.
+     *
+     * @param filename The name of the snapshot file.
+     * @throws FileNotFoundException if the file is not found.
+     * @throws CorruptSegmentException if a segment is truncated or does not match its checksum.
+     * @throws StreamCorruptedException if the file is not in a known snapshot format.
+     * @throws IOException if the file cannot be read.
+     */
+    public SnapshotFile(String filename) throws IOException {
+        this(filename, true);
+    }
+
+    /**
+     * Reads the snapshot file with the given name, with or without its segments.
+     *
+     * @param filename The name of the snapshot file.
+     * @param readSegments Whether every segment is read and verified now rather than when it is got.
+     * @throws FileNotFoundException if the file is not found.
+     * @throws CorruptSegmentException if a segment read now is truncated or does not match its checksum.
+     * @throws StreamCorruptedException if the file is not in a known snapshot format.
+     * @throws IOException if the file cannot be read.
+     */
+    private SnapshotFile(String filename, boolean readSegments) throws IOException {
+        this.filename = filename;
+        this.names = new ArrayList<>();
+        this.entries = new HashMap<>();
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+            readTable(file);
+            if (!readSegments)
+                return;
+            segments = new LinkedHashMap<>();
+            for (String name : names)
+                segments.put(name, readSegment(file, name));
+        }
+    }
+
+    /**
+     * Reads only the header of the snapshot file with the given name. Each segment is read and verified
+     * when it is got, so the segments of a file of any size can be streamed one at a time.
+     *
+     * @param filename The name of the snapshot file.
+     * @return the snapshot file whose segments are read when they are got.
+     * @throws FileNotFoundException if the file is not found.
+     * @throws StreamCorruptedException if the file is not in a known snapshot format.
+     * @throws IOException if the file cannot be read.
+     */
+    public static SnapshotFile readHeader(String filename) throws IOException {
+        return new SnapshotFile(filename, false);
+    }
+
+    /**
+     * Reads the header and offset table of this snapshot file.
+     *
+     * @param file The snapshot file opened for reading.
+     * @throws StreamCorruptedException if the file is not in a known snapshot format.
+     * @throws IOException if the file cannot be read.
+     */
+    private void readTable(RandomAccessFile file) throws IOException {
+        if (file.readInt() != MAGIC)
+            throw new StreamCorruptedException("Incompatible snapshot format");
+        int version = file.readInt();
+        if (version < UNCOMPRESSED_VERSION || version > VERSION)
+            throw new StreamCorruptedException("Incompatible snapshot format");
+        if (version >= UNVERSIONED_VERSION) {
+            int ordinal = file.readUnsignedByte();
+            if (ordinal >= Compression.values().length)
+                throw new StreamCorruptedException("Unknown compression " + ordinal);
+            compression = Compression.values()[ordinal];
+        } else
+            compression = Compression.NONE;
+        int count = file.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = file.readUTF();
+            int schemaVersion = version == VERSION ? file.readInt() : EntityCodec.BASE_SCHEMA_VERSION;
+            names.add(name);
+            entries.put(name, new SegmentEntry(schemaVersion, file.readLong(), file.readInt(), file.readInt()));
+        }
+    }
+
+    /**
+     * Reads a segment and verifies its checksum.
+     *
+     * @param file The snapshot file opened for reading.
+     * @param name The name of the segment.
+     * @return the bytes of the segment.
+     * @throws CorruptSegmentException if the segment is truncated or does not match its checksum.
+     * @throws IOException if the segment cannot be read.
+     */
+    private byte[] readSegment(RandomAccessFile file, String name) throws IOException {
+        SegmentEntry entry = entries.get(name);
+        byte[] segment = new byte[entry.length];
+        try {
+            file.seek(entry.offset);
+            file.readFully(segment);
+        } catch (EOFException e) {
+            throw new CorruptSegmentException(name);
+        }
+        if (checksum(segment) != entry.checksum)
+            throw new CorruptSegmentException(name);
+        return segment;
+    }
+
+    /**
+     * Gets the names of the segments in this snapshot file.
+     *
+     * @return the names of the segments in this snapshot file, in the order they were written.
+     */
+    public List<String> getSegmentNames() {
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Gets the compression the segments of this snapshot file are stored in.
+     *
+     * @return the compression of the segments.
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Gets the schema version the entities of a segment were written in.
+     *
+     * @param name The name of the segment.
+     * @return the schema version of the segment.
+     */
+    public int getSchemaVersion(String name) {
+        return entries.get(name).schemaVersion;
+    }
+
+    /**
+     * Gets the segment of the given name as it is stored, reading it from the file if it has not been read.
+     *
+     * @param name The name of the segment.
+     * @return the bytes of the segment, or null if this snapshot file has no such segment.
+     * @throws CorruptSegmentException if the segment is truncated or does not match its checksum.
+     * @throws IOException if the segment cannot be read.
+     */
+    public byte[] getSegment(String name) throws IOException {
+        if (segments != null || !entries.containsKey(name))
+            return segments == null ? null : segments.get(name);
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+            return readSegment(file, name);
+        }
+    }
+
+    /**
+     * Writes a snapshot file with the given segments, replacing any existing file of the same name.
+     *
+     * @param filename The name of the snapshot file.
+     * @param compression The compression the segments have been written with.
+     * @param segments A linked hash map with the name of each segment as the key and its bytes as the value.
+     * @param schemaVersions A map with the name of each segment as the key and its schema version as the value.
+     * @return the size of the snapshot file in bytes.
+     * @throws IOException if the snapshot file cannot be written.
+     */
+    public static long write(String filename, Compression compression, LinkedHashMap<String, byte[]> segments,
+                             Map<String, Integer> schemaVersions) throws IOException {
+        return write(filename, compression, new ArrayList<>(segments.keySet()), schemaVersions, segments::get);
+    }
+
+    /**
+     * Writes a snapshot file with the segments of the given names, getting each segment only when it is written
+     * so that no more than one segment has to be held at a time. Any existing file of the same name is replaced.
+     * The segments are written to a temporary file that is forced to disk and then renamed over the old file,
+     * so a crash leaves either the old or the new snapshot file intact.
+     *
+     * @param filename The name of the snapshot file.
+     * @param compression The compression the segments have been written with.
+     * @param names The names of the segments in the order they are written.
+     * @param schemaVersions A map with the name of each segment as the key and its schema version as the value.
+     * @param source Gets the bytes of each segment.
+     * @return the size of the snapshot file in bytes.
+     * @throws IOException if the snapshot file cannot be written.
+     */
+    public static long write(String filename, Compression compression, List<String> names,
+                             Map<String, Integer> schemaVersions, SegmentSource source) throws IOException {
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        DataOutputStream table = new DataOutputStream(tableBytes);
+        for (String name : names)
+            table.writeUTF(name);
+        long offset = 4 + 4 + 1 + 4 + tableBytes.size() + names.size() * (4 + 8 + 4 + 4);
+
+        // The segments are written first, so the offset table can be filled in with their lengths and checksums
+        Path path = Paths.get(filename).toAbsolutePath();
+        Path temporaryPath = Paths.get(filename + TEMPORARY_SUFFIX).toAbsolutePath();
+        tableBytes.reset();
+        try (RandomAccessFile file = new RandomAccessFile(temporaryPath.toFile(), "rw")) {
+            file.setLength(0);
+            file.seek(offset);
+            for (String name : names) {
+                byte[] segment = source.getSegment(name);
+                file.write(segment);
+                table.writeUTF(name);
+                table.writeInt(schemaVersions.get(name));
+                table.writeLong(offset);
+                table.writeInt(segment.length);
+                table.writeInt(checksum(segment));
+                offset += segment.length;
+            }
+
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(headerBytes);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeByte(compression.ordinal());
+            header.writeInt(names.size());
+            tableBytes.writeTo(header);
+            file.seek(0);
+            file.write(headerBytes.toByteArray());
+            file.getChannel().force(true);
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return Files.size(path);
+    }
+
+    /**
+     * Computes the checksum of a segment.
+     *
+     * @param segment The bytes of the segment.
+     * @return the CRC-32 of the segment.
+     */
+    private static int checksum(byte[] segment) {
+        CRC32 crc = new CRC32();
+        crc.update(segment);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Represents the entry of a segment in the offset table.
+     */
+    private static class SegmentEntry {
+
+        /**
+         * The schema version the entities of the segment were written in.
+         */
+        private int schemaVersion;
+
+        /**
+         * The offset of the segment in the file.
+         */
+        private long offset;
+
+        /**
+         * The length of the segment.
+         */
+        private int length;
+
+        /**
+         * The checksum of the segment.
+         */
+        private int checksum;
+
+        /**
+         * Creates the entry of a segment.
+         *
+         * @param schemaVersion The schema version of the segment.
+         * @param offset The offset of the segment in the file.
+         * @param length The length of the segment.
+         * @param checksum The checksum of the segment.
+         */
+        private SegmentEntry(int schemaVersion, long offset, int length, int checksum) {
+            this.schemaVersion = schemaVersion;
+            this.offset = offset;
+            this.length = length;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * Represents the source of the segments of a snapshot file that is being written.
+     */
+    public interface SegmentSource {
+
+        /**
+         * Gets the bytes of a segment.
+         *
+         * @param name The name of the segment.
+         * @return the bytes of the segment.
+         * @throws IOException if the segment cannot be got.
+         */
+        byte[] getSegment(String name) throws IOException;
+    }
+}
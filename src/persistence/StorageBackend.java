@@ -0,0 +1,68 @@
+package persistence;
+
+import model.commons.Entity;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+/**
+ * Represents a standard set of stores the entities of a controller can be kept in.
+ *
+ * @version 1.0
+ * @since 2017-11-20
+ */
+public enum StorageBackend {
+
+    /**
+     * A concurrent hash map on the heap, persisted through the journal and the data file.
+     */
+    MEMORY(null),
+
+    /**
+     * A journal file of its own, with only the position of each entity on the heap.
+     */
+    JOURNALED_FILE(".log"),
+
+    /**
+     * A single file mapped into memory, with only the position of each entity on the heap.
+     */
+    MAPPED_FILE(".map");
+
+    /**
+     * The extension of the file of this backend, or null if it has no file.
+     */
+    private String extension;
+
+    /**
+     * Creates the storage backend with the extension of its file.
+     *
+     * @param extension The extension of the file of this backend, or null if it has no file.
+     */
+    StorageBackend(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Opens a store of this backend.
+     *
+     * @param name The name of the file of the store, without the extension.
+     * @param codec The codec that writes and reads the entities of the store.
+     * @param resolver Finds the entity of a given type and ID that a decoded entity refers to.
+     * @param <T> The type of the entities in the store.
+     * @return the store of this backend.
+     * @throws IOException if the file of the store cannot be opened.
+     */
+    public <T extends Entity> EntityStore<T> open(String name, EntityCodec<T> codec,
+                                                  BiFunction<Class<? extends Entity>, UUID, Entity> resolver)
+            throws IOException {
+        switch (this) {
+            case JOURNALED_FILE:
+                return new JournaledEntityStore<>(name + extension, codec, resolver);
+            case MAPPED_FILE:
+                return new MappedEntityStore<>(name + extension, codec, resolver);
+            default:
+                return new MemoryEntityStore<>();
+        }
+    }
+}
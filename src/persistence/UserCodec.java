@@ -0,0 +1,79 @@
+package persistence;
+
+import model.booking.Booking;
+import model.cineplex.Staff;
+import model.commons.User;
+import model.movie.MovieReview;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Represents the codec of users, including the staff.
+ *
+ * @version 1.0
+ * @since 2017-11-14
+ */
+public class UserCodec implements EntityCodec<User> {
+
+    @Override
+    public Class<User> getEntityType() {
+        return User.class;
+    }
+
+    @Override
+    public void write(User user, EntityOutput out) throws IOException {
+        boolean isStaff = user instanceof Staff;
+        out.writeBoolean(isStaff);
+        out.writeId(user.getId());
+        out.writeString(user.getFirstName());
+        out.writeString(user.getLastName());
+        out.writeString(user.getMobile());
+        out.writeString(user.getEmail());
+        if (isStaff) {
+            out.writeString(((Staff) user).getUsername());
+            out.writeString(((Staff) user).getPassword());
+        }
+        out.writeReferences(user.getMovieReviews());
+        out.writeReferences(user.getBookings());
+    }
+
+    @Override
+    public User read(EntityInput in) throws IOException {
+        boolean isStaff = in.readBoolean();
+        UUID id = in.readId();
+        String firstName = in.readString();
+        String lastName = in.readString();
+        String mobile = in.readString();
+        String email = in.readString();
+        User user = isStaff ?
+                new Staff(firstName, lastName, mobile, email, in.readString(), in.readString()) :
+                new User(firstName, lastName, mobile, email);
+        user.setId(id);
+        in.readReferences(MovieReview.class, user::addReview);
+        in.readReferences(Booking.class, user::addBooking);
+        return user;
+    }
+
+    @Override
+    public void readInto(User user, EntityInput in) throws IOException {
+        boolean isStaff = in.readBoolean();
+        in.readId();
+        user.setFirstName(in.readString());
+        user.setLastName(in.readString());
+        user.setMobile(in.readString());
+        user.setEmail(in.readString());
+        if (isStaff) {
+            String username = in.readString();
+            String password = in.readString();
+            if (user instanceof Staff) {
+                ((Staff) user).setUsername(username);
+                ((Staff) user).setPassword(password);
+            }
+        }
+        in.addFixUp(user.getMovieReviews()::clear);
+        in.readReferences(MovieReview.class, user::addReview);
+        in.addFixUp(user.getBookings()::clear);
+        in.readReferences(Booking.class, user::addBooking);
+    }
+}
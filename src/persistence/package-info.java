@@ -0,0 +1,4 @@
+/**
+ * Provides the classes necessary to persist the moblima.model entities.
+ */
+package persistence;
\ No newline at end of file
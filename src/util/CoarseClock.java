@@ -0,0 +1,56 @@
+package util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a clock shared by the whole application that is read without asking the system for the time.
+ * A daemon thread stores the system time every tick, so reading the clock is a single volatile read, and the time
+ * read is at most a tick behind. It suits checks that run on every listing, such as whether a showtime can be
+ * booked, where being late by a tick does not matter.
+ *
+ * @version 1.0
+ * @since 2017-11-26
+ */
+public class CoarseClock {
+
+    /**
+     * The number of milliseconds of each tick, which bounds how far behind the time read may be.
+     */
+    public static final long TICK_MILLIS = 10;
+
+    /**
+     * The time stored at the last tick, in milliseconds.
+     */
+    private static volatile long currentMillis = System.currentTimeMillis();
+
+    /**
+     * The executor that stores the time every tick.
+     */
+    private static final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coarse-clock");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        ticker.scheduleAtFixedRate(() -> currentMillis = System.currentTimeMillis(),
+                TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The clock is only read through its static methods.
+     */
+    private CoarseClock() {
+    }
+
+    /**
+     * Gets the current time as of the last tick.
+     *
+     * @return the epoch milliseconds stored at the last tick.
+     */
+    public static long currentTimeMillis() {
+        return currentMillis;
+    }
+}
@@ -0,0 +1,153 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents an index of items by the ID of their owner and the day of their date, such as the showtimes of a
+ * cineplex on each day. The items of an owner on a day are kept as a sorted list, so they are looked up directly
+ * instead of being filtered from all the items of the owner.
+ * <p>
+ * The day of a date is counted in the default time zone from the instant of the date, without a calendar.
+ * The list of each owner and day is replaced as a whole on every change, so a lookup reads it without locking
+ * while changes are serialized.
+ *
+ * @param <T> The type of the items, which are sorted by their natural order.
+ * @version 1.0
+ * @since 2017-11-26
+ */
+public class DayIndex<T extends Comparable<? super T>> {
+
+    /**
+     * The number of milliseconds in a day.
+     */
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * A concurrent hash map with each owner and day as the key and the sorted items of the owner on the day
+     * as the value.
+     */
+    private ConcurrentHashMap<Key, List<T>> buckets;
+
+    /**
+     * Creates an empty day index.
+     */
+    public DayIndex() {
+        this.buckets = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds an item of an owner on the day of a date, unless it is there already.
+     *
+     * @param ownerId The ID of the owner of the item.
+     * @param date    The date of the item.
+     * @param item    The item.
+     */
+    public synchronized void add(UUID ownerId, Date date, T item) {
+        Key key = new Key(ownerId, getDay(date));
+        List<T> items = buckets.getOrDefault(key, Collections.emptyList());
+        for (T existing : items)
+            if (existing == item)
+                return;
+
+        ArrayList<T> newItems = new ArrayList<>(items.size() + 1);
+        newItems.addAll(items);
+        int index = newItems.size();
+        while (index > 0 && newItems.get(index - 1).compareTo(item) > 0)
+            index--;
+        newItems.add(index, item);
+        buckets.put(key, Collections.unmodifiableList(newItems));
+    }
+
+    /**
+     * Removes an item of an owner from the day of a date.
+     *
+     * @param ownerId The ID of the owner of the item.
+     * @param date    The date the item was added on.
+     * @param item    The item.
+     */
+    public synchronized void remove(UUID ownerId, Date date, T item) {
+        Key key = new Key(ownerId, getDay(date));
+        List<T> items = buckets.get(key);
+        if (items == null)
+            return;
+
+        ArrayList<T> newItems = new ArrayList<>(items.size());
+        for (T existing : items)
+            if (existing != item)
+                newItems.add(existing);
+        if (newItems.isEmpty())
+            buckets.remove(key);
+        else
+            buckets.put(key, Collections.unmodifiableList(newItems));
+    }
+
+    /**
+     * Gets the items of an owner on the day of a date.
+     *
+     * @param ownerId The ID of the owner.
+     * @param date    A date on the day.
+     * @return the unmodifiable list of the items of the owner on the day in their natural order,
+     * which is empty if there are none.
+     */
+    public List<T> get(UUID ownerId, Date date) {
+        return buckets.getOrDefault(new Key(ownerId, getDay(date)), Collections.emptyList());
+    }
+
+    /**
+     * Gets the day of a date, counted from the epoch in the default time zone.
+     *
+     * @param date The date.
+     * @return the number of days from the epoch to the day of the date.
+     */
+    public static long getDay(Date date) {
+        long millis = date.getTime();
+        return Math.floorDiv(millis + TimeZone.getDefault().getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Represents the owner and day of the items of an index.
+     */
+    private static class Key {
+
+        /**
+         * The ID of the owner.
+         */
+        private UUID ownerId;
+
+        /**
+         * The day, counted from the epoch.
+         */
+        private long day;
+
+        /**
+         * Creates the key of an owner and day.
+         *
+         * @param ownerId The ID of the owner.
+         * @param day     The day, counted from the epoch.
+         */
+        private Key(UUID ownerId, long day) {
+            this.ownerId = ownerId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key key = (Key) obj;
+            return key.day == day && key.ownerId.equals(ownerId);
+        }
+
+        @Override
+        public int hashCode() {
+            return ownerId.hashCode() * 31 + Long.hashCode(day);
+        }
+    }
+}
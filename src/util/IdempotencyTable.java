@@ -0,0 +1,186 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Represents a bounded table of the results of requests by their idempotency key, so a request that is retried
+ * gets the result of its first attempt instead of being done again. A key is looked up in constant time,
+ * and a retry that arrives while the first attempt is still running waits for its result.
+ * <p>
+ * A result is kept for a fixed time after it is recorded, and the oldest results are evicted first once the table
+ * is full. Every result lives for the same time, so the keys expire in the order they were recorded and are
+ * evicted from the head of a queue, while a lookup only checks the expiry of its own key. A request that fails
+ * is not recorded, so it can be retried.
+ *
+ * @param <V> The type of the results of the requests.
+ * @version 1.0
+ * @since 2017-11-25
+ */
+public class IdempotencyTable<V> {
+
+    /**
+     * The maximum number of results kept.
+     */
+    private int capacity;
+
+    /**
+     * The number of milliseconds a result is kept for.
+     */
+    private long expiryMillis;
+
+    /**
+     * A concurrent hash map with the idempotency key of each request as the key and its entry as the value.
+     */
+    private ConcurrentHashMap<String, Entry<V>> entries;
+
+    /**
+     * The recorded entries in the order they were recorded, which is the order they expire in.
+     */
+    private ArrayDeque<Entry<V>> recorded;
+
+    /**
+     * The number of requests answered with the result of an earlier attempt.
+     */
+    private AtomicLong replayCount;
+
+    /**
+     * Creates an idempotency table.
+     *
+     * @param capacity The maximum number of results kept.
+     * @param expiryMillis The number of milliseconds a result is kept for.
+     */
+    public IdempotencyTable(int capacity, long expiryMillis) {
+        this.capacity = capacity;
+        this.expiryMillis = expiryMillis;
+        this.entries = new ConcurrentHashMap<>();
+        this.recorded = new ArrayDeque<>();
+        this.replayCount = new AtomicLong();
+    }
+
+    /**
+     * Does a request once for its key. If the key has a result that has not expired, the result is returned
+     * without doing the request again, and if the first attempt is still running, its result is waited for.
+     *
+     * @param key The idempotency key of the request.
+     * @param request Does the request and returns its result.
+     * @return the result of the first attempt of the request with the key.
+     * @throws RuntimeException as thrown by the attempt of the request, which is not recorded.
+     */
+    public V execute(String key, Supplier<V> request) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiryMillis <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            Entry<V> attempt = new Entry<>(key);
+            entry = entries.putIfAbsent(key, attempt);
+            if (entry == null)
+                return attempt(attempt, request);
+        }
+        replayCount.incrementAndGet();
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Does the first attempt of a request and records its result, or forgets the key if the attempt fails.
+     *
+     * @param attempt The entry of the attempt, whose result retries wait for.
+     * @param request Does the request and returns its result.
+     * @return the result of the request.
+     */
+    private V attempt(Entry<V> attempt, Supplier<V> request) {
+        V value;
+        try {
+            value = request.get();
+        } catch (RuntimeException e) {
+            entries.remove(attempt.key, attempt);
+            attempt.result.completeExceptionally(e);
+            throw e;
+        }
+        attempt.expiryMillis = System.currentTimeMillis() + expiryMillis;
+        attempt.result.complete(value);
+        record(attempt);
+        return value;
+    }
+
+    /**
+     * Records an entry whose result is known, and evicts the entries that have expired and then the oldest
+     * entries until the table is within its capacity.
+     *
+     * @param entry The entry to be recorded.
+     */
+    private void record(Entry<V> entry) {
+        long now = System.currentTimeMillis();
+        synchronized (recorded) {
+            recorded.addLast(entry);
+            while (!recorded.isEmpty() && (recorded.size() > capacity || recorded.peekFirst().expiryMillis <= now)) {
+                Entry<V> evicted = recorded.pollFirst();
+                entries.remove(evicted.key, evicted);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of results kept, including those of attempts still running.
+     *
+     * @return the number of results kept.
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of requests answered with the result of an earlier attempt.
+     *
+     * @return the number of requests that were not done again.
+     */
+    public long getReplayCount() {
+        return replayCount.get();
+    }
+
+    /**
+     * Represents the entry of the result of a request.
+     *
+     * @param <V> The type of the result.
+     */
+    private static class Entry<V> {
+
+        /**
+         * The idempotency key of the request.
+         */
+        private String key;
+
+        /**
+         * The result of the request, completed when its first attempt ends.
+         */
+        private CompletableFuture<V> result;
+
+        /**
+         * The time the result expires, in milliseconds, which is never while the first attempt is running.
+         */
+        private volatile long expiryMillis;
+
+        /**
+         * Creates the entry of the first attempt of a request.
+         *
+         * @param key The idempotency key of the request.
+         */
+        private Entry(String key) {
+            this.key = key;
+            this.result = new CompletableFuture<>();
+            this.expiryMillis = Long.MAX_VALUE;
+        }
+    }
+}
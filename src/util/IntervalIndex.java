@@ -0,0 +1,250 @@
+package util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Represents an index of the closed intervals of items, which finds whether an interval overlaps any of them
+ * in logarithmic time without allocating. The intervals are kept in arrays sorted by their start, along with
+ * the greatest end of the intervals up to each one, so the intervals that may overlap a given interval are found
+ * by a binary search and a scan back that stops as soon as no earlier interval reaches it. When the intervals
+ * do not overlap each other, as with the showtimes of a cinema, the scan looks at a single interval.
+ * <p>
+ * The arrays are replaced as a whole on every change, so a lookup reads them without locking
+ * while changes are serialized. The intervals that end before a horizon can be removed, so an index of
+ * items that keep being added only ever holds the recent ones, and lookups of intervals starting from the
+ * horizon on stay exact.
+ *
+ * @param <T> The type of the items.
+ * @version 1.0
+ * @since 2017-11-26
+ */
+public class IntervalIndex<T> {
+
+    /**
+     * The intervals of the items, replaced on every change.
+     */
+    private volatile Intervals<T> intervals;
+
+    /**
+     * A hash map with each item as the key and the start of its interval as the value.
+     */
+    private HashMap<T, Long> starts;
+
+    /**
+     * The time before which the intervals that end have been removed.
+     */
+    private volatile long horizon;
+
+    /**
+     * Creates an empty interval index.
+     */
+    public IntervalIndex() {
+        this.intervals = new Intervals<>(new long[0], new long[0], new Object[0]);
+        this.starts = new HashMap<>();
+        this.horizon = Long.MIN_VALUE;
+    }
+
+    /**
+     * Puts the interval of an item, replacing the interval the item had.
+     *
+     * @param item  The item.
+     * @param start The start of the interval of the item.
+     * @param end   The end of the interval of the item, which is not before its start.
+     */
+    public synchronized void put(T item, long start, long end) {
+        Intervals<T> current = without(item);
+        int count = current.items.length;
+        int index = count;
+        while (index > 0 && current.starts[index - 1] > start)
+            index--;
+
+        long[] starts = new long[count + 1];
+        long[] ends = new long[count + 1];
+        Object[] items = new Object[count + 1];
+        System.arraycopy(current.starts, 0, starts, 0, index);
+        System.arraycopy(current.ends, 0, ends, 0, index);
+        System.arraycopy(current.items, 0, items, 0, index);
+        starts[index] = start;
+        ends[index] = end;
+        items[index] = item;
+        System.arraycopy(current.starts, index, starts, index + 1, count - index);
+        System.arraycopy(current.ends, index, ends, index + 1, count - index);
+        System.arraycopy(current.items, index, items, index + 1, count - index);
+
+        this.starts.put(item, start);
+        intervals = new Intervals<>(starts, ends, items);
+    }
+
+    /**
+     * Removes the interval of an item.
+     *
+     * @param item The item.
+     * @return true if the item had an interval.
+     */
+    public synchronized boolean remove(T item) {
+        if (!starts.containsKey(item))
+            return false;
+        intervals = without(item);
+        return true;
+    }
+
+    /**
+     * Removes the intervals that end before a time, and advances the horizon of this index to it.
+     *
+     * @param time The time before which the intervals that end are removed.
+     * @return the number of intervals removed.
+     */
+    public synchronized int removeEndingBefore(long time) {
+        if (time <= horizon)
+            return 0;
+        horizon = time;
+        Intervals<T> current = intervals;
+        int count = 0;
+        for (long end : current.ends)
+            if (end >= time)
+                count++;
+        if (count == current.ends.length)
+            return 0;
+
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        Object[] items = new Object[count];
+        int index = 0;
+        for (int i = 0; i < current.ends.length; i++) {
+            if (current.ends[i] < time) {
+                this.starts.remove(current.items[i]);
+                continue;
+            }
+            starts[index] = current.starts[i];
+            ends[index] = current.ends[i];
+            items[index++] = current.items[i];
+        }
+        intervals = new Intervals<>(starts, ends, items);
+        return current.ends.length - count;
+    }
+
+    /**
+     * Gets the time before which the intervals that end may have been removed. A lookup of an interval starting
+     * from this time on is exact.
+     *
+     * @return the horizon of this index, or the least long value if no interval has been removed.
+     */
+    public long getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Gets the intervals without that of an item, forgetting the start of its interval.
+     *
+     * @param item The item.
+     * @return the intervals without that of the item, or the current intervals if the item has none.
+     */
+    private Intervals<T> without(T item) {
+        Intervals<T> current = intervals;
+        Long start = starts.remove(item);
+        if (start == null)
+            return current;
+
+        // The item is among the intervals with the same start
+        int index = Arrays.binarySearch(current.starts, start);
+        while (index > 0 && current.starts[index - 1] == start)
+            index--;
+        while (current.items[index] != item)
+            index++;
+
+        int count = current.items.length - 1;
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        Object[] items = new Object[count];
+        System.arraycopy(current.starts, 0, starts, 0, index);
+        System.arraycopy(current.ends, 0, ends, 0, index);
+        System.arraycopy(current.items, 0, items, 0, index);
+        System.arraycopy(current.starts, index + 1, starts, index, count - index);
+        System.arraycopy(current.ends, index + 1, ends, index, count - index);
+        System.arraycopy(current.items, index + 1, items, index, count - index);
+        return new Intervals<>(starts, ends, items);
+    }
+
+    /**
+     * Checks whether an interval overlaps the interval of any item other than the given one.
+     * Intervals that only touch at an end overlap.
+     *
+     * @param start    The start of the interval.
+     * @param end      The end of the interval.
+     * @param excluded The item whose interval is ignored, compared by identity, or null if none is.
+     * @return true if the interval of another item overlaps the interval.
+     */
+    public boolean overlaps(long start, long end, T excluded) {
+        Intervals<T> intervals = this.intervals;
+
+        // The last interval starting no later than the end, before which only intervals reaching the start overlap
+        int index = intervals.starts.length - 1;
+        int low = 0;
+        while (low <= index) {
+            int middle = (low + index) >>> 1;
+            if (intervals.starts[middle] <= end)
+                low = middle + 1;
+            else
+                index = middle - 1;
+        }
+
+        for (; index >= 0 && intervals.maxEnds[index] >= start; index--)
+            if (intervals.ends[index] >= start && intervals.items[index] != excluded)
+                return true;
+        return false;
+    }
+
+    /**
+     * Gets the number of items with an interval.
+     *
+     * @return the number of items with an interval.
+     */
+    public int getSize() {
+        return intervals.items.length;
+    }
+
+    /**
+     * Represents the intervals of the items sorted by their start, which are never changed once created.
+     *
+     * @param <T> The type of the items.
+     */
+    private static class Intervals<T> {
+
+        /**
+         * The start of every interval, in ascending order.
+         */
+        private long[] starts;
+
+        /**
+         * The end of every interval.
+         */
+        private long[] ends;
+
+        /**
+         * The greatest end of the intervals up to and including every interval.
+         */
+        private long[] maxEnds;
+
+        /**
+         * The item of every interval.
+         */
+        private Object[] items;
+
+        /**
+         * Creates the intervals of the items, computing the greatest end up to every interval.
+         *
+         * @param starts The start of every interval, in ascending order.
+         * @param ends   The end of every interval.
+         * @param items  The item of every interval.
+         */
+        private Intervals(long[] starts, long[] ends, Object[] items) {
+            this.starts = starts;
+            this.ends = ends;
+            this.items = items;
+            this.maxEnds = new long[ends.length];
+            for (int i = 0; i < ends.length; i++)
+                maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Represents a fixed set of locks that keys are spread over, so that work on different keys runs in parallel
+ * while work on the same key is serialized. Two keys may share a stripe, so a caller holding the lock of one key
+ * must never wait for the lock of another. Work on several keys locks them all at once, in the order of their
+ * stripes, so two such callers never wait for each other in a cycle.
+ * <p>
+ * Each stripe counts how often it is acquired, how often a thread had to wait for it and for how long,
+ * and remembers the last key that was waited for, so a hot key can be told apart from its stripe mates.
+ *
+ * @version 1.0
+ * @since 2017-11-24
+ */
+public class StripedLock {
+
+    /**
+     * The stripes, a power of two in number.
+     */
+    private Stripe[] stripes;
+
+    /**
+     * Creates a striped lock with at least the given number of stripes.
+     *
+     * @param minStripes The minimum number of stripes, rounded up to a power of two.
+     */
+    public StripedLock(int minStripes) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+            stripes[i] = new Stripe(i);
+    }
+
+    /**
+     * Acquires the lock of the stripe of a key, waiting for it if another thread holds it.
+     *
+     * @param key The key whose stripe is locked.
+     * @return the lock that was acquired, to be unlocked by the caller.
+     */
+    public ReentrantLock lock(Object key) {
+        Stripe stripe = stripes[indexOf(key)];
+        if (!stripe.lock.tryLock()) {
+            long waitStartTime = System.nanoTime();
+            stripe.lock.lock();
+            stripe.contentionCount.increment();
+            stripe.waitNanos.add(System.nanoTime() - waitStartTime);
+            stripe.lastContendedKey = key;
+        }
+        stripe.acquisitionCount.increment();
+        return stripe.lock;
+    }
+
+    /**
+     * Acquires the locks of the stripes of several keys in the order of the stripes, each stripe only once.
+     *
+     * @param keys The keys whose stripes are locked.
+     * @return the locks that were acquired, to be unlocked by the caller.
+     */
+    public List<ReentrantLock> lockAll(Collection<?> keys) {
+        TreeMap<Integer, Object> keysByStripe = new TreeMap<>();
+        for (Object key : keys)
+            keysByStripe.putIfAbsent(indexOf(key), key);
+        ArrayList<ReentrantLock> locks = new ArrayList<>(keysByStripe.size());
+        for (Object key : keysByStripe.values())
+            locks.add(lock(key));
+        return locks;
+    }
+
+    /**
+     * Releases the locks acquired for several keys, in the reverse order they were acquired.
+     *
+     * @param locks The locks acquired by {@link #lockAll(Collection)}.
+     */
+    public static void unlockAll(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--)
+            locks.get(i).unlock();
+    }
+
+    /**
+     * Gets the stripes that threads have waited for, the most waited for first.
+     *
+     * @param limit The maximum number of stripes to be returned.
+     * @return the stripes with any contention, sorted by the time waited for them.
+     */
+    public List<Stripe> getContendedStripes(int limit) {
+        ArrayList<Stripe> contendedStripes = new ArrayList<>();
+        for (Stripe stripe : stripes)
+            if (stripe.getContentionCount() > 0)
+                contendedStripes.add(stripe);
+        contendedStripes.sort(Comparator.comparingLong(Stripe::getWaitNanos).reversed());
+        return contendedStripes.subList(0, Math.min(limit, contendedStripes.size()));
+    }
+
+    /**
+     * Gets the number of stripes.
+     *
+     * @return the number of stripes.
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Gets the index of the stripe of a key.
+     *
+     * @param key The key.
+     * @return the index of the stripe the key is spread to.
+     */
+    private int indexOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return hash & (stripes.length - 1);
+    }
+
+    /**
+     * Represents a stripe of a striped lock, with its contention metrics.
+     */
+    public static class Stripe {
+
+        /**
+         * The index of this stripe.
+         */
+        private int index;
+
+        /**
+         * The lock of this stripe.
+         */
+        private ReentrantLock lock;
+
+        /**
+         * The number of times this stripe was acquired.
+         */
+        private LongAdder acquisitionCount;
+
+        /**
+         * The number of times a thread had to wait for this stripe.
+         */
+        private LongAdder contentionCount;
+
+        /**
+         * The total number of nanoseconds threads waited for this stripe.
+         */
+        private LongAdder waitNanos;
+
+        /**
+         * The last key a thread had to wait for this stripe for, or null if none has.
+         */
+        private volatile Object lastContendedKey;
+
+        /**
+         * Creates a stripe.
+         *
+         * @param index The index of the stripe.
+         */
+        private Stripe(int index) {
+            this.index = index;
+            this.lock = new ReentrantLock();
+            this.acquisitionCount = new LongAdder();
+            this.contentionCount = new LongAdder();
+            this.waitNanos = new LongAdder();
+        }
+
+        /**
+         * Gets the index of this stripe.
+         *
+         * @return the index of this stripe.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the number of times this stripe was acquired.
+         *
+         * @return the number of times this stripe was acquired.
+         */
+        public long getAcquisitionCount() {
+            return acquisitionCount.sum();
+        }
+
+        /**
+         * Gets the number of times a thread had to wait for this stripe.
+         *
+         * @return the number of times a thread had to wait for this stripe.
+         */
+        public long getContentionCount() {
+            return contentionCount.sum();
+        }
+
+        /**
+         * Gets the total time threads waited for this stripe.
+         *
+         * @return the total number of nanoseconds threads waited for this stripe.
+         */
+        public long getWaitNanos() {
+            return waitNanos.sum();
+        }
+
+        /**
+         * Gets the last key a thread had to wait for this stripe for.
+         *
+         * @return the last contended key, or null if no thread has waited for this stripe.
+         */
+        public Object getLastContendedKey() {
+            return lastContendedKey;
+        }
+    }
+}
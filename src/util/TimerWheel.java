@@ -0,0 +1,245 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a hierarchical timer wheel that runs tasks after a delay. Scheduling and cancelling a task takes
+ * constant time however many tasks are pending, so it suits millions of timeouts that are mostly cancelled.
+ * <p>
+ * Each level is a wheel of {@value #WHEEL_SIZE} slots, and each slot of a level spans a whole turn of the level
+ * below. A task is put in the lowest level whose turn reaches its deadline. When a lower wheel completes a turn,
+ * the next slot of the level above is cascaded down, so a task is moved at most once per level.
+ *
+ * @version 1.0
+ * @since 2017-11-23
+ */
+public class TimerWheel {
+
+    /**
+     * The number of bits of the index of a slot in a wheel.
+     */
+    private static final int WHEEL_BITS = 6;
+
+    /**
+     * The number of slots in each wheel.
+     */
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    /**
+     * The mask of the index of a slot in a wheel.
+     */
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * The number of levels of wheels.
+     */
+    private static final int LEVELS = 4;
+
+    /**
+     * The number of milliseconds of each tick of the lowest wheel.
+     */
+    private long tickMillis;
+
+    /**
+     * The time this timer wheel started, in milliseconds.
+     */
+    private long startMillis;
+
+    /**
+     * The last tick whose tasks have been run.
+     */
+    private long currentTick;
+
+    /**
+     * The slots of each level of wheels, each a list of the timeouts due in that slot.
+     */
+    private Timeout[][] wheels;
+
+    /**
+     * The executor that advances this timer wheel every tick and runs the tasks that are due.
+     */
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Creates a timer wheel of the given tick and starts advancing it.
+     *
+     * @param name The name of the thread that runs the tasks.
+     * @param tickMillis The number of milliseconds of each tick, which bounds how late a task may run.
+     */
+    public TimerWheel(String name, long tickMillis) {
+        this.tickMillis = tickMillis;
+        this.startMillis = System.currentTimeMillis();
+        this.wheels = new Timeout[LEVELS][WHEEL_SIZE];
+        for (Timeout[] wheel : wheels)
+            for (int slot = 0; slot < WHEEL_SIZE; slot++)
+                wheel[slot] = new Timeout(0, null);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules a task to run once after the given delay, rounded up to a whole tick.
+     *
+     * @param task The task to be run.
+     * @param delayMillis The number of milliseconds after which the task is run.
+     * @return the timeout of the task, which can be cancelled until the task runs.
+     */
+    public synchronized Timeout schedule(Runnable task, long delayMillis) {
+        long elapsedMillis = System.currentTimeMillis() - startMillis + Math.max(0, delayMillis);
+        Timeout timeout = new Timeout(Math.max(currentTick + 1, (elapsedMillis + tickMillis - 1) / tickMillis), task);
+        place(timeout);
+        return timeout;
+    }
+
+    /**
+     * Cancels a timeout, so that its task is not run.
+     *
+     * @param timeout The timeout to be cancelled.
+     * @return true if the timeout was pending, or false if its task has already run or it was already cancelled.
+     */
+    public synchronized boolean cancel(Timeout timeout) {
+        if (timeout.previous == null)
+            return false;
+        timeout.unlink();
+        return true;
+    }
+
+    /**
+     * Stops advancing this timer wheel. Pending tasks are not run.
+     */
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Puts a timeout in the slot of the lowest wheel whose turn reaches its deadline.
+     * A deadline beyond the turn of the highest wheel is put in its last slot and cascaded again later.
+     *
+     * @param timeout The timeout to be placed.
+     */
+    private void place(Timeout timeout) {
+        long ticks = timeout.deadline - currentTick;
+        for (int level = 0; level < LEVELS; level++)
+            if (ticks < 1L << (WHEEL_BITS * (level + 1))) {
+                wheels[level][(int) (timeout.deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK].link(timeout);
+                return;
+            }
+        long lastTick = currentTick + (1L << (WHEEL_BITS * LEVELS)) - 1;
+        wheels[LEVELS - 1][(int) (lastTick >>> (WHEEL_BITS * (LEVELS - 1))) & WHEEL_MASK].link(timeout);
+    }
+
+    /**
+     * Advances this timer wheel to the current time and runs the tasks that are due, outside the lock.
+     */
+    private void tick() {
+        ArrayList<Runnable> dueTasks = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = (System.currentTimeMillis() - startMillis) / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                int index = (int) currentTick & WHEEL_MASK;
+                for (int level = 1; index == 0 && level < LEVELS; level++) {
+                    index = (int) (currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+                    cascade(wheels[level][index]);
+                }
+                Timeout slot = wheels[0][(int) currentTick & WHEEL_MASK];
+                while (slot.next != slot) {
+                    Timeout timeout = slot.next;
+                    timeout.unlink();
+                    dueTasks.add(timeout.task);
+                }
+            }
+        }
+        for (Runnable task : dueTasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Moves every timeout of a slot of a higher wheel down to the wheel its deadline now falls in.
+     *
+     * @param slot The slot to be cascaded.
+     */
+    private void cascade(Timeout slot) {
+        while (slot.next != slot) {
+            Timeout timeout = slot.next;
+            timeout.unlink();
+            place(timeout);
+        }
+    }
+
+    /**
+     * Represents a scheduled task, kept in a circular doubly linked list with the other timeouts of its slot.
+     * The head of each slot's list is a timeout without a task.
+     */
+    public static class Timeout {
+
+        /**
+         * The tick at which the task is due.
+         */
+        private long deadline;
+
+        /**
+         * The task to be run.
+         */
+        private Runnable task;
+
+        /**
+         * The previous timeout in the list of the slot, or null if this timeout is not pending.
+         */
+        private Timeout previous;
+
+        /**
+         * The next timeout in the list of the slot, or null if this timeout is not pending.
+         */
+        private Timeout next;
+
+        /**
+         * Creates a timeout due at the given tick.
+         *
+         * @param deadline The tick at which the task is due.
+         * @param task The task to be run, or null for the head of a slot.
+         */
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+            if (task == null) {
+                this.previous = this;
+                this.next = this;
+            }
+        }
+
+        /**
+         * Appends a timeout to the list this timeout is the head of.
+         *
+         * @param timeout The timeout to be appended.
+         */
+        private void link(Timeout timeout) {
+            timeout.previous = previous;
+            timeout.next = this;
+            previous.next = timeout;
+            previous = timeout;
+        }
+
+        /**
+         * Removes this timeout from the list of its slot.
+         */
+        private void unlink() {
+            previous.next = next;
+            next.previous = previous;
+            previous = null;
+            next = null;
+        }
+    }
+}
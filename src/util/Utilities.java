@@ -2,7 +2,6 @@ package util;
 
 import view.ui.Form;
 
-import java.io.*;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -240,34 +239,6 @@ public class Utilities {
         return score;
     }
 
-    /**
-     * Gets the object output stream of a given file name.
-     * @param filename The name of the file which output stream is to ge returned.
-     * @return the object output stream of the given file name.
-     */
-    public static ObjectOutputStream getObjectOutputStream(String filename) {
-        ObjectOutputStream objectOutputStream = null;
-        try {
-            objectOutputStream = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.out.println(e.getMessage());
-        }
-        return objectOutputStream;
-    }
-
-    /**
-     * Gets the object input stream of a given file name.
-     * @param filename The name of the file which input stream is to ge returned.
-     * @return the object input stream of a given file name.
-     * @throws IOException if the file is not found.
-     */
-    public static ObjectInputStream getObjectInputStream(String filename) throws IOException {
-        ObjectInputStream objectInputStream = null;
-        objectInputStream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(filename)));
-        return objectInputStream;
-    }
-
     /**
      * checks whether two time periods are overlapped.
      * @param start1 The starting time of the first period.
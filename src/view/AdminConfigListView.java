@@ -2,6 +2,7 @@ package view;
 
 import config.AdminConfig;
 import exception.UnauthorisedNavigationException;
+import persistence.Compression;
 import view.ui.*;
 
 import java.util.ArrayList;
@@ -38,6 +39,12 @@ public class AdminConfigListView extends ListView {
         viewItems.add(new ViewItem("Admin Secret",
                 AdminConfig.getAdminSecret(),
                 AdminConfigListOption.ADMIN_SECRET.toString()));
+        viewItems.add(new ViewItem("Snapshot Interval",
+                String.format("%d minutes", AdminConfig.getSnapshotIntervalMinutes()),
+                AdminConfigListOption.SNAPSHOT_INTERVAL.toString()));
+        viewItems.add(new ViewItem("Snapshot Compression",
+                AdminConfig.getSnapshotCompression().getDescription(),
+                AdminConfigListOption.SNAPSHOT_COMPRESSION.toString()));
         setViewItems(viewItems);
 
         display();
@@ -51,15 +58,29 @@ public class AdminConfigListView extends ListView {
                     View.displayInformation("Please enter new admin secret.");
                     String newAdminSecret = Form.getString("Admin Secret");
                     adminConfig.setAdminSecret(newAdminSecret);
+                    View.displaySuccess("Successfully changed admin secret!");
+                    break;
+                case SNAPSHOT_INTERVAL:
+                    int newSnapshotIntervalMinutes = Form
+                            .getIntWithMin("Enter new minutes between snapshots", 1);
+                    adminConfig.setSnapshotIntervalMinutes(newSnapshotIntervalMinutes);
+                    View.displaySuccess("Successfully changed snapshot interval!");
+                    break;
+                case SNAPSHOT_COMPRESSION:
+                    Compression newSnapshotCompression = Compression.valueOf(Form.getOption("Snapshot Compression",
+                            Compression.values()));
+                    adminConfig.setSnapshotCompression(newSnapshotCompression);
+                    View.displaySuccess("Successfully changed snapshot compression!");
                     break;
             }
-            View.displaySuccess("Successfully changed admin secret!");
             Form.pressAnyKeyToContinue();
             navigation.reload(AccessLevel.ADMINISTRATOR);
         }
     }
 
     private enum AdminConfigListOption {
-        ADMIN_SECRET
+        ADMIN_SECRET,
+        SNAPSHOT_INTERVAL,
+        SNAPSHOT_COMPRESSION
     }
 }
@@ -1,13 +1,20 @@
 package view;
 
-import controller.EntityController;
+import controller.BookingController;
+import controller.SeatHolder;
+import controller.ShowtimeController;
+import controller.Snapshotter;
 import controller.UserController;
 import exception.RejectedNavigationException;
+import model.booking.Showtime;
 import model.cineplex.Staff;
+import util.StripedLock;
 import util.Utilities;
 import view.ui.*;
 
-import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.UUID;
+
 
 /**
  * This moblima.view displays the user interface for the user to select the configuration option.
@@ -77,25 +84,28 @@ public class AdminMenuView extends MenuView {
             case CONFIGURE_SETTINGS:
                 navigation.goTo(new ConfigMenuView(navigation), AccessLevel.ADMINISTRATOR);
                 break;
+            case VIEW_SEAT_HOLDS:
+                displaySeatHoldStatus();
+                Form.pressAnyKeyToContinue();
+                navigation.refresh();
+                break;
+            case VIEW_LOCK_CONTENTION:
+                displayLockContention();
+                Form.pressAnyKeyToContinue();
+                navigation.refresh();
+                break;
             case SAVE_DATA:
-                View.displayWarning("Warning! This will irreversibly overwrite all previously saved data.");
+                View.displayWarning("Warning! This will irreversibly overwrite all previously saved data " +
+                        "and clear the journal of changes since.");
                 switch(Form.getConfirmOption("Save", "Cancel")) {
                     case CONFIRM:
-                        ObjectOutputStream objectOutputStream = Utilities
-                                .getObjectOutputStream(EntityController.DAT_FILENAME);
-                        if (objectOutputStream != null) {
-                            try {
-                                EntityController.save(objectOutputStream);
-                                View.displaySuccess("Successfully saved entities to file!");
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                                View.displayError("Error in saving entities to file.");
-                            }
-                        }
+                        Snapshotter.getInstance().snapshot();
+                        View.displaySuccess("Saving entities to file in the background.");
                         break;
                     case CANCEL:
                         break;
                 }
+                displaySnapshotStatus();
                 Form.pressAnyKeyToContinue();
                 navigation.refresh();
                 break;
@@ -107,11 +117,52 @@ public class AdminMenuView extends MenuView {
         }
     }
 
+    /**
+     * Displays the duration and size of the last snapshot taken in the background.
+     */
+    private void displaySnapshotStatus() {
+        Snapshotter snapshotter = Snapshotter.getInstance();
+        if (snapshotter.getLastSnapshotTime() != null)
+            View.displayInformation(String.format("Last snapshot: %s, %.1f KB in %d ms (%d taken)",
+                    Utilities.toFormat(snapshotter.getLastSnapshotTime()), snapshotter.getLastSize() / 1024.0,
+                    snapshotter.getLastDurationMillis(), snapshotter.getSnapshotCount()));
+        if (snapshotter.getLastError() != null)
+            View.displayError("Last snapshot failed: " + snapshotter.getLastError().getMessage());
+    }
+
+    /**
+     * Displays the number of seat holds active, made and expired, and how long the ended holds lasted on average.
+     */
+    private void displaySeatHoldStatus() {
+        SeatHolder seatHolder = SeatHolder.getInstance();
+        View.displayInformation(String.format("Seat holds: %d active, %d made, %d expired, %.1f s on average",
+                seatHolder.getActiveHoldCount(), seatHolder.getHoldCount(), seatHolder.getExpiryCount(),
+                seatHolder.getAverageHoldMillis() / 1000.0));
+    }
+
+    /**
+     * Displays the most contended stripes of the showtime locks, each with the last showtime waited for.
+     */
+    private void displayLockContention() {
+        List<StripedLock.Stripe> stripes = BookingController.getInstance().getContendedShowtimeStripes(5);
+        if (stripes.isEmpty())
+            View.displayInformation("No booking has waited for a showtime lock.");
+        for (StripedLock.Stripe stripe : stripes) {
+            Showtime showtime = ShowtimeController.getInstance().findById((UUID) stripe.getLastContendedKey());
+            View.displayInformation(String.format("Stripe %d: %d waits in %d acquisitions, %d ms waited, last for %s",
+                    stripe.getIndex(), stripe.getContentionCount(), stripe.getAcquisitionCount(),
+                    stripe.getWaitNanos() / 1000000, showtime == null ? "a removed showtime" :
+                            showtime.getMovie().getTitle() + " at " + Utilities.toFormat(showtime.getStartTime())));
+        }
+    }
+
     private enum AdminMenuOption implements EnumerableMenuOption {
         MANAGE_MOVIE_LISTINGS("Manage Movie Listings"),
         MANAGE_SHOWTIMES("Manage Showtimes"),
         VIEW_RANKING("View Top 5"),
         CONFIGURE_SETTINGS("Configure Settings"),
+        VIEW_SEAT_HOLDS("View Seat Holds"),
+        VIEW_LOCK_CONTENTION("View Booking Lock Contention"),
         SAVE_DATA("Save Data"),
         LOGOUT("Log Out");
 
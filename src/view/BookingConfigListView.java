@@ -57,6 +57,12 @@ public class BookingConfigListView extends ListView {
         viewItems.add(new ViewItem("Buffer Minutes After Showtime",
                 String.format("%d minutes", BookingConfig.getBufferMinutesAfterShowtime()),
                 BookingConfigListOption.BUFFER_MINUTES_AFTER_SHOWTIME.toString()));
+        viewItems.add(new ViewItem("Seat Hold Minutes",
+                String.format("%d minutes", BookingConfig.getSeatHoldMinutes()),
+                BookingConfigListOption.SEAT_HOLD_MINUTES.toString()));
+        viewItems.add(new ViewItem("Selling Fast Percentage",
+                String.format("%d%%", BookingConfig.getSellingFastPercent()),
+                BookingConfigListOption.SELLING_FAST_PERCENT.toString()));
         setViewItems(viewItems);
 
         display();
@@ -100,6 +106,14 @@ public class BookingConfigListView extends ListView {
                             .getIntWithMin("Enter new minutes before closed booking", 0);
                     bookingConfig.setMinutesBeforeClosedBooking(newMinutesBeforeClosedBooking);
                     break;
+                case SEAT_HOLD_MINUTES:
+                    int newSeatHoldMinutes = Form.getIntWithMin("Enter new seat hold minutes", 1);
+                    bookingConfig.setSeatHoldMinutes(newSeatHoldMinutes);
+                    break;
+                case SELLING_FAST_PERCENT:
+                    int newSellingFastPercent = Form.getInt("Enter new selling fast percentage", 0, 100);
+                    bookingConfig.setSellingFastPercent(newSellingFastPercent);
+                    break;
             }
             View.displaySuccess("Successfully changed booking moblima.config value!");
             Form.pressAnyKeyToContinue();
@@ -114,6 +128,8 @@ public class BookingConfigListView extends ListView {
         BOOKING_CHANGE_GRACE_PERIOD,
         BOOKING_CHANGE_FEE,
         MINS_BEFORE_CLOSED_BOOKING,
-        BUFFER_MINUTES_AFTER_SHOWTIME
+        BUFFER_MINUTES_AFTER_SHOWTIME,
+        SEAT_HOLD_MINUTES,
+        SELLING_FAST_PERCENT
     }
 }
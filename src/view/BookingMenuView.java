@@ -6,6 +6,7 @@ import controller.BookingController;
 import controller.PaymentController;
 import controller.ShowtimeController;
 import controller.UserController;
+import exception.IllegalActionException;
 import exception.RejectedNavigationException;
 import model.booking.Booking;
 import model.booking.Showtime;
@@ -16,7 +17,9 @@ import model.transaction.Payment;
 import model.transaction.Priceable;
 import view.ui.*;
 
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 /**
  * This moblima.view displays the user interface for the user to make bookings.
  *
@@ -27,6 +30,7 @@ public class BookingMenuView extends MenuView {
 
     private User user;
     private Booking booking;
+    private String requestKey;
 
     private BookingMenuIntent intent;
     private AccessLevel accessLevel;
@@ -68,7 +72,7 @@ public class BookingMenuView extends MenuView {
         this.intent = (BookingMenuIntent) intent;
         switch (this.intent) {
             case PRINT_TICKETS:
-                Hashtable<TicketType, Integer> ticketTypesCount = booking.getTicketTypesCount();
+                ConcurrentHashMap<TicketType, Integer> ticketTypesCount = booking.getTicketTypesCount();
                 List<Seat> seats = booking.getSeats();
                 int nextSeatIndex = 0;
                 for (TicketType ticketType : ticketTypesCount.keySet())
@@ -102,9 +106,23 @@ public class BookingMenuView extends MenuView {
                 View.displayWarning("By proceeding to PAY, you hereby authorise the debit to your " +
                         "Card Account in favour of MOBLIMA PTE LTD");
                 Form.pressAnyKeyToContinue();
-                Payment payment = paymentController.makePayment(booking);
-                View.displaySuccess("Payment Successful! Transaction ID: " + payment.getTransactionId());
-                bookingController.confirmBooking(booking.getId(), user.getId());
+                // The request key is kept across the retries of this confirmation, so a retry pays and books once
+                if (requestKey == null)
+                    requestKey = UUID.randomUUID().toString();
+                try {
+                    Payment payment = paymentController.makePayment(booking, requestKey);
+                    View.displaySuccess("Payment Successful! Transaction ID: " + payment.getTransactionId());
+                    bookingController.confirmBooking(booking.getId(), user.getId(), requestKey);
+                    requestKey = null;
+                } catch (IllegalActionException | UncheckedIOException e) {
+                    View.displayError(e.getMessage());
+                    // A confirmation undone along with its payment is over, so the next one gets a new request key
+                    if (booking.getPayment() == null)
+                        requestKey = null;
+                    Form.pressAnyKeyToContinue();
+                    navigation.reload(accessLevel, BookingMenuIntent.VERIFY_BOOKING, booking.getId().toString());
+                    break;
+                }
                 Form.pressAnyKeyToContinue();
                 navigation.reload(accessLevel, BookingMenuIntent.VIEW_BOOKING, booking.getId().toString());
             case VIEW_BOOKING:
@@ -8,8 +8,8 @@ import util.Utilities;
 import view.ui.View;
 
 import java.util.Arrays;
-import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This moblima.view displays the user interface for the user to moblima.view current booking information.
@@ -35,7 +35,7 @@ public class BookingView extends View {
         content.add("Transaction ID: " + booking.getPayment().getTransactionId());
     }
 
-    public BookingView(Showtime showtime, List<Seat> seats, Hashtable<TicketType, Integer> ticketTypeCount) {
+    public BookingView(Showtime showtime, List<Seat> seats, ConcurrentHashMap<TicketType, Integer> ticketTypeCount) {
         this(showtime, seats);
         content.add(0, getTitle());
         content.add(0, " ");
@@ -11,6 +11,7 @@ import model.cineplex.Seat;
 import view.ui.*;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -82,8 +83,7 @@ public class CinemaMenuView extends MenuView {
         if (accessLevel == AccessLevel.PUBLIC)
             View.displayInformation("Seats to Choose: " + (numberOfSeats - selectedSeats.size()));
         else
-            View.displayInformation("Seats occupied: " + showtime.getBookings().stream()
-                    .map(Booking::getTotalTicketsCount).mapToInt(Integer::intValue).sum());
+            View.displayInformation("Seats occupied: " + showtime.getOccupancy().getTakenCount());
 
         String userChoice = getChoice();
         if (userChoice.equals(BACK))
@@ -112,6 +112,17 @@ public class CinemaMenuView extends MenuView {
                         navigation.refresh();
                     }
                     break;
+                case CHOOSE_BEST_AVAILABLE:
+                    List<Seat> bestSeats = showtimeSeating.findBestAvailable(numberOfSeats);
+                    if (bestSeats.isEmpty()) {
+                        View.displayError("There are no " + numberOfSeats + " seats available together!");
+                    } else {
+                        selectedSeats = new ArrayList<>(bestSeats);
+                        View.displaySuccess("Successfully selected seats " + bestSeats + "!");
+                    }
+                    Form.pressAnyKeyToContinue();
+                    navigation.refresh();
+                    break;
                 case PROCEED_WITH_BOOKING:
                     if (selectedSeats.size() != numberOfSeats) {
                         View.displayError("Please select the correct number of seats!");
@@ -129,6 +140,7 @@ public class CinemaMenuView extends MenuView {
     public enum CinemaMenuOption implements EnumerableMenuOption {
 
         CHOOSE_SEAT("Choose Seat(s)"),
+        CHOOSE_BEST_AVAILABLE("Choose Best Available Seats"),
         PROCEED_WITH_BOOKING("Proceed With Booking");
 
         private String description;
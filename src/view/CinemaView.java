@@ -8,7 +8,6 @@ import view.ui.View;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Hashtable;
 import java.util.List;
 
 /**
@@ -21,7 +20,6 @@ public class CinemaView extends View {
 
     public CinemaView(ShowtimeSeating showtimeSeating, CinemaLayout cinemaLayout, List<Seat> selectedSeats) {
 
-        Hashtable<Character, Cell[]> cellLayout = cinemaLayout.getLayout();
         String columnAxis = "  ";
         for (int columnLabel = 1; columnLabel <= cinemaLayout.getMaxColumn(); columnLabel++)
             columnAxis += " " + columnLabel + (columnLabel >= 10 ? "" : " ");
@@ -39,7 +37,8 @@ public class CinemaView extends View {
         content.add(leftMargin + columnAxis);
         for (char rowLabel = 'A'; rowLabel <= cinemaLayout.getMaxRow(); rowLabel++) {
             String row = rowLabel + " ";
-            for (Cell cell : cellLayout.get(rowLabel)) {
+            for (int column = 1; column <= cinemaLayout.getMaxColumn(); column++) {
+                Cell cell = cinemaLayout.getCellAt(rowLabel, column);
                 if (cell instanceof Seat) {
                     Seat seat = (Seat) cell;
                     char seatIcon = showtimeSeating.getSeatingStatus(seat).toString().charAt(0);
@@ -7,8 +7,8 @@ import view.ui.*;
 
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Hashtable;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -22,7 +22,7 @@ public class HolidayConfigListView extends ListView {
 
     private HolidayConfig holidayConfig;
 
-    private Hashtable<Date, String> holidays;
+    private ConcurrentHashMap<Date, String> holidays;
 
     public HolidayConfigListView(Navigation navigation) {
         super(navigation);
@@ -18,6 +18,11 @@ public class MainMenuView extends MenuView {
 
     public String version;
 
+    /**
+     * The value of System.nanoTime() when the application was started, or 0 if the startup time is not reported.
+     */
+    private long startTime;
+
     public MainMenuView(Navigation navigation) {
         super(navigation);
     }
@@ -25,6 +30,8 @@ public class MainMenuView extends MenuView {
     @Override
     public void onLoad(AccessLevel accessLevel, Intent intent, String... args) {
         this.version = args[0];
+        if (args.length > 1)
+            this.startTime = Long.parseLong(args[1]);
 
         setMenuItems(MainMenuOption.values());
         setTitle("MOBLIMA " + version);
@@ -34,6 +41,11 @@ public class MainMenuView extends MenuView {
     @Override
     public void onEnter() {
         display();
+        if (startTime != 0) {
+            View.displayInformation("Time to first menu: "
+                    + (System.nanoTime() - startTime) / 1000000 + " ms");
+            startTime = 0;
+        }
         switch (MainMenuOption.valueOf(getChoice())) {
             case SEARCH_MOVIES:
                 navigation.goTo(new MovieListView(navigation), AccessLevel.PUBLIC, MovieListIntent.SEARCH_MOVIES);
@@ -119,6 +119,7 @@ public class MovieMenuView extends MenuView {
                     break;
                 case UPDATE:
                     View.displayInformation("Please enter updated movie details.");
+                    long version = movie.getVersion();
                     String title = Form.getString("Title");
                     String sypnosis = Form.getString("Sypnosis");
                     MoviePerson director = new MoviePerson(Form.getString("Director"));
@@ -129,9 +130,13 @@ public class MovieMenuView extends MenuView {
                     MovieRating rating = MovieRating.valueOf(Form.getOption("Movie Rating",
                             MovieRating.values()));
                     int runtime = Form.getIntWithMin("Runtime Minutes", 0);
-                    movieController.changeMovieDetails(movie.getId(), title, sypnosis,
-                            director, actors, rating, runtime);
-                    View.displaySuccess("Successfully updated movie!");
+                    try {
+                        movieController.changeMovieDetails(movie.getId(), version, title, sypnosis,
+                                director, actors, rating, runtime);
+                        View.displaySuccess("Successfully updated movie!");
+                    } catch (IllegalActionException e) {
+                        View.displayError(e.getMessage());
+                    }
                     Form.pressAnyKeyToContinue();
                     navigation.reload(accessLevel, MovieMenuIntent.VIEW_MOVIE, movie.getId().toString());
                     break;
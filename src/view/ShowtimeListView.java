@@ -7,8 +7,12 @@ import exception.RejectedNavigationException;
 import exception.UnauthorisedNavigationException;
 import model.booking.Booking;
 import model.booking.Showtime;
+import model.booking.ShowtimeDemand;
+import model.booking.ShowtimeDraft;
+import model.booking.ShowtimeImportReport;
 import model.booking.ShowtimeStatus;
 import model.cineplex.Cinema;
+import model.cineplex.CinemaType;
 import model.cineplex.Cineplex;
 import model.commons.Language;
 import model.movie.Movie;
@@ -16,6 +20,8 @@ import model.movie.MovieStatus;
 import util.Utilities;
 import view.ui.*;
 
+import java.io.FileReader;
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +35,8 @@ import java.util.stream.Collectors;
  */
 public class ShowtimeListView extends ListView {
 
+    private static final String ANY_CINEMA_TYPE = "ANY";
+
     private Cineplex cineplexFilter;
     private Movie movieFilter;
     private Date dateFilter;
@@ -93,7 +101,10 @@ public class ShowtimeListView extends ListView {
         switch (accessLevel) {
             case ADMINISTRATOR:
                 if (cineplexFilter != null && movieFilter != null)
-                    setMenuItems(ShowtimeListOption.values());
+                    setMenuItems(ShowtimeListOption.CHOOSE_DAY, ShowtimeListOption.ADD_SHOWTIME);
+                else if (cineplexFilter == null && movieFilter == null)
+                    setMenuItems(ShowtimeListOption.CHOOSE_DAY, ShowtimeListOption.GENERATE_SCHEDULE,
+                            ShowtimeListOption.IMPORT_SHOWTIMES);
                 else
                     setMenuItems(ShowtimeListOption.CHOOSE_DAY);
                 break;
@@ -174,22 +185,19 @@ public class ShowtimeListView extends ListView {
         if (cineplexFilter == null) {
 
             List<Cineplex> cineplexes = cineplexController.getList();
-            for (Cineplex cineplex : cineplexes) {
-                List<Movie> cineplexMovies = movieController.findByCineplex(cineplex.getId());
-                if (movieFilter != null && cineplexMovies.contains(movieFilter))
-                    cineplexMovies = Arrays.asList(movieFilter);
-                else if (movieFilter != null)
-                    cineplexMovies = new ArrayList<>();
+            List<Movie> movies = movieFilter == null ? movieController.getList() : Arrays.asList(movieFilter);
+            if (movieStatusFilters != null)
+                movies = movies.stream().filter(movie ->
+                        movieStatusFilters.contains(movie.getStatus())).collect(Collectors.toList());
 
-                if (movieStatusFilters != null)
-                    cineplexMovies = cineplexMovies.stream().filter(movie ->
-                            movieStatusFilters.contains(movie.getStatus())).collect(Collectors.toList());
+            for (Cineplex cineplex : cineplexes) {
+                List<Showtime> cineplexShowtimes = showtimeController.findByCineplexOnDay(cineplex.getId(),
+                        dateFilter);
 
                 ArrayList<String> content = new ArrayList<>();
-                for (Movie movie : cineplexMovies) {
-                    List<Showtime> movieShowtimes = showtimeController
-                            .findByCineplexAndMovie(cineplex.getId(), movie.getId())
-                            .stream().filter(showtime -> Utilities.isOnSameDay(dateFilter, showtime.getStartTime()))
+                for (Movie movie : movies) {
+                    List<Showtime> movieShowtimes = cineplexShowtimes.stream()
+                            .filter(showtime -> showtime.getMovie().equals(movie))
                             .collect(Collectors.toList());
                     if (showtimeStatusFilters != null)
                         movieShowtimes = movieShowtimes.stream().filter(showtime ->
@@ -208,18 +216,18 @@ public class ShowtimeListView extends ListView {
 
         } else if (movieFilter == null) {
 
-            List<Movie> cineplexMovies = accessLevel == AccessLevel.ADMINISTRATOR ?
-                    movieController.getList() :
-                    movieController.findByCineplex(cineplexFilter.getId());
+            // The public only sees the movies with showtimes on the day, which are all in the cineplex
+            List<Movie> cineplexMovies = movieController.getList();
 
             if (movieStatusFilters != null)
                 cineplexMovies = cineplexMovies.stream().filter(movie ->
                         movieStatusFilters.contains(movie.getStatus())).collect(Collectors.toList());
 
+            List<Showtime> cineplexShowtimes = showtimeController.findByCineplexOnDay(cineplexFilter.getId(),
+                    dateFilter);
             for (Movie movie : cineplexMovies) {
-                List<Showtime> movieShowtimes = showtimeController
-                        .findByCineplexAndMovie(cineplexFilter.getId(), movie.getId())
-                        .stream().filter(showtime -> Utilities.isOnSameDay(dateFilter, showtime.getStartTime()))
+                List<Showtime> movieShowtimes = cineplexShowtimes.stream()
+                        .filter(showtime -> showtime.getMovie().equals(movie))
                         .collect(Collectors.toList());
 
                 if (showtimeStatusFilters != null)
@@ -233,10 +241,8 @@ public class ShowtimeListView extends ListView {
 
         } else {
 
-            List<Showtime> showtimes = showtimeController
-                    .findByCineplexAndMovie(cineplexFilter.getId(), movieFilter.getId())
-                    .stream().filter(showtime -> Utilities.isOnSameDay(dateFilter, showtime.getStartTime()))
-                    .collect(Collectors.toList());
+            List<Showtime> showtimes = showtimeController.findByCineplexAndMovieOnDay(cineplexFilter.getId(),
+                    movieFilter.getId(), dateFilter);
 
             if (showtimeStatusFilters != null)
                 showtimes = showtimes.stream().filter(showtime ->
@@ -276,6 +282,14 @@ public class ShowtimeListView extends ListView {
                                 movieFilter.getId().toString(),
                                 Utilities.toFormat(dateFilter));
                         break;
+                    case GENERATE_SCHEDULE:
+                        generateSchedule();
+                        navigation.refresh();
+                        break;
+                    case IMPORT_SHOWTIMES:
+                        importShowtimes();
+                        navigation.refresh();
+                        break;
                 }
             } catch (IllegalArgumentException e) {
                 if (cineplexFilter == null) {
@@ -310,6 +324,74 @@ public class ShowtimeListView extends ListView {
 
     }
 
+    /**
+     * Asks for the opening hours and the demand for each movie, plans the showtimes of the week from the date
+     * being viewed across all cineplexes, and creates them all at once if confirmed.
+     */
+    private void generateSchedule() {
+        View.displayInformation("Please enter the opening hours and the showtimes per cineplex of each movie " +
+                "for the week from " + Utilities.toFormat(dateFilter, DATE_DISPLAY_FORMAT) + ".");
+        int openingHour = Form.getInt("Opening Hour", 0, 23);
+        int closingHour = Form.getInt("Closing Hour", openingHour + 1, 24);
+
+        ArrayList<GenericMenuOption> cinemaTypeOptions = new ArrayList<>();
+        cinemaTypeOptions.add(new GenericMenuOption("Any", ANY_CINEMA_TYPE));
+        for (CinemaType cinemaType : CinemaType.values())
+            cinemaTypeOptions.add(new GenericMenuOption(cinemaType.toString(), cinemaType.name()));
+
+        ArrayList<ShowtimeDemand> demands = new ArrayList<>();
+        for (Movie movie : movieController.getList()) {
+            if (movie.getStatus() != MovieStatus.NOW_SHOWING && movie.getStatus() != MovieStatus.PREVIEW)
+                continue;
+            int showtimesPerWeek = Form.getIntWithMin("Showtimes per Week of " + movie.getTitle(), 0);
+            if (showtimesPerWeek == 0)
+                continue;
+            Language language = Language.valueOf(Form.getOption("Language", Language.values()));
+            String cinemaType = Form.getOption("Cinema Type",
+                    cinemaTypeOptions.toArray(new GenericMenuOption[cinemaTypeOptions.size()]));
+            demands.add(cinemaType.equals(ANY_CINEMA_TYPE) ? new ShowtimeDemand(movie, showtimesPerWeek, language) :
+                    new ShowtimeDemand(movie, showtimesPerWeek, language, CinemaType.valueOf(cinemaType)));
+        }
+
+        ShowtimeScheduler scheduler = new ShowtimeScheduler(dateFilter, (int) TimeUnit.HOURS.toMinutes(openingHour),
+                (int) TimeUnit.HOURS.toMinutes(closingHour), demands);
+        List<ShowtimeDraft> drafts = scheduler.plan();
+        View.displayInformation(drafts.size() + " of the " + scheduler.getDemandedCount() +
+                " showtimes demanded fit in the week.");
+        if (!drafts.isEmpty() && Form.getBoolean("Create Showtimes"))
+            try {
+                showtimeController.createShowtimes(drafts);
+                View.displaySuccess("Successfully created " + drafts.size() + " showtimes!");
+            } catch (IllegalActionException e) {
+                View.displayError(e.getMessage());
+            }
+        Form.pressAnyKeyToContinue();
+    }
+
+    /**
+     * Asks for a file of comma separated showtimes and imports them all at once, displaying every row rejected
+     * if any is.
+     */
+    private void importShowtimes() {
+        View.displayInformation("Each line of the file is: cineplex,cinema,movie,language,start time " +
+                "(" + Form.DATE_FORMAT + "),no free passes,subtitles separated by ;");
+        String filename = Form.getString("File Path");
+        try (FileReader reader = new FileReader(filename)) {
+            ShowtimeImportReport report = showtimeController.importShowtimes(reader);
+            if (report.isCommitted())
+                View.displaySuccess("Successfully imported " + report.getShowtimes().size() + " showtimes!");
+            else {
+                View.displayError(report.getRejections().size() + " of the " + report.getRowCount() +
+                        " rows are rejected, so no showtime is imported.");
+                for (ShowtimeImportReport.Rejection rejection : report.getRejections())
+                    View.displayError(rejection.toString());
+            }
+        } catch (IOException e) {
+            View.displayError("Cannot read " + filename + ": " + e.getMessage());
+        }
+        Form.pressAnyKeyToContinue();
+    }
+
     public enum ShowtimeListIntent implements Intent {
         VIEW_SHOWTIMES,
         CREATE_SHOWTIME
@@ -318,7 +400,9 @@ public class ShowtimeListView extends ListView {
     public enum ShowtimeListOption implements EnumerableMenuOption {
 
         CHOOSE_DAY("Choose Another Date"),
-        ADD_SHOWTIME("Add Showtime");
+        ADD_SHOWTIME("Add Showtime"),
+        GENERATE_SCHEDULE("Generate Weekly Schedule"),
+        IMPORT_SHOWTIMES("Import Showtimes");
 
         private String description;
 
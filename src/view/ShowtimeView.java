@@ -1,6 +1,7 @@
 package view;
 
 import model.booking.Showtime;
+import model.booking.ShowtimeOccupancy;
 import model.commons.Language;
 import util.Utilities;
 import view.ui.View;
@@ -20,11 +21,14 @@ public class ShowtimeView extends View {
         setTitle(Utilities.toFormat(showtime.getStartTime(), "hh:mm a"));
 
         List<Language> subtitles = showtime.getSubtitles();
+        ShowtimeOccupancy occupancy = showtime.getOccupancy();
         setContent("Cinema: " + showtime.getCineplex().getName() + " " + showtime.getCinema(),
                 "Language: " + showtime.getLanguage(),
                 "Subtitles: " + (subtitles.size() > 0 ? String.join(",", showtime.getSubtitles().stream()
                         .map(String::valueOf).toArray(String[]::new)) : "None"),
-                "Free Seating Allowed: " + (showtime.isNoFreePasses() ? "No" : "Yes")
+                "Free Seating Allowed: " + (showtime.isNoFreePasses() ? "No" : "Yes"),
+                "Seats Left: " + occupancy.getAvailableCount() + " of " + occupancy.getSeatCount()
+                        + (occupancy.isSoldOut() ? " (Sold Out)" : occupancy.isSellingFast() ? " (Selling Fast)" : "")
         );
     }
 }
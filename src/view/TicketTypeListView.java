@@ -14,6 +14,7 @@ import util.Utilities;
 import view.ui.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -27,7 +28,7 @@ public class TicketTypeListView extends ListView {
 
     private Booking booking;
     private Showtime showtime;
-    private Hashtable<TicketType, Integer> ticketTypeCount;
+    private ConcurrentHashMap<TicketType, Integer> ticketTypeCount;
     private AccessLevel accessLevel;
     private ShowtimeController showtimeController;
     private BookingController bookingController;
@@ -52,6 +53,7 @@ public class TicketTypeListView extends ListView {
                     throw new UnauthorisedNavigationException();
 
                 View.displayInformation("Please enter updated showtime details.");
+                long version = showtime.getVersion();
                 List<Cinema> cinemas = showtime.getCineplex().getCinemas();
                 Cinema cinema = cinemaController.findById(UUID.fromString(Form.getOption("Cinema",
                         cinemas.stream().map(cineplexCinema ->
@@ -85,8 +87,8 @@ public class TicketTypeListView extends ListView {
 
                 boolean noFreePasses = Form.getBoolean("No Free Passes");
                 try {
-                    showtimeController.changeShowtimeDetails(showtime.getId(), cinema.getId(), language,
-                            startTime, noFreePasses, subtitles);
+                    showtimeController.changeShowtimeDetails(showtime.getId(), version, cinema.getId(),
+                            language, startTime, noFreePasses, subtitles);
                     View.displaySuccess("Successfully created showtime!");
                 } catch (IllegalActionException e) {
                     View.displayError(e.getMessage());
@@ -145,7 +147,7 @@ public class TicketTypeListView extends ListView {
                 break;
         }
 
-        this.ticketTypeCount = new Hashtable<>();
+        this.ticketTypeCount = new ConcurrentHashMap<>();
         for (TicketType ticketType : showtimeController.getAvailableTicketTypes(showtime.getId()))
             ticketTypeCount.put(ticketType, 0);
 
@@ -160,7 +162,7 @@ public class TicketTypeListView extends ListView {
                 ticketTypeCount.put(ticketType, 0);
             for (Booking booking : showtime.getBookings())
                 if (booking.getStatus() == BookingStatus.CONFIRMED) {
-                    Hashtable<TicketType, Integer> bookingTicketTypesCount = booking.getTicketTypesCount();
+                    ConcurrentHashMap<TicketType, Integer> bookingTicketTypesCount = booking.getTicketTypesCount();
                     for (TicketType ticketType : bookingTicketTypesCount.keySet()) {
                         int currentCount = ticketTypeCount.get(ticketType);
                         ticketTypeCount.put(ticketType, currentCount + bookingTicketTypesCount.get(ticketType));